@@ -0,0 +1,7 @@
+-- Indexed, normalized username lookups for LEXORA logins
+-- AuthService binds an already trimmed and upper-cased username against username_norm,
+-- so the lookup is a unique index probe instead of UPPER(TRIM(username)) on every row.
+
+ALTER TABLE app_users ADD username_norm VARCHAR2(100) GENERATED ALWAYS AS (UPPER(TRIM(username))) VIRTUAL;
+
+CREATE UNIQUE INDEX ux_app_users_username_norm ON app_users (username_norm);
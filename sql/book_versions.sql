@@ -0,0 +1,5 @@
+-- Row versions for optimistic updates of books in LEXORA
+-- Every write to a books row increments version; BookService.updateBook only writes if the
+-- version it read is still current and otherwise retries with backoff.
+
+ALTER TABLE books ADD version NUMBER DEFAULT 0 NOT NULL;
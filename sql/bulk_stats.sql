@@ -0,0 +1,6 @@
+-- Indexes for the bulk author / member statistics in LEXORA
+-- BookService.countBooksByAuthors joins books on UPPER(author), like fn_count_books_by_author.
+CREATE INDEX idx_books_author_upper ON books (UPPER(author));
+
+-- MemberService.getMembersTotalBorrows groups borrowings by member_id for an IN-list of members.
+CREATE INDEX idx_borrowings_member ON borrowings (member_id);
@@ -0,0 +1,17 @@
+-- Per-book circulation counters for LEXORA
+-- books.borrowed_copies is kept equal to the number of ISSUED borrowings for the book,
+-- and books.available_copies to total_copies - borrowed_copies, by every issue and return path.
+
+ALTER TABLE books ADD borrowed_copies NUMBER DEFAULT 0 NOT NULL;
+
+-- Backfill from the current circulation state
+UPDATE books b
+SET borrowed_copies = (SELECT COUNT(*) FROM borrowings br WHERE br.book_id = b.book_id AND br.status = 'ISSUED');
+
+UPDATE books
+SET available_copies = GREATEST(0, total_copies - borrowed_copies);
+
+COMMIT;
+
+-- Lets the reconciliation job count open loans per book without touching returned history
+CREATE INDEX idx_borrowings_status_book ON borrowings (status, book_id);
@@ -0,0 +1,26 @@
+-- Hold (reservation) queues for LEXORA
+-- A READY hold has one copy set aside in books.held_copies until pickup_expires, so
+-- available_copies = total_copies - borrowed_copies - held_copies.
+
+ALTER TABLE books ADD held_copies NUMBER DEFAULT 0 NOT NULL;
+
+CREATE TABLE holds (
+    hold_id        NUMBER GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    book_id        NUMBER NOT NULL REFERENCES books (book_id) ON DELETE CASCADE,
+    member_id      NUMBER NOT NULL REFERENCES members (member_id) ON DELETE CASCADE,
+    placed_at      TIMESTAMP DEFAULT SYSTIMESTAMP NOT NULL,
+    status         VARCHAR2(10) DEFAULT 'WAITING' NOT NULL
+                   CHECK (status IN ('WAITING', 'READY', 'FULFILLED', 'CANCELLED', 'EXPIRED')),
+    pickup_expires TIMESTAMP
+);
+
+-- Queue order per title: the oldest WAITING hold is served first
+CREATE INDEX idx_holds_queue ON holds (book_id, status, hold_id);
+CREATE INDEX idx_holds_member ON holds (member_id, status);
+CREATE INDEX idx_holds_pickup ON holds (status, pickup_expires);
+
+-- At most one open hold per member and title
+CREATE UNIQUE INDEX ux_holds_open ON holds (
+    CASE WHEN status IN ('WAITING', 'READY') THEN book_id END,
+    CASE WHEN status IN ('WAITING', 'READY') THEN member_id END
+);
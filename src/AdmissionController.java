@@ -0,0 +1,274 @@
+package src;
+
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+// Admission control in front of the service calls of the HTTP server. A request first takes a token
+// from its session's bucket, its member's bucket and (except for librarians) its operation class's
+// bucket. An empty bucket rejects it at once with the time until the next token. It then needs one of
+// maxConcurrent slots. When none is free it waits in a bounded queue: librarians first, then member
+// circulation, then member searches, oldest first within each. A full queue turns away its least urgent
+// entry, and a wait longer than queueTimeoutMs is rejected. Under overload, extra requests are refused
+// quickly instead of every request waiting on the database and timing out together.
+public class AdmissionController {
+    public enum OpClass { SEARCH, READ, CIRCULATION, ADMIN }
+
+    public static class Stats {
+        public final long admitted;
+        public final long rateLimited;
+        public final long shed;
+        public final long timedOut;
+        public final int inFlight;
+        public final int waiting;
+        public Stats(long admitted, long rateLimited, long shed, long timedOut, int inFlight, int waiting) {
+            this.admitted = admitted;
+            this.rateLimited = rateLimited;
+            this.shed = shed;
+            this.timedOut = timedOut;
+            this.inFlight = inFlight;
+            this.waiting = waiting;
+        }
+
+        @Override
+        public String toString() {
+            return "in flight=" + inFlight + ", waiting=" + waiting + ", admitted=" + admitted + ", rate limited=" + rateLimited
+                    + ", shed=" + shed + ", timed out=" + timedOut;
+        }
+    }
+
+    // Releases the slot when the call is done. Safe to call more than once.
+    public final class Ticket {
+        private boolean released;
+
+        public void release() {
+            synchronized (AdmissionController.this) {
+                if (released) {
+                    return;
+                }
+                released = true;
+            }
+            handOff();
+        }
+    }
+
+    // Refills at ratePerSecond up to burst tokens.
+    private static final class TokenBucket {
+        private final double perNano;
+        private final double burst;
+        private double tokens;
+        private long updated;
+
+        TokenBucket(double ratePerSecond, double burst, long now) {
+            this.perNano = ratePerSecond / 1e9;
+            this.burst = burst;
+            this.tokens = burst;
+            this.updated = now;
+        }
+
+        // 0 if a token was taken, otherwise the nanoseconds until one is available.
+        synchronized long take(long now) {
+            refill(now);
+            if (tokens >= 1.0) {
+                tokens -= 1.0;
+                return 0L;
+            }
+            return Math.max(1L, (long) Math.ceil((1.0 - tokens) / perNano));
+        }
+
+        // A full bucket holds no state worth keeping.
+        synchronized boolean isFull(long now) {
+            refill(now);
+            return tokens >= burst;
+        }
+
+        private void refill(long now) {
+            tokens = Math.min(burst, tokens + (now - updated) * perNano);
+            updated = now;
+        }
+    }
+
+    private final class Waiter implements Comparable<Waiter> {
+        final int priority;
+        final long order;
+        final CompletableFuture<Ticket> future = new CompletableFuture<>();
+        ScheduledFuture<?> timeout;
+
+        Waiter(int priority) {
+            this.priority = priority;
+            this.order = arrivals.incrementAndGet();
+        }
+
+        @Override
+        public int compareTo(Waiter o) {
+            return priority != o.priority ? Integer.compare(priority, o.priority) : Long.compare(order, o.order);
+        }
+    }
+
+    private static final long SWEEP_SECONDS = 60;
+
+    private final int maxConcurrent;
+    private final int maxQueue;
+    private final long queueTimeoutMillis;
+    private final double sessionRate;
+    private final double memberRate;
+    private final Map<String, TokenBucket> sessionBuckets = new ConcurrentHashMap<>();
+    private final Map<Integer, TokenBucket> memberBuckets = new ConcurrentHashMap<>();
+    private final TokenBucket[] classBuckets = new TokenBucket[OpClass.values().length];
+    // guarded by this
+    private final TreeSet<Waiter> waiting = new TreeSet<>();
+    private int inFlight;
+    private final AtomicLong arrivals = new AtomicLong();
+    private final LongAdder admitted = new LongAdder();
+    private final LongAdder rateLimited = new LongAdder();
+    private final LongAdder shed = new LongAdder();
+    private final LongAdder timedOut = new LongAdder();
+    private final ScheduledExecutorService timer;
+
+    // Rates are requests per second, with bursts of twice the rate; a rate of 0 or less means no limit.
+    // classRates is indexed by OpClass ordinal.
+    public AdmissionController(int maxConcurrent, int maxQueue, long queueTimeoutMillis, double sessionRate, double memberRate, double[] classRates) {
+        if (maxConcurrent < 1 || maxQueue < 0 || classRates.length != OpClass.values().length) {
+            throw new IllegalArgumentException("Invalid admission limits: maxConcurrent=" + maxConcurrent + " maxQueue=" + maxQueue);
+        }
+        this.maxConcurrent = maxConcurrent;
+        this.maxQueue = maxQueue;
+        this.queueTimeoutMillis = queueTimeoutMillis;
+        this.sessionRate = sessionRate;
+        this.memberRate = memberRate;
+        long now = System.nanoTime();
+        for (int i = 0; i < classRates.length; i++) {
+            classBuckets[i] = classRates[i] > 0 ? new TokenBucket(classRates[i], 2 * classRates[i], now) : null;
+        }
+        this.timer = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "lexora-admission-timer");
+            t.setDaemon(true);
+            return t;
+        });
+        timer.scheduleWithFixedDelay(this::sweepBuckets, SWEEP_SECONDS, SWEEP_SECONDS, TimeUnit.SECONDS);
+    }
+
+    // Limits taken from -Dlexora.admission.* system properties.
+    public static AdmissionController fromSystemProperties(int maxConcurrent) {
+        double[] classRates = new double[OpClass.values().length];
+        classRates[OpClass.SEARCH.ordinal()] = rate("lexora.admission.searchRate", 100);
+        classRates[OpClass.READ.ordinal()] = rate("lexora.admission.readRate", 1000);
+        classRates[OpClass.CIRCULATION.ordinal()] = rate("lexora.admission.circulationRate", 200);
+        classRates[OpClass.ADMIN.ordinal()] = rate("lexora.admission.adminRate", 200);
+        return new AdmissionController(
+            Integer.getInteger("lexora.admission.maxConcurrent", maxConcurrent),
+            Integer.getInteger("lexora.admission.queueSize", 2 * maxConcurrent),
+            Long.getLong("lexora.admission.queueTimeoutMs", 500L),
+            rate("lexora.admission.sessionRate", 20),
+            rate("lexora.admission.memberRate", 10),
+            classRates);
+    }
+
+    private static double rate(String property, double defaultRate) {
+        return Double.parseDouble(System.getProperty(property, String.valueOf(defaultRate)));
+    }
+
+    // Completes with a Ticket once the call may run, or exceptionally with a ServiceException carrying a
+    // retry hint: RATE_LIMITED when one of the caller's buckets is empty, OVERLOADED when the queue is
+    // full or the wait timed out. The caller must release the ticket when the call is done.
+    public CompletableFuture<Ticket> admit(String session, AuthService.AuthResult auth, OpClass op) {
+        boolean librarian = "LIBRARIAN".equalsIgnoreCase(auth.role);
+        long now = System.nanoTime();
+        long wait = 0L;
+        if (sessionRate > 0 && session != null) {
+            wait = Math.max(wait, sessionBuckets.computeIfAbsent(session, k -> new TokenBucket(sessionRate, 2 * sessionRate, now)).take(now));
+        }
+        if (memberRate > 0 && !librarian && auth.memberId != null) {
+            wait = Math.max(wait, memberBuckets.computeIfAbsent(auth.memberId, k -> new TokenBucket(memberRate, 2 * memberRate, now)).take(now));
+        }
+        if (!librarian && classBuckets[op.ordinal()] != null) {
+            wait = Math.max(wait, classBuckets[op.ordinal()].take(now));
+        }
+        // Tokens taken by a rejected request stay spent, so clients that retry at once slow themselves down.
+        if (wait > 0) {
+            rateLimited.increment();
+            return rejected(ServiceException.Kind.RATE_LIMITED, "Too many requests, slow down", TimeUnit.NANOSECONDS.toMillis(wait) + 1);
+        }
+
+        int priority = librarian ? 0 : op == OpClass.SEARCH ? 2 : 1;
+        Waiter waiter;
+        Waiter evicted = null;
+        synchronized (this) {
+            if (inFlight < maxConcurrent && waiting.isEmpty()) {
+                inFlight++;
+                admitted.increment();
+                return CompletableFuture.completedFuture(new Ticket());
+            }
+            if (waiting.size() >= maxQueue) {
+                Waiter last = waiting.isEmpty() ? null : waiting.last();
+                if (last == null || last.priority <= priority) {
+                    shed.increment();
+                    return rejected(ServiceException.Kind.OVERLOADED, "Server is busy, try again shortly", queueTimeoutMillis);
+                }
+                waiting.remove(last);
+                evicted = last;
+            }
+            waiter = new Waiter(priority);
+            waiting.add(waiter);
+            waiter.timeout = timer.schedule(() -> expire(waiter), queueTimeoutMillis, TimeUnit.MILLISECONDS);
+        }
+        if (evicted != null) {
+            shed.increment();
+            evicted.timeout.cancel(false);
+            evicted.future.completeExceptionally(new ServiceException(ServiceException.Kind.OVERLOADED, "Server is busy, try again shortly", queueTimeoutMillis));
+        }
+        return waiter.future;
+    }
+
+    public synchronized Stats getStats() {
+        return new Stats(admitted.sum(), rateLimited.sum(), shed.sum(), timedOut.sum(), inFlight, waiting.size());
+    }
+
+    public void shutdown() {
+        timer.shutdownNow();
+    }
+
+    // Gives a freed slot to the most urgent waiter, or returns it to the pool.
+    private void handOff() {
+        Waiter next;
+        synchronized (this) {
+            next = waiting.pollFirst();
+            if (next == null) {
+                inFlight--;
+                return;
+            }
+            admitted.increment();
+        }
+        next.timeout.cancel(false);
+        next.future.complete(new Ticket());
+    }
+
+    private void expire(Waiter waiter) {
+        synchronized (this) {
+            if (!waiting.remove(waiter)) {
+                return;
+            }
+        }
+        timedOut.increment();
+        waiter.future.completeExceptionally(new ServiceException(ServiceException.Kind.OVERLOADED, "Timed out waiting for a free slot", queueTimeoutMillis));
+    }
+
+    private void sweepBuckets() {
+        long now = System.nanoTime();
+        sessionBuckets.values().removeIf(b -> b.isFull(now));
+        memberBuckets.values().removeIf(b -> b.isFull(now));
+    }
+
+    private static <T> CompletableFuture<T> rejected(ServiceException.Kind kind, String message, long retryAfterMillis) {
+        CompletableFuture<T> f = new CompletableFuture<>();
+        f.completeExceptionally(new ServiceException(kind, message, retryAfterMillis));
+        return f;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,281 @@
+package src;
+
+import java.lang.reflect.Method;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+// Non-blocking facade over the static services. Every call runs on a virtual thread when the
+// JVM has them (Java 21+), otherwise on a bounded daemon pool, and completes exceptionally with a
+// ServiceException instead of returning false/null. At most maxConcurrency calls run at once.
+public class AsyncLibraryService {
+    public static class PatronProfile {
+        public final MemberService.Member member;
+        public final List<BorrowingService.Borrowing> borrowings;
+        public final int totalBorrows;
+        public PatronProfile(MemberService.Member member, List<BorrowingService.Borrowing> borrowings, int totalBorrows) {
+            this.member = member;
+            this.borrowings = borrowings;
+            this.totalBorrows = totalBorrows;
+        }
+    }
+
+    private final ExecutorService executor;
+    private final Semaphore permits;
+    private final boolean virtualThreads;
+
+    public AsyncLibraryService(int maxConcurrency) {
+        if (maxConcurrency < 1) {
+            throw new IllegalArgumentException("maxConcurrency must be positive: " + maxConcurrency);
+        }
+        ExecutorService virtual = newVirtualThreadExecutor();
+        this.virtualThreads = virtual != null;
+        this.executor = virtual != null ? virtual : Executors.newFixedThreadPool(maxConcurrency, r -> {
+            Thread t = new Thread(r, "lexora-async");
+            t.setDaemon(true);
+            return t;
+        });
+        this.permits = new Semaphore(maxConcurrency, true);
+    }
+
+    public boolean usesVirtualThreads() {
+        return virtualThreads;
+    }
+
+    // --- Books ---
+    public CompletableFuture<BookService.Book> getBook(int bookId) {
+        return single(() -> BookService.getBookById(bookId), "Book " + bookId + " not found");
+    }
+
+    public CompletableFuture<List<BookService.Book>> searchBooks(String keyword) {
+        return list(() -> BookService.searchBooks(keyword));
+    }
+
+    public CompletableFuture<List<BookService.Book>> filterBooks(CatalogSnapshot.Filter filter) {
+        return list(() -> BookService.filterBooks(filter));
+    }
+
+    public CompletableFuture<Void> addBook(String isbn, String title, String author, String category, int publishedYear, int totalCopies) {
+        return write(() -> BookService.addBook(isbn, title, author, category, publishedYear, totalCopies), "Book was not added");
+    }
+
+    public CompletableFuture<Void> updateBook(int bookId, String title, String author, String category, int publishedYear, int totalCopies, String status) {
+        return write(() -> BookService.updateBook(bookId, title, author, category, publishedYear, totalCopies, status), "Book " + bookId + " was not updated");
+    }
+
+    public CompletableFuture<Void> deleteBook(int bookId) {
+        return write(() -> BookService.deleteBook(bookId), "Book " + bookId + " was not deleted");
+    }
+
+    public CompletableFuture<List<BookService.Book>> getBooksPage(int afterBookId, int pageSize) {
+        return list(() -> BookService.getBooksPage(afterBookId, pageSize));
+    }
+
+    // --- Members ---
+    public CompletableFuture<MemberService.Member> getMember(int memberId) {
+        return single(() -> MemberService.getMemberById(memberId), "Member " + memberId + " not found");
+    }
+
+    public CompletableFuture<List<MemberService.Member>> searchMembers(String keyword) {
+        return list(() -> MemberService.searchMembers(keyword));
+    }
+
+    public CompletableFuture<Void> addMember(String fullName, String email, String phone) {
+        return write(() -> MemberService.addMember(fullName, email, phone), "Member was not added");
+    }
+
+    public CompletableFuture<Void> updateMember(int memberId, String fullName, String email, String phone, String status) {
+        return write(() -> MemberService.updateMember(memberId, fullName, email, phone, status), "Member " + memberId + " was not updated");
+    }
+
+    public CompletableFuture<Void> deleteMember(int memberId) {
+        return write(() -> MemberService.deleteMember(memberId), "Member " + memberId + " was not deleted");
+    }
+
+    public CompletableFuture<Integer> getMemberTotalBorrows(int memberId) {
+        return submit(() -> {
+            int total = MemberService.getMemberTotalBorrows(memberId);
+            SQLException error = ServiceException.takeLast();
+            if (error != null) {
+                throw databaseError(error);
+            }
+            return total;
+        });
+    }
+
+    // Fetches the member, their borrowings and their borrow count concurrently.
+    public CompletableFuture<PatronProfile> getPatronProfile(int memberId) {
+        CompletableFuture<MemberService.Member> member = getMember(memberId);
+        CompletableFuture<List<BorrowingService.Borrowing>> borrowings = getBorrowingsByMember(memberId);
+        CompletableFuture<Integer> total = getMemberTotalBorrows(memberId);
+        return member.thenCombine(borrowings, (m, b) -> new PatronProfile(m, b, 0))
+                .thenCombine(total, (p, n) -> new PatronProfile(p.member, p.borrowings, n));
+    }
+
+    // --- Circulation ---
+    public CompletableFuture<List<BorrowingService.Borrowing>> getBorrowingsByMember(int memberId) {
+        return list(() -> BorrowingService.getBorrowingsByMember(memberId));
+    }
+
+    public CompletableFuture<List<BorrowingService.Borrowing>> getOverdueBorrowings() {
+        return list(BorrowingService::getOverdueBorrowings);
+    }
+
+    public CompletableFuture<List<BorrowingService.Borrowing>> getBorrowingsDueWithin(int days) {
+        return list(() -> BorrowingService.getBorrowingsDueWithin(days));
+    }
+
+    public CompletableFuture<Void> issueBook(int memberId, int bookId, Date dueDate) {
+        return write(() -> BorrowingService.issueBook(memberId, bookId, dueDate), "Book " + bookId + " could not be issued");
+    }
+
+    public CompletableFuture<Void> returnBook(int borrowId, double fineAmount) {
+        return write(() -> BorrowingService.returnBook(borrowId, fineAmount), "Borrowing " + borrowId + " could not be returned");
+    }
+
+    public CompletableFuture<List<BorrowingService.ItemResult>> issueBooks(int memberId, List<Integer> bookIds, Date dueDate) {
+        return list(() -> BorrowingService.issueBooks(memberId, bookIds, dueDate));
+    }
+
+    public CompletableFuture<List<BorrowingService.ItemResult>> returnBooks(List<Integer> borrowIds) {
+        return list(() -> BorrowingService.returnBooks(borrowIds));
+    }
+
+    // --- Holds ---
+    public CompletableFuture<HoldService.PlaceResult> placeHold(int memberId, int bookId) {
+        return submit(() -> {
+            HoldService.PlaceResult result = HoldService.placeHold(memberId, bookId);
+            SQLException error = ServiceException.takeLast();
+            if (result == HoldService.PlaceResult.FAILED && error != null) {
+                throw databaseError(error);
+            }
+            return result;
+        });
+    }
+
+    public CompletableFuture<Void> cancelHold(int memberId, int holdId) {
+        return write(() -> HoldService.cancelHold(memberId, holdId), "Hold " + holdId + " could not be cancelled");
+    }
+
+    public CompletableFuture<List<HoldService.Hold>> getHoldsByMember(int memberId) {
+        return list(() -> HoldService.getHoldsByMember(memberId));
+    }
+
+    // --- Reports ---
+    public CompletableFuture<InsightBoard.Report> getInsights(LocalDate from, LocalDate to, int topN) {
+        return submit(() -> {
+            InsightBoard.Report report = InsightBoard.report(from, to, topN);
+            if (report == null) {
+                throw new ServiceException(ServiceException.Kind.DATABASE_ERROR, "Circulation history could not be loaded");
+            }
+            return report;
+        });
+    }
+
+    // --- Auth ---
+    public CompletableFuture<AuthService.AuthResult> authenticate(String username, String password) {
+        return submit(() -> {
+            AuthService.AuthResult auth = AuthService.authenticate(username, password);
+            SQLException error = ServiceException.takeLast();
+            if (auth != null) {
+                return auth;
+            }
+            if (error != null) {
+                throw databaseError(error);
+            }
+            throw new ServiceException(ServiceException.Kind.AUTHENTICATION_FAILED, "Invalid credentials");
+        });
+    }
+
+    public void shutdown() {
+        executor.shutdown();
+        try {
+            executor.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // A null result is NOT_FOUND, unless the service recorded a database error.
+    private <T> CompletableFuture<T> single(Supplier<T> op, String notFoundMessage) {
+        return submit(() -> {
+            T result = op.get();
+            SQLException error = ServiceException.takeLast();
+            if (result != null) {
+                return result;
+            }
+            if (error != null) {
+                throw databaseError(error);
+            }
+            throw new ServiceException(ServiceException.Kind.NOT_FOUND, notFoundMessage);
+        });
+    }
+
+    // An empty list is only a failure when the service recorded a database error.
+    private <T> CompletableFuture<List<T>> list(Supplier<List<T>> op) {
+        return submit(() -> {
+            List<T> result = op.get();
+            SQLException error = ServiceException.takeLast();
+            if (result.isEmpty() && error != null) {
+                throw databaseError(error);
+            }
+            return result;
+        });
+    }
+
+    private CompletableFuture<Void> write(Supplier<Boolean> op, String rejectedMessage) {
+        return submit(() -> {
+            boolean ok = op.get();
+            SQLException error = ServiceException.takeLast();
+            if (ok) {
+                return null;
+            }
+            if (error != null) {
+                throw databaseError(error);
+            }
+            throw new ServiceException(ServiceException.Kind.REJECTED, rejectedMessage);
+        });
+    }
+
+    private <T> CompletableFuture<T> submit(Supplier<T> task) {
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                permits.acquire();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new ServiceException(ServiceException.Kind.OVERLOADED, "Interrupted while waiting for a free slot", e);
+            }
+            ServiceException.clear();
+            try {
+                return task.get();
+            } finally {
+                ServiceException.clear();
+                permits.release();
+            }
+        }, executor);
+    }
+
+    private static ServiceException databaseError(SQLException e) {
+        if (e instanceof DbUtil.UnavailableException) {
+            return new ServiceException(ServiceException.Kind.DATABASE_ERROR, e.getMessage(), ((DbUtil.UnavailableException) e).getRetryAfterMillis());
+        }
+        return new ServiceException(ServiceException.Kind.DATABASE_ERROR, e.getMessage(), e);
+    }
+
+    // Executors.newVirtualThreadPerTaskExecutor() on Java 21+, or null on older runtimes.
+    static ExecutorService newVirtualThreadExecutor() {
+        try {
+            Method factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (ExecutorService) factory.invoke(null);
+        } catch (ReflectiveOperationException e) {
+            return null;
+        }
+    }
+}
@@ -4,6 +4,8 @@ import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.util.Locale;
+import java.util.concurrent.RejectedExecutionException;
 
 public class AuthService {
     public static class AuthResult {
@@ -19,33 +21,56 @@ public class AuthService {
         }
     }
 
-    public static AuthResult authenticate(String username, String password) {
-        String sql = "SELECT user_id, username, password_hash, role_name, member_id " +
-                "FROM app_users " +
-                "WHERE UPPER(TRIM(username)) = UPPER(TRIM(?)) " +
-                "AND NVL(active, 'N') = 'Y'";
-
-        try (Connection conn = DbUtil.getConnection(); PreparedStatement ps = conn.prepareStatement(sql)) {
-            ps.setString(1, username);
-            try (ResultSet rs = ps.executeQuery()) {
-                boolean hasRow = rs.next();
-
-                if (hasRow) {
+    private static final OperationMetrics.Op AUTHENTICATE = OperationMetrics.register("AuthService.authenticate");
 
-                    String hash = rs.getString("password_hash");
+    public static AuthResult authenticate(String username, String password) {
+        long started = AUTHENTICATE.begin();
+        try {
+            if (username == null || password == null) {
+                return null;
+            }
+            // username_norm is a virtual column UPPER(TRIM(username)) with a unique index (sql/auth_sessions.sql),
+            // so normalizing here lets the lookup use that index.
+            String sql = "SELECT user_id, password_hash, role_name, member_id " +
+                    "FROM app_users " +
+                    "WHERE username_norm = ? " +
+                    "AND NVL(active, 'N') = 'Y'";
 
-                    if (PasswordUtil.verifyPassword(password, hash)) {
-                        System.out.println("Hello");
-                        int userId = rs.getInt("user_id");
-                        String role = rs.getString("role_name");
-                        Integer memberId = rs.getObject("member_id") != null ? rs.getInt("member_id") : null;
-                        return new AuthResult(userId, username, role, memberId);
+            String hash;
+            int userId;
+            String role;
+            Integer memberId;
+            try (Connection conn = DbUtil.getConnection(); PreparedStatement ps = conn.prepareStatement(sql)) {
+                ps.setString(1, normalizeUsername(username));
+                try (ResultSet rs = ps.executeQuery()) {
+                    if (!rs.next()) {
+                        return null;
                     }
+                    hash = rs.getString("password_hash");
+                    userId = rs.getInt("user_id");
+                    role = rs.getString("role_name");
+                    memberId = rs.getObject("member_id") != null ? rs.getInt("member_id") : null;
                 }
+            } catch (SQLException e) {
+                ServiceException.record(e);
+                System.err.println("Authentication error: " + e.getMessage());
+                return null;
             }
-        } catch (SQLException e) {
-            System.err.println("Authentication error: " + e.getMessage());
+
+            // Hash outside the connection so a burst of logins does not hold pooled connections while hashing.
+            boolean verified;
+            try {
+                verified = PasswordUtil.verifyOnWorkerPool(password, hash);
+            } catch (RejectedExecutionException e) {
+                throw new ServiceException(ServiceException.Kind.OVERLOADED, "Too many concurrent logins, try again", e);
+            }
+            return AUTHENTICATE.rows(verified ? new AuthResult(userId, username, role, memberId) : null);
+        } finally {
+            AUTHENTICATE.end(started);
         }
-        return null;
+    }
+
+    static String normalizeUsername(String username) {
+        return username.trim().toUpperCase(Locale.ROOT);
     }
 }
\ No newline at end of file
@@ -0,0 +1,82 @@
+package src;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+// Per-book contention counters for the books row: optimistic update retries and give-ups, guarded
+// checkout updates slow enough to have waited on another transaction's row lock, and checkouts
+// turned away in memory by CopyReservations. Only books that saw contention get an entry.
+public class BookContention {
+    public static class Counts {
+        public final int bookId;
+        public final long casRetries;
+        public final long casConflicts;
+        public final long slowRowUpdates;
+        public final long shedCheckouts;
+        public Counts(int bookId, long casRetries, long casConflicts, long slowRowUpdates, long shedCheckouts) {
+            this.bookId = bookId;
+            this.casRetries = casRetries;
+            this.casConflicts = casConflicts;
+            this.slowRowUpdates = slowRowUpdates;
+            this.shedCheckouts = shedCheckouts;
+        }
+
+        public long total() {
+            return casRetries + casConflicts + slowRowUpdates + shedCheckouts;
+        }
+
+        @Override
+        public String toString() {
+            return "Book ID " + bookId + ": casRetries=" + casRetries + ", casConflicts=" + casConflicts +
+                    ", slowRowUpdates=" + slowRowUpdates + ", shedCheckouts=" + shedCheckouts;
+        }
+    }
+
+    private static class Counters {
+        final LongAdder casRetries = new LongAdder();
+        final LongAdder casConflicts = new LongAdder();
+        final LongAdder slowRowUpdates = new LongAdder();
+        final LongAdder shedCheckouts = new LongAdder();
+    }
+
+    private static final long SLOW_ROW_UPDATE_NANOS = TimeUnit.MICROSECONDS.toNanos(Long.getLong("lexora.books.slowUpdateMicros", 5000L));
+    private static final Map<Integer, Counters> BY_BOOK = new ConcurrentHashMap<>();
+
+    static void casRetry(int bookId) {
+        counters(bookId).casRetries.increment();
+    }
+
+    static void casConflict(int bookId) {
+        counters(bookId).casConflicts.increment();
+    }
+
+    // Records how long a guarded counter update on the book row took.
+    static void rowUpdate(int bookId, long nanos) {
+        if (nanos >= SLOW_ROW_UPDATE_NANOS) {
+            counters(bookId).slowRowUpdates.increment();
+        }
+    }
+
+    static void shed(int bookId) {
+        counters(bookId).shedCheckouts.increment();
+    }
+
+    // The n most contended books, most contended first.
+    public static List<Counts> top(int n) {
+        List<Counts> all = new ArrayList<>();
+        for (Map.Entry<Integer, Counters> e : BY_BOOK.entrySet()) {
+            Counters c = e.getValue();
+            all.add(new Counts(e.getKey(), c.casRetries.sum(), c.casConflicts.sum(), c.slowRowUpdates.sum(), c.shedCheckouts.sum()));
+        }
+        all.sort((a, b) -> Long.compare(b.total(), a.total()));
+        return all.size() > n ? new ArrayList<>(all.subList(0, n)) : all;
+    }
+
+    private static Counters counters(int bookId) {
+        return BY_BOOK.computeIfAbsent(bookId, id -> new Counters());
+    }
+}
\ No newline at end of file
@@ -0,0 +1,189 @@
+package src;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+// In-memory inverted index over book title, author, category and ISBN.
+// Queries are AND-ed terms, each matching whole tokens or token prefixes.
+// Postings hold book ids only; the rows themselves live in the catalog snapshot, which the index keeps
+// in step: put, remove and clear update both, so there is one copy of each book.
+public class BookSearchIndex {
+    private static final int TITLE_WEIGHT = 4;
+    private static final int AUTHOR_WEIGHT = 3;
+    private static final int CATEGORY_WEIGHT = 2;
+    private static final int ISBN_WEIGHT = 5;
+    private static final int EXACT_MATCH_FACTOR = 2;
+
+    private static final Comparator<BookService.Book> BY_TITLE = (a, b) -> {
+        int c = String.CASE_INSENSITIVE_ORDER.compare(nullToEmpty(a.title), nullToEmpty(b.title));
+        return c != 0 ? c : Integer.compare(a.bookId, b.bookId);
+    };
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    // token -> (bookId -> field weight)
+    private final NavigableMap<String, Map<Integer, Integer>> postings = new TreeMap<>();
+    private final CatalogSnapshot catalog;
+
+    public BookSearchIndex(CatalogSnapshot catalog) {
+        this.catalog = catalog;
+    }
+
+    public void put(BookService.Book book) {
+        lock.writeLock().lock();
+        try {
+            BookService.Book previous = catalog.get(book.bookId);
+            if (previous != null) {
+                unindex(previous);
+            }
+            catalog.put(book);
+            for (Map.Entry<String, Integer> e : weighTokens(book).entrySet()) {
+                postings.computeIfAbsent(e.getKey(), k -> new HashMap<>()).put(book.bookId, e.getValue());
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(int bookId) {
+        lock.writeLock().lock();
+        try {
+            BookService.Book previous = catalog.get(bookId);
+            if (previous != null) {
+                unindex(previous);
+                catalog.remove(bookId);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void clear() {
+        lock.writeLock().lock();
+        try {
+            postings.clear();
+            catalog.clear();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Returns books matching every term, best score first and then by title.
+    public List<BookService.Book> search(String query) {
+        List<String> terms = tokenize(query);
+        lock.readLock().lock();
+        try {
+            if (terms.isEmpty()) {
+                List<BookService.Book> all = catalog.toBooks();
+                all.sort(BY_TITLE);
+                return all;
+            }
+            Map<Integer, Integer> scores = null;
+            for (String term : new LinkedHashSet<>(terms)) {
+                Map<Integer, Integer> termScores = scoreTerm(term);
+                if (scores == null) {
+                    scores = termScores;
+                } else {
+                    Map<Integer, Integer> small = scores.size() <= termScores.size() ? scores : termScores;
+                    Map<Integer, Integer> large = small == scores ? termScores : scores;
+                    Map<Integer, Integer> merged = new HashMap<>();
+                    for (Map.Entry<Integer, Integer> e : small.entrySet()) {
+                        Integer other = large.get(e.getKey());
+                        if (other != null) {
+                            merged.put(e.getKey(), e.getValue() + other);
+                        }
+                    }
+                    scores = merged;
+                }
+                if (scores.isEmpty()) {
+                    return Collections.emptyList();
+                }
+            }
+            final Map<Integer, Integer> ranked = scores;
+            List<BookService.Book> result = catalog.getAll(ranked.keySet());
+            result.sort(Comparator.<BookService.Book>comparingInt(b -> -ranked.get(b.bookId)).thenComparing(BY_TITLE));
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private Map<Integer, Integer> scoreTerm(String term) {
+        Map<Integer, Integer> scores = new HashMap<>();
+        for (Map.Entry<String, Map<Integer, Integer>> entry : postings.subMap(term, true, term + Character.MAX_VALUE, false).entrySet()) {
+            int factor = entry.getKey().equals(term) ? EXACT_MATCH_FACTOR : 1;
+            for (Map.Entry<Integer, Integer> p : entry.getValue().entrySet()) {
+                scores.merge(p.getKey(), p.getValue() * factor, Math::max);
+            }
+        }
+        return scores;
+    }
+
+    private void unindex(BookService.Book book) {
+        for (String token : weighTokens(book).keySet()) {
+            Map<Integer, Integer> ids = postings.get(token);
+            if (ids != null) {
+                ids.remove(book.bookId);
+                if (ids.isEmpty()) {
+                    postings.remove(token);
+                }
+            }
+        }
+    }
+
+    private static Map<String, Integer> weighTokens(BookService.Book book) {
+        Map<String, Integer> weights = new HashMap<>();
+        addField(weights, book.title, TITLE_WEIGHT);
+        addField(weights, book.author, AUTHOR_WEIGHT);
+        addField(weights, book.category, CATEGORY_WEIGHT);
+        addField(weights, book.isbn, ISBN_WEIGHT);
+        if (book.isbn != null) {
+            // Also index the ISBN without separators so "97801311" finds "978-0-13-110362-7".
+            String compact = String.join("", tokenize(book.isbn));
+            if (!compact.isEmpty()) {
+                weights.merge(compact, ISBN_WEIGHT, Integer::sum);
+            }
+        }
+        return weights;
+    }
+
+    private static void addField(Map<String, Integer> weights, String text, int weight) {
+        Set<String> seen = new LinkedHashSet<>(tokenize(text));
+        for (String token : seen) {
+            weights.merge(token, weight, Integer::sum);
+        }
+    }
+
+    static List<String> tokenize(String text) {
+        List<String> tokens = new ArrayList<>();
+        if (text == null) {
+            return tokens;
+        }
+        StringBuilder current = new StringBuilder();
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (Character.isLetterOrDigit(c)) {
+                current.append(Character.toLowerCase(c));
+            } else if (current.length() > 0) {
+                tokens.add(current.toString());
+                current.setLength(0);
+            }
+        }
+        if (current.length() > 0) {
+            tokens.add(current.toString());
+        }
+        return tokens;
+    }
+
+    private static String nullToEmpty(String s) {
+        return s == null ? "" : s;
+    }
+}
@@ -2,7 +2,16 @@ package src;
 
 import java.sql.*;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.stream.Stream;
 
 public class BookService {
     public static class Book {
@@ -30,52 +39,206 @@ public class BookService {
         }
     }
 
+    // Columnar copy of the catalog: the only in-memory copy of the rows, used for listings, filters and
+    // search results. Written only through SEARCH_INDEX, whose postings refer to it by book id.
+    private static final CatalogSnapshot CATALOG = new CatalogSnapshot();
+    private static final BookSearchIndex SEARCH_INDEX = new BookSearchIndex(CATALOG);
+    private static volatile boolean catalogLoaded = false;
+    // The index and snapshot hold a complete earlier load, possibly outdated. While the database is
+    // unreachable that copy is served instead of nothing.
+    private static volatile boolean catalogFilled = false;
+    // Books written while a load runs; the load may have read them before the write, so it re-reads
+    // them before it marks the catalog loaded. Changed only while holding CATALOG_DIRTY.
+    private static final Set<Integer> CATALOG_DIRTY = new HashSet<>();
+    private static volatile boolean catalogLoading = false;
+    private static final ReadThroughCache<Integer, Book> BOOK_CACHE = new ReadThroughCache<>(
+            Integer.getInteger("lexora.bookCache.maxSize", 1000),
+            Long.getLong("lexora.bookCache.ttlMs", 60000L),
+            ReadThroughCache.Policy.valueOf(System.getProperty("lexora.bookCache.policy", "LRU")),
+            BookService::loadBookById);
+    // Books per author, keyed by the upper-cased author name. maxSize 0 disables caching.
+    private static final ReadThroughCache<String, Integer> AUTHOR_COUNT_CACHE = new ReadThroughCache<>(
+            Integer.getInteger("lexora.statsCache.maxSize", 10000),
+            Long.getLong("lexora.statsCache.ttlMs", 300000L),
+            ReadThroughCache.Policy.LRU,
+            BookService::loadAuthorCount);
+    // Optimistic book updates: attempts after the first, and the base of the exponential backoff between them.
+    private static final int CAS_RETRIES = Integer.getInteger("lexora.books.casRetries", 5);
+    private static final long CAS_BACKOFF_MS = Long.getLong("lexora.books.casBackoffMs", 2L);
+    // Keys per statement in the bulk stat queries; stays well under Oracle's 1000-element IN-list limit.
+    static final int STATS_CHUNK_SIZE = 500;
+
+    static {
+        // Changes made by other nodes during an outage were missed.
+        DbUtil.afterReconnect(BookService::resetCatalog);
+    }
+
+    private static final OperationMetrics.Op ADD_BOOK = OperationMetrics.register("BookService.addBook");
+    private static final OperationMetrics.Op UPDATE_BOOK = OperationMetrics.register("BookService.updateBook");
+    private static final OperationMetrics.Op DELETE_BOOK = OperationMetrics.register("BookService.deleteBook");
+    private static final OperationMetrics.Op SEARCH_BOOKS = OperationMetrics.register("BookService.searchBooks");
+    private static final OperationMetrics.Op COUNT_BOOKS_BY_AUTHOR = OperationMetrics.register("BookService.countBooksByAuthor");
+    private static final OperationMetrics.Op COUNT_BOOKS_BY_AUTHORS = OperationMetrics.register("BookService.countBooksByAuthors");
+    private static final OperationMetrics.Op GET_BOOK_BY_ID = OperationMetrics.register("BookService.getBookById");
+    private static final OperationMetrics.Op GET_ALL_BOOKS = OperationMetrics.register("BookService.getAllBooks");
+    private static final OperationMetrics.Op FILTER_BOOKS = OperationMetrics.register("BookService.filterBooks");
+    private static final OperationMetrics.Op GET_BOOKS_PAGE = OperationMetrics.register("BookService.getBooksPage");
+
     public static boolean addBook(String isbn, String title, String author, String category, int publishedYear, int totalCopies) {
-        String sql = "INSERT INTO books (isbn, title, author, category, published_year, total_copies, available_copies, status) VALUES (?, ?, ?, ?, ?, ?, ?, 'AVAILABLE')";
-        try (Connection conn = DbUtil.getConnection(); PreparedStatement ps = conn.prepareStatement(sql)) {
-            ps.setString(1, isbn);
-            ps.setString(2, title);
-            ps.setString(3, author);
-            ps.setString(4, category);
-            ps.setInt(5, publishedYear);
-            ps.setInt(6, totalCopies);
-            ps.setInt(7, totalCopies);
-            return ps.executeUpdate() > 0;
-        } catch (SQLException e) {
-            System.err.println("Add book error: " + e.getMessage());
-            return false;
+        long started = ADD_BOOK.begin();
+        try {
+            String sql = "INSERT INTO books (isbn, title, author, category, published_year, total_copies, available_copies, status) VALUES (?, ?, ?, ?, ?, ?, ?, 'AVAILABLE')";
+            try (Connection conn = DbUtil.getConnection(); PreparedStatement ps = conn.prepareStatement(sql, new String[] {"book_id"})) {
+                ps.setString(1, isbn);
+                ps.setString(2, title);
+                ps.setString(3, author);
+                ps.setString(4, category);
+                ps.setInt(5, publishedYear);
+                ps.setInt(6, totalCopies);
+                ps.setInt(7, totalCopies);
+                if (ps.executeUpdate() == 0) {
+                    return false;
+                }
+                try (ResultSet keys = ps.getGeneratedKeys()) {
+                    if (keys.next()) {
+                        Book book = new Book(keys.getInt(1), isbn, title, author, category, publishedYear, totalCopies, totalCopies, 0, "AVAILABLE");
+                        indexWritten(book.bookId, book);
+                        CirculationJournal.adjusted(book.bookId, totalCopies);
+                        CacheBus.publish(CacheBus.Entity.BOOK, book.bookId);
+                    } else {
+                        invalidateCatalog();
+                        CacheBus.publish(CacheBus.Entity.CATALOG, 0);
+                    }
+                }
+                if (author != null) {
+                    AUTHOR_COUNT_CACHE.invalidate(authorKey(author));
+                }
+                CacheBus.publish(CacheBus.Entity.AUTHORS, 0);
+                return true;
+            } catch (SQLException e) {
+                ServiceException.record(e);
+                System.err.println("Add book error: " + e.getMessage());
+                return false;
+            }
+        } finally {
+            ADD_BOOK.end(started);
         }
     }
 
+    // Optimistic read-modify-write: reads the row's version and circulation counters without locking,
+    // then writes the new metadata and recomputed available_copies only if the version is unchanged.
+    // A checkout or return in between bumps the version, and the update backs off and tries again.
     public static boolean updateBook(int bookId, String title, String author, String category, int publishedYear, int totalCopies, String status) {
-        String sql = "UPDATE books SET title=?, author=?, category=?, published_year=?, total_copies=?, status=? WHERE book_id=?";
-        try (Connection conn = DbUtil.getConnection(); PreparedStatement ps = conn.prepareStatement(sql)) {
-            ps.setString(1, title);
-            ps.setString(2, author);
-            ps.setString(3, category);
-            ps.setInt(4, publishedYear);
-            ps.setInt(5, totalCopies);
-            ps.setString(6, status);
-            ps.setInt(7, bookId);
-            return ps.executeUpdate() > 0;
-        } catch (SQLException e) {
-            System.err.println("Update book error: " + e.getMessage());
+        long started = UPDATE_BOOK.begin();
+        try {
+            String readSql = "SELECT version, borrowed_copies, held_copies FROM books WHERE book_id=?";
+            String sql = "UPDATE books SET title=?, author=?, category=?, published_year=?, total_copies=?, available_copies=?, status=?, version=version+1 WHERE book_id=? AND version=?";
+            boolean updated = false;
+            try (Connection conn = DbUtil.getConnection();
+                 PreparedStatement read = conn.prepareStatement(readSql);
+                 PreparedStatement ps = conn.prepareStatement(sql)) {
+                for (int attempt = 0; !updated; attempt++) {
+                    long version;
+                    int outstanding;
+                    read.setInt(1, bookId);
+                    try (ResultSet rs = read.executeQuery()) {
+                        if (!rs.next()) {
+                            return false;
+                        }
+                        version = rs.getLong("version");
+                        outstanding = rs.getInt("borrowed_copies") + rs.getInt("held_copies");
+                    }
+                    ps.setString(1, title);
+                    ps.setString(2, author);
+                    ps.setString(3, category);
+                    ps.setInt(4, publishedYear);
+                    ps.setInt(5, totalCopies);
+                    ps.setInt(6, Math.max(0, totalCopies - outstanding));
+                    ps.setString(7, status);
+                    ps.setInt(8, bookId);
+                    ps.setLong(9, version);
+                    updated = ps.executeUpdate() > 0;
+                    if (!updated) {
+                        if (attempt == CAS_RETRIES) {
+                            BookContention.casConflict(bookId);
+                            System.err.println("Update book error: book " + bookId + " kept changing, gave up after " + (attempt + 1) + " attempts");
+                            return false;
+                        }
+                        BookContention.casRetry(bookId);
+                        if (!backOff(attempt)) {
+                            return false;
+                        }
+                    }
+                }
+            } catch (SQLException e) {
+                ServiceException.record(e);
+                System.err.println("Update book error: " + e.getMessage());
+                return false;
+            }
+            // The previous author is not known here, so every author count may be stale.
+            AUTHOR_COUNT_CACHE.invalidateAll();
+            CacheBus.publish(CacheBus.Entity.AUTHORS, 0);
+            bookChanged(bookId);
+            CirculationJournal.adjusted(bookId, totalCopies);
+            return true;
+        } finally {
+            UPDATE_BOOK.end(started);
+        }
+    }
+
+    // Sleeps a random time up to CAS_BACKOFF_MS * 2^attempt (full jitter). False if interrupted.
+    private static boolean backOff(int attempt) {
+        long cap = CAS_BACKOFF_MS << Math.min(attempt, 10);
+        try {
+            Thread.sleep(ThreadLocalRandom.current().nextLong(cap + 1));
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
             return false;
         }
     }
 
     public static boolean deleteBook(int bookId) {
-        String sql = "DELETE FROM books WHERE book_id=?";
-        try (Connection conn = DbUtil.getConnection(); PreparedStatement ps = conn.prepareStatement(sql)) {
-            ps.setInt(1, bookId);
-            return ps.executeUpdate() > 0;
-        } catch (SQLException e) {
-            System.err.println("Delete book error: " + e.getMessage());
-            return false;
+        long started = DELETE_BOOK.begin();
+        try {
+            String sql = "DELETE FROM books WHERE book_id=?";
+            try (Connection conn = DbUtil.getConnection(); PreparedStatement ps = conn.prepareStatement(sql)) {
+                ps.setInt(1, bookId);
+                boolean deleted = ps.executeUpdate() > 0;
+                if (deleted) {
+                    AUTHOR_COUNT_CACHE.invalidateAll();
+                    CopyReservations.forget(bookId);
+                    BOOK_CACHE.invalidate(bookId);
+                    indexWritten(bookId, null);
+                    CirculationJournal.adjusted(bookId, 0);
+                    CacheBus.publish(CacheBus.Entity.BOOK, bookId);
+                    CacheBus.publish(CacheBus.Entity.AUTHORS, 0);
+                }
+                return deleted;
+            } catch (SQLException e) {
+                ServiceException.record(e);
+                System.err.println("Delete book error: " + e.getMessage());
+                return false;
+            }
+        } finally {
+            DELETE_BOOK.end(started);
         }
     }
 
+    // Served from the in-memory index; falls back to a LIKE scan if the index cannot be loaded.
     public static List<Book> searchBooks(String keyword) {
+        long started = SEARCH_BOOKS.begin();
+        try {
+            if (ensureCatalogLoaded()) {
+                return SEARCH_BOOKS.rows(SEARCH_INDEX.search(keyword));
+            }
+            return SEARCH_BOOKS.rows(searchBooksInDatabase(keyword));
+        } finally {
+            SEARCH_BOOKS.end(started);
+        }
+    }
+
+    private static List<Book> searchBooksInDatabase(String keyword) {
         List<Book> books = new ArrayList<>();
         String sql = "SELECT * FROM books WHERE LOWER(title) LIKE ? OR LOWER(author) LIKE ? OR LOWER(category) LIKE ? ORDER BY title";
         try (Connection conn = DbUtil.getConnection(); PreparedStatement ps = conn.prepareStatement(sql)) {
@@ -94,95 +257,473 @@ public class BookService {
                         rs.getInt("published_year"),
                         rs.getInt("total_copies"),
                         rs.getInt("available_copies"),
-                        0,
+                        rs.getInt("borrowed_copies"),
                         rs.getString("status")
                     ));
                 }
             }
         } catch (SQLException e) {
+            ServiceException.record(e);
             System.err.println("Search books error: " + e.getMessage());
         }
         return books;
     }
 
-    // Count books by author using PL/SQL function
+    // Count books by author using PL/SQL function; repeated lookups are served from the stats cache.
     public static int countBooksByAuthor(String author) {
-        String sql = "SELECT fn_count_books_by_author(?) FROM dual";
-        try (Connection conn = DbUtil.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(sql)) {
-            stmt.setString(1, author);
-            ResultSet rs = stmt.executeQuery();
-            if (rs.next()) {
-                return rs.getInt(1);
+        long started = COUNT_BOOKS_BY_AUTHOR.begin();
+        try {
+            if (author == null) {
+                return 0;
             }
+            Integer count = AUTHOR_COUNT_CACHE.get(authorKey(author));
+            return count != null ? count : 0;
         } catch (SQLException e) {
+            ServiceException.record(e);
             System.err.println("Error counting books by author: " + e.getMessage());
+            return 0;
+        } finally {
+            COUNT_BOOKS_BY_AUTHOR.end(started);
         }
-        return 0;
+    }
+
+    // Books per author for many authors at once, matched case-insensitively like fn_count_books_by_author.
+    // Cache misses are counted with one set-based query per STATS_CHUNK_SIZE authors. The result has an
+    // entry (possibly 0) for every non-null author passed in, or is empty if the database call failed.
+    public static Map<String, Integer> countBooksByAuthors(Collection<String> authors) {
+        long started = COUNT_BOOKS_BY_AUTHORS.begin();
+        try {
+            Map<String, Integer> counts = new HashMap<>();
+            Map<String, Integer> byKey;
+            try {
+                Collection<String> keys = new LinkedHashSet<>();
+                for (String author : authors) {
+                    if (author != null) {
+                        keys.add(authorKey(author));
+                    }
+                }
+                byKey = AUTHOR_COUNT_CACHE.getAll(keys, BookService::loadAuthorCounts);
+            } catch (SQLException e) {
+                ServiceException.record(e);
+                System.err.println("Error counting books by authors: " + e.getMessage());
+                return counts;
+            }
+            for (String author : authors) {
+                if (author != null) {
+                    counts.put(author, byKey.getOrDefault(authorKey(author), 0));
+                }
+            }
+            COUNT_BOOKS_BY_AUTHORS.rows(counts.keySet());
+            return counts;
+        } finally {
+            COUNT_BOOKS_BY_AUTHORS.end(started);
+        }
+    }
+
+    public static ReadThroughCache.CacheStats getAuthorCountCacheStats() {
+        return AUTHOR_COUNT_CACHE.getStats();
+    }
+
+    private static String authorKey(String author) {
+        return author.toUpperCase(Locale.ROOT);
+    }
+
+    private static Integer loadAuthorCount(String key) throws SQLException {
+        String sql = "SELECT fn_count_books_by_author(?) FROM dual";
+        try (Connection conn = DbUtil.getConnection(); PreparedStatement stmt = conn.prepareStatement(sql)) {
+            stmt.setString(1, key);
+            try (ResultSet rs = stmt.executeQuery()) {
+                return rs.next() ? rs.getInt(1) : 0;
+            }
+        }
+    }
+
+    // One LEFT JOIN against an inline list of the requested keys per chunk, so authors without books come back as 0.
+    private static Map<String, Integer> loadAuthorCounts(Collection<String> keys) throws SQLException {
+        Map<String, Integer> counts = new HashMap<>();
+        List<String> pending = new ArrayList<>(keys);
+        try (Connection conn = DbUtil.getConnection()) {
+            for (int from = 0; from < pending.size(); from += STATS_CHUNK_SIZE) {
+                List<String> chunk = pending.subList(from, Math.min(pending.size(), from + STATS_CHUNK_SIZE));
+                StringBuilder sql = new StringBuilder("SELECT k.author_key, COUNT(b.book_id) FROM (");
+                for (int i = 0; i < chunk.size(); i++) {
+                    sql.append(i == 0 ? "SELECT ? AS author_key FROM dual" : " UNION ALL SELECT ? FROM dual");
+                }
+                sql.append(") k LEFT JOIN books b ON UPPER(b.author) = UPPER(k.author_key) GROUP BY k.author_key");
+                try (PreparedStatement ps = conn.prepareStatement(sql.toString())) {
+                    for (int i = 0; i < chunk.size(); i++) {
+                        ps.setString(i + 1, chunk.get(i));
+                    }
+                    try (ResultSet rs = ps.executeQuery()) {
+                        while (rs.next()) {
+                            counts.put(rs.getString(1), rs.getInt(2));
+                        }
+                    }
+                }
+                for (String key : chunk) {
+                    counts.putIfAbsent(key, 0);
+                }
+            }
+        }
+        return counts;
     }
 
     public static Book getBookById(int bookId) {
+        long started = GET_BOOK_BY_ID.begin();
+        try {
+            return GET_BOOK_BY_ID.rows(BOOK_CACHE.get(bookId));
+        } catch (SQLException e) {
+            if (catalogFilled && DbUtil.isDegraded()) {
+                return GET_BOOK_BY_ID.rows(CATALOG.get(bookId));
+            }
+            ServiceException.record(e);
+            System.err.println("Get book error: " + e.getMessage());
+            return null;
+        } finally {
+            GET_BOOK_BY_ID.end(started);
+        }
+    }
+
+    public static ReadThroughCache.CacheStats getBookCacheStats() {
+        return BOOK_CACHE.getStats();
+    }
+
+    private static Book loadBookById(int bookId) throws SQLException {
         String sql = "SELECT * FROM books WHERE book_id=?";
         try (Connection conn = DbUtil.getConnection(); PreparedStatement ps = conn.prepareStatement(sql)) {
             ps.setInt(1, bookId);
             try (ResultSet rs = ps.executeQuery()) {
                 if (rs.next()) {
-                    return new Book(
-                        rs.getInt("book_id"),
-                        rs.getString("isbn"),
-                        rs.getString("title"),
-                        rs.getString("author"),
-                        rs.getString("category"),
-                        rs.getInt("published_year"),
-                        rs.getInt("total_copies"),
-                        rs.getInt("available_copies"),
-                        0,
-                        rs.getString("status")
-                    );
+                    return readBook(rs);
                 }
             }
-        } catch (SQLException e) {
-            System.err.println("Get book error: " + e.getMessage());
         }
         return null;
     }
 
+    // Served from the columnar snapshot; falls back to a full table read if it cannot be loaded.
     public static List<Book> getAllBooks() {
-        List<Book> books = new ArrayList<>();
-        String sql = "SELECT book_id, isbn, title, author, category, published_year, total_copies, available_copies, status FROM books";
-        String borrowedSql = "SELECT book_id, COUNT(*) AS borrowed_count FROM borrowings WHERE return_date IS NULL GROUP BY book_id";
-        java.util.Map<Integer, Integer> borrowedMap = new java.util.HashMap<>();
-        try (Connection conn = DbUtil.getConnection();
-             PreparedStatement psBorrowed = conn.prepareStatement(borrowedSql);
-             ResultSet rsBorrowed = psBorrowed.executeQuery()) {
-            while (rsBorrowed.next()) {
-                borrowedMap.put(rsBorrowed.getInt("book_id"), rsBorrowed.getInt("borrowed_count"));
+        long started = GET_ALL_BOOKS.begin();
+        try {
+            if (ensureCatalogLoaded()) {
+                return GET_ALL_BOOKS.rows(CATALOG.toBooks());
             }
-        } catch (SQLException e) {
-            System.err.println("Fetch borrowed books error: " + e.getMessage());
-        }
-        try (Connection conn = DbUtil.getConnection();
-             PreparedStatement ps = conn.prepareStatement(sql);
-             ResultSet rs = ps.executeQuery()) {
-            while (rs.next()) {
-                int bookId = rs.getInt("book_id");
-                int borrowedCopies = borrowedMap.getOrDefault(bookId, 0);
-                books.add(new Book(
-                    bookId,
-                    rs.getString("isbn"),
-                    rs.getString("title"),
-                    rs.getString("author"),
-                    rs.getString("category"),
-                    rs.getInt("published_year"),
-                    rs.getInt("total_copies"),
-                    rs.getInt("available_copies"),
-                    borrowedCopies,
-                    rs.getString("status")
-                ));
+            List<Book> books = new ArrayList<>();
+            String sql = "SELECT book_id, isbn, title, author, category, published_year, total_copies, available_copies, borrowed_copies, status FROM books";
+            try (Connection conn = DbUtil.getConnection();
+                 PreparedStatement ps = conn.prepareStatement(sql)) {
+                ps.setFetchSize(DbUtil.FETCH_SIZE);
+                try (ResultSet rs = ps.executeQuery()) {
+                    while (rs.next()) {
+                        books.add(new Book(
+                            rs.getInt("book_id"),
+                            rs.getString("isbn"),
+                            rs.getString("title"),
+                            rs.getString("author"),
+                            rs.getString("category"),
+                            rs.getInt("published_year"),
+                            rs.getInt("total_copies"),
+                            rs.getInt("available_copies"),
+                            rs.getInt("borrowed_copies"),
+                            rs.getString("status")
+                        ));
+                    }
+                }
+            } catch (SQLException e) {
+                ServiceException.record(e);
+                System.err.println("Fetch all books error: " + e.getMessage());
             }
-        } catch (SQLException e) {
-            System.err.println("Fetch all books error: " + e.getMessage());
+            return GET_ALL_BOOKS.rows(books);
+        } finally {
+            GET_ALL_BOOKS.end(started);
         }
-        return books;
+    }
+
+    // Full-catalog filter evaluated against the in-memory snapshot.
+    public static List<Book> filterBooks(CatalogSnapshot.Filter filter) {
+        long started = FILTER_BOOKS.begin();
+        try {
+            if (ensureCatalogLoaded()) {
+                return FILTER_BOOKS.rows(CATALOG.filter(filter));
+            }
+            return FILTER_BOOKS.rows(new ArrayList<>());
+        } finally {
+            FILTER_BOOKS.end(started);
+        }
+    }
+
+    // The loaded snapshot for in-process analytics, or null if the catalog cannot be loaded.
+    static CatalogSnapshot catalogSnapshot() {
+        return ensureCatalogLoaded() ? CATALOG : null;
+    }
+
+    public static String getCatalogSummary() {
+        if (!catalogFilled) {
+            return "not loaded";
+        }
+        return catalogLoaded && !DbUtil.isDegraded() ? CATALOG.toString() : CATALOG + " (stale)";
+    }
+
+    // Called after any write to a book row: refreshes this node's copies and tells the other nodes.
+    static void bookChanged(int bookId) {
+        refreshBook(bookId);
+        CacheBus.publish(CacheBus.Entity.BOOK, bookId);
+    }
+
+    // Drops the cached copy and refreshes the search index, snapshot and reservation count.
+    private static void refreshBook(int bookId) {
+        BOOK_CACHE.invalidate(bookId);
+        if (!catalogLoaded && !catalogLoading && !CopyReservations.isEnabled()) {
+            return;
+        }
+        if (DbUtil.isDegraded()) {
+            // The row cannot be re-read; everything is reloaded once the database is back.
+            return;
+        }
+        Book book = getBookById(bookId);
+        if (book != null) {
+            CopyReservations.refresh(bookId, book.availableCopies);
+        } else {
+            CopyReservations.forget(bookId);
+        }
+        indexWritten(bookId, book);
+    }
+
+    // Puts a row that was just written or re-read (null once deleted) into the index and snapshot. While
+    // a load runs, the id is left to it instead, since it may have read the row before the write.
+    private static void indexWritten(int bookId, Book book) {
+        if (!catalogLoaded) {
+            synchronized (CATALOG_DIRTY) {
+                if (catalogLoading) {
+                    CATALOG_DIRTY.add(bookId);
+                    return;
+                }
+            }
+            // A load that finished meanwhile no longer re-reads the book, so it is applied here.
+            if (!catalogLoaded) {
+                return;
+            }
+        }
+        if (book != null) {
+            SEARCH_INDEX.put(book);
+        } else {
+            SEARCH_INDEX.remove(bookId);
+        }
+    }
+
+    static void invalidateCatalog() {
+        catalogLoaded = false;
+    }
+
+    // Called after bulk writes that touch many rows: drops all cached books and reloads the index and snapshot on next use.
+    static void catalogChanged() {
+        resetCatalog();
+        CacheBus.publish(CacheBus.Entity.CATALOG, 0);
+    }
+
+    private static void resetCatalog() {
+        BOOK_CACHE.invalidateAll();
+        AUTHOR_COUNT_CACHE.invalidateAll();
+        CopyReservations.clear();
+        invalidateCatalog();
+    }
+
+    // Applies a change another node announced on the cache bus.
+    static void onRemoteChange(CacheBus.Entity entity, int id) {
+        switch (entity) {
+            case BOOK:
+                refreshBook(id);
+                break;
+            case AUTHORS:
+                AUTHOR_COUNT_CACHE.invalidateAll();
+                break;
+            case CATALOG:
+                resetCatalog();
+                break;
+            default:
+                break;
+        }
+    }
+
+    // One keyset page of books with book_id > afterBookId, in book_id order.
+    public static List<Book> getBooksPage(int afterBookId, int pageSize) {
+        long started = GET_BOOKS_PAGE.begin();
+        try {
+            List<Book> books = new ArrayList<>();
+            String sql = "SELECT book_id, isbn, title, author, category, published_year, total_copies, available_copies, borrowed_copies, status " +
+                    "FROM books WHERE book_id > ? ORDER BY book_id FETCH FIRST ? ROWS ONLY";
+            try (Connection conn = DbUtil.getConnection(); PreparedStatement ps = conn.prepareStatement(sql)) {
+                ps.setInt(1, afterBookId);
+                ps.setInt(2, pageSize);
+                ps.setFetchSize(Math.min(pageSize, DbUtil.FETCH_SIZE));
+                try (ResultSet rs = ps.executeQuery()) {
+                    while (rs.next()) {
+                        books.add(readBook(rs));
+                    }
+                }
+            } catch (SQLException e) {
+                if (catalogFilled && DbUtil.isDegraded()) {
+                    return GET_BOOKS_PAGE.rows(CATALOG.page(afterBookId, pageSize));
+                }
+                ServiceException.record(e);
+                System.err.println("Fetch books page error: " + e.getMessage());
+            }
+            return GET_BOOKS_PAGE.rows(books);
+        } finally {
+            GET_BOOKS_PAGE.end(started);
+        }
+    }
+
+    // Lazily streams the whole catalog page by page; memory stays bounded by the page size.
+    // A page that cannot be read throws ServiceException (DATABASE_ERROR) from the stream.
+    public static Stream<Book> streamAllBooks(int pageSize) {
+        return KeysetCursor.stream(BookService::getBooksPage, b -> b.bookId, pageSize);
+    }
+
+    // True if the index and snapshot can be used: freshly loaded, or the last copy while the database is unreachable.
+    private static boolean ensureCatalogLoaded() {
+        if (catalogLoaded || (catalogFilled && DbUtil.isDegraded())) {
+            return true;
+        }
+        synchronized (SEARCH_INDEX) {
+            if (catalogLoaded) {
+                return true;
+            }
+            // book_id order lets the snapshot append every row.
+            String sql = "SELECT book_id, isbn, title, author, category, published_year, total_copies, available_copies, borrowed_copies, status FROM books ORDER BY book_id";
+            startCatalogLoad();
+            try (Connection conn = DbUtil.getConnection();
+                 PreparedStatement ps = conn.prepareStatement(sql)) {
+                ps.setFetchSize(DbUtil.FETCH_SIZE);
+                try (ResultSet rs = ps.executeQuery()) {
+                    // Cleared only once the query runs, so a reload that cannot reach the database keeps the last copy.
+                    catalogFilled = false;
+                    SEARCH_INDEX.clear();
+                    while (rs.next()) {
+                        Book book = readBook(rs);
+                        SEARCH_INDEX.put(book);
+                    }
+                }
+                finishCatalogLoad(conn);
+            } catch (SQLException e) {
+                DbUtil.noteError(e);
+                System.err.println("Load catalog error: " + e.getMessage());
+            } finally {
+                endCatalogLoad();
+            }
+            return catalogLoaded || (catalogFilled && DbUtil.isDegraded());
+        }
+    }
+
+    // Warm start: fills the search index and catalog snapshot from saved rows, drops books deleted since
+    // and re-reads the rows changed since (ORA_ROWSCN past sinceScn). Returns how many rows were
+    // re-read, or -1 if the database could not be reached; the catalog then loads cold on first use.
+    static int loadCatalog(List<Book> saved, long sinceScn) {
+        synchronized (SEARCH_INDEX) {
+            String idsSql = "SELECT book_id FROM books";
+            String changedSql = "SELECT book_id, isbn, title, author, category, published_year, total_copies, available_copies, borrowed_copies, status FROM books WHERE ORA_ROWSCN > ? ORDER BY book_id";
+            startCatalogLoad();
+            catalogFilled = false;
+            SEARCH_INDEX.clear();
+            for (Book book : saved) {
+                SEARCH_INDEX.put(book);
+            }
+            int changed = 0;
+            try (Connection conn = DbUtil.getConnection();
+                 PreparedStatement ids = conn.prepareStatement(idsSql);
+                 PreparedStatement ps = conn.prepareStatement(changedSql)) {
+                Set<Integer> live = new HashSet<>();
+                ids.setFetchSize(DbUtil.FETCH_SIZE);
+                try (ResultSet rs = ids.executeQuery()) {
+                    while (rs.next()) {
+                        live.add(rs.getInt(1));
+                    }
+                }
+                for (Book book : saved) {
+                    if (!live.contains(book.bookId)) {
+                        SEARCH_INDEX.remove(book.bookId);
+                    }
+                }
+                ps.setFetchSize(DbUtil.FETCH_SIZE);
+                ps.setLong(1, sinceScn);
+                try (ResultSet rs = ps.executeQuery()) {
+                    while (rs.next()) {
+                        Book book = readBook(rs);
+                        SEARCH_INDEX.put(book);
+                        changed++;
+                    }
+                }
+                finishCatalogLoad(conn);
+            } catch (SQLException e) {
+                System.err.println("Catch up catalog error: " + e.getMessage());
+                SEARCH_INDEX.clear();
+                catalogLoaded = false;
+                catalogFilled = false;
+                return -1;
+            } finally {
+                endCatalogLoad();
+            }
+            return changed;
+        }
+    }
+
+    private static void startCatalogLoad() {
+        synchronized (CATALOG_DIRTY) {
+            CATALOG_DIRTY.clear();
+            catalogLoading = true;
+        }
+    }
+
+    // Re-reads the books written during the load, then marks the catalog loaded. A write that comes in
+    // while the last ones are re-read is caught by the next round.
+    private static void finishCatalogLoad(Connection conn) throws SQLException {
+        String sql = "SELECT book_id, isbn, title, author, category, published_year, total_copies, available_copies, borrowed_copies, status FROM books WHERE book_id = ?";
+        try (PreparedStatement ps = conn.prepareStatement(sql)) {
+            while (true) {
+                List<Integer> dirty;
+                synchronized (CATALOG_DIRTY) {
+                    if (CATALOG_DIRTY.isEmpty()) {
+                        catalogLoaded = true;
+                        catalogFilled = true;
+                        catalogLoading = false;
+                        return;
+                    }
+                    dirty = new ArrayList<>(CATALOG_DIRTY);
+                    CATALOG_DIRTY.clear();
+                }
+                for (int bookId : dirty) {
+                    ps.setInt(1, bookId);
+                    try (ResultSet rs = ps.executeQuery()) {
+                        if (rs.next()) {
+                            Book book = readBook(rs);
+                            SEARCH_INDEX.put(book);
+                        } else {
+                            SEARCH_INDEX.remove(bookId);
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    private static void endCatalogLoad() {
+        synchronized (CATALOG_DIRTY) {
+            catalogLoading = false;
+        }
+    }
+
+    static Book readBook(ResultSet rs) throws SQLException {
+        return new Book(
+            rs.getInt("book_id"),
+            rs.getString("isbn"),
+            rs.getString("title"),
+            rs.getString("author"),
+            rs.getString("category"),
+            rs.getInt("published_year"),
+            rs.getInt("total_copies"),
+            rs.getInt("available_copies"),
+            rs.getInt("borrowed_copies"),
+            rs.getString("status")
+        );
     }
 }
\ No newline at end of file
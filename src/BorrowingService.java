@@ -1,9 +1,15 @@
 package src;
 
 import java.sql.*;
+import java.time.LocalDate;
 import java.util.ArrayList;
 import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 public class BorrowingService {
     public static class Borrowing {
@@ -27,132 +33,668 @@ public class BorrowingService {
         }
     }
 
+    // HOLDS_WAITING: other patrons are queued for the book and the member has no copy set aside.
+    public enum ItemStatus { SUCCESS, NO_COPIES, NOT_FOUND, ALREADY_RETURNED, FAILED, HOLDS_WAITING }
+
+    // Outcome for one item of a batch checkout (id = book id) or batch return (id = borrow id).
+    public static class ItemResult {
+        public final int id;
+        public final ItemStatus status;
+        public ItemResult(int id, ItemStatus status) {
+            this.id = id;
+            this.status = status;
+        }
+    }
+
+    private static final int MAX_BATCH_ITEMS = 500;
+
+    private static final OperationMetrics.Op ISSUE_BOOK = OperationMetrics.register("BorrowingService.issueBook");
+    private static final OperationMetrics.Op RETURN_BOOK = OperationMetrics.register("BorrowingService.returnBook");
+    private static final OperationMetrics.Op GET_BORROWINGS_BY_MEMBER = OperationMetrics.register("BorrowingService.getBorrowingsByMember");
+    private static final OperationMetrics.Op GET_OVERDUE_BORROWINGS = OperationMetrics.register("BorrowingService.getOverdueBorrowings");
+    private static final OperationMetrics.Op GET_CURRENTLY_BORROWED_BOOKS = OperationMetrics.register("BorrowingService.getCurrentlyBorrowedBooks");
+    private static final OperationMetrics.Op GET_BORROWINGS_DUE_WITHIN = OperationMetrics.register("BorrowingService.getBorrowingsDueWithin");
+    private static final OperationMetrics.Op GET_BORROWING_BY_ID = OperationMetrics.register("BorrowingService.getBorrowingById");
+    private static final OperationMetrics.Op ISSUE_BOOKS = OperationMetrics.register("BorrowingService.issueBooks");
+    private static final OperationMetrics.Op RETURN_BOOKS = OperationMetrics.register("BorrowingService.returnBooks");
+
     public static boolean issueBook(int memberId, int bookId, Date dueDate) {
-        String sql = "INSERT INTO borrowings (member_id, book_id, due_date) VALUES (?, ?, ?)";
-        String updateBookSql = "UPDATE books SET available_copies = available_copies - 1 WHERE book_id = ? AND available_copies > 0";
-        Connection conn = null;
-        PreparedStatement ps = null;
-        PreparedStatement psUpdate = null;
+        long started = ISSUE_BOOK.begin();
         try {
-            conn = DbUtil.getConnection();
-            conn.setAutoCommit(false);
-            psUpdate = conn.prepareStatement(updateBookSql);
-            psUpdate.setInt(1, bookId);
-            int updated = psUpdate.executeUpdate();
-            if (updated == 0) {
-                conn.rollback();
-                System.err.println("No available copies to borrow.");
+            String sql = "INSERT INTO borrowings (member_id, book_id, due_date) VALUES (?, ?, ?)";
+            String updateBookSql = "UPDATE books SET available_copies = available_copies - 1, borrowed_copies = borrowed_copies + 1, version = version + 1 WHERE book_id = ? AND available_copies > 0";
+            if (HoldService.mustQueue(memberId, bookId)) {
+                System.err.println(HoldService.getWaitingCount(bookId) + " patron(s) are waiting for this book; place a hold instead.");
                 return false;
             }
-            ps = conn.prepareStatement(sql);
-            ps.setInt(1, memberId);
-            ps.setInt(2, bookId);
-            ps.setDate(3, new java.sql.Date(dueDate.getTime()));
-            boolean result = ps.executeUpdate() > 0;
-            conn.commit();
-            return result;
-        } catch (SQLException e) {
-            if (conn != null) {
-                try { conn.rollback(); } catch (SQLException ex) { ex.printStackTrace(); }
-            }
-            System.err.println("Issue book error: " + e.getMessage());
-            return false;
+            boolean reserved = false;
+            if (CopyReservations.isEnabled() && !HoldService.hasReadyHold(memberId, bookId)) {
+                if (!CopyReservations.tryReserve(bookId)) {
+                    BookContention.shed(bookId);
+                    System.err.println("No available copies to borrow.");
+                    return false;
+                }
+                reserved = true;
+            }
+            Connection conn = null;
+            PreparedStatement ps = null;
+            PreparedStatement psUpdate = null;
+            boolean issued = false;
+            int borrowId = 0;
+            int holdId = 0;
+            try {
+                conn = DbUtil.getConnection();
+                conn.setAutoCommit(false);
+                // A copy set aside for this member's hold is used before any copy on the shelf.
+                holdId = HoldService.claimReadyHold(conn, memberId, bookId);
+                ps = conn.prepareStatement(sql, new String[] {"borrow_id"});
+                ps.setInt(1, memberId);
+                ps.setInt(2, bookId);
+                ps.setDate(3, new java.sql.Date(dueDate.getTime()));
+                boolean result = ps.executeUpdate() > 0;
+                try (ResultSet keys = ps.getGeneratedKeys()) {
+                    if (keys.next()) {
+                        borrowId = keys.getInt(1);
+                    }
+                }
+                if (result && borrowId == 0) {
+                    borrowId = newestOpenLoan(conn, memberId, bookId);
+                    if (borrowId == 0) {
+                        // Journal, due-date queue and cache bus all need the id, so no loan goes out without one.
+                        conn.rollback();
+                        System.err.println("Issue book error: the new loan's id could not be read.");
+                        return false;
+                    }
+                }
+                if (holdId == 0) {
+                    // Taken last, so a busy title's row stays locked only for this statement and the commit.
+                    psUpdate = conn.prepareStatement(updateBookSql);
+                    psUpdate.setInt(1, bookId);
+                    long updateStarted = System.nanoTime();
+                    int updated = psUpdate.executeUpdate();
+                    BookContention.rowUpdate(bookId, System.nanoTime() - updateStarted);
+                    if (updated == 0) {
+                        conn.rollback();
+                        System.err.println("No available copies to borrow.");
+                        return false;
+                    }
+                }
+                conn.commit();
+                issued = result;
+                return result;
+            } catch (SQLException e) {
+                if (conn != null) {
+                    try { conn.rollback(); } catch (SQLException ex) { ex.printStackTrace(); }
+                }
+                ServiceException.record(e);
+                System.err.println("Issue book error: " + e.getMessage());
+                return false;
+            } finally {
+                try {
+                    try { if (ps != null) ps.close(); } catch (SQLException e) {}
+                    try { if (psUpdate != null) psUpdate.close(); } catch (SQLException e) {}
+                    if (conn != null) {
+                        try { conn.setAutoCommit(true); } catch (SQLException e) {}
+                        try { conn.close(); } catch (SQLException e) {}
+                    }
+                } finally {
+                    // Must run whatever happened above, or the slot stays taken and the gate turns this title away for good.
+                    if (reserved) {
+                        CopyReservations.release(bookId, issued && holdId == 0);
+                    }
+                }
+                if (issued) {
+                    if (holdId != 0) {
+                        HoldService.onFulfilled(bookId, holdId, memberId);
+                    }
+                    BookService.bookChanged(bookId);
+                    // borrowId is always set here: a loan whose id cannot be read is rolled back above.
+                    DueDateScheduler.onIssued(new Borrowing(borrowId, memberId, bookId, new java.sql.Date(System.currentTimeMillis()), dueDate, null, 0.0, "ISSUED"));
+                    InsightBoard.onIssued(memberId, bookId, LocalDate.now().toEpochDay());
+                    MemberService.borrowsChanged(memberId);
+                    CirculationJournal.issued(borrowId, memberId, bookId);
+                    CacheBus.publish(CacheBus.Entity.LOAN_ISSUED, borrowId);
+                }
+            }
         } finally {
-            try { if (ps != null) ps.close(); } catch (SQLException e) {}
-            try { if (psUpdate != null) psUpdate.close(); } catch (SQLException e) {}
-            try { if (conn != null) conn.setAutoCommit(true); conn.close(); } catch (SQLException e) {}
+            ISSUE_BOOK.end(started);
         }
     }
 
     public static boolean returnBook(int borrowId, double fineAmount) {
-        String sql = "UPDATE borrowings SET return_date=TRUNC(SYSDATE), fine_amount=?, status='RETURNED' WHERE borrow_id=? AND status='ISSUED'";
-        try (Connection conn = DbUtil.getConnection(); PreparedStatement ps = conn.prepareStatement(sql)) {
-            ps.setDouble(1, fineAmount);
-            ps.setInt(2, borrowId);
-            return ps.executeUpdate() > 0;
-        } catch (SQLException e) {
-            System.err.println("Return book error: " + e.getMessage());
-            return false;
+        long started = RETURN_BOOK.begin();
+        try {
+            String sql = "UPDATE borrowings SET return_date=TRUNC(SYSDATE), fine_amount=?, status='RETURNED' WHERE borrow_id=? AND status='ISSUED'";
+            String bookSql = "SELECT book_id, member_id, issue_date FROM borrowings WHERE borrow_id=?";
+            String updateBookSql = "UPDATE books SET available_copies = available_copies + 1, borrowed_copies = borrowed_copies - 1, version = version + 1 WHERE book_id = ?";
+            int bookId = 0;
+            int memberId = 0;
+            long issueDay = LocalDate.now().toEpochDay();
+            List<HoldService.Hold> promoted;
+            try (Connection conn = DbUtil.getConnection()) {
+                conn.setAutoCommit(false);
+                try {
+                    try (PreparedStatement ps = conn.prepareStatement(sql)) {
+                        ps.setDouble(1, fineAmount);
+                        ps.setInt(2, borrowId);
+                        if (ps.executeUpdate() == 0) {
+                            conn.rollback();
+                            return false;
+                        }
+                    }
+                    try (PreparedStatement psBook = conn.prepareStatement(bookSql)) {
+                        psBook.setInt(1, borrowId);
+                        try (ResultSet rs = psBook.executeQuery()) {
+                            if (rs.next()) {
+                                bookId = rs.getInt(1);
+                                memberId = rs.getInt(2);
+                                issueDay = rs.getDate(3).toLocalDate().toEpochDay();
+                            }
+                        }
+                    }
+                    try (PreparedStatement psUpdate = conn.prepareStatement(updateBookSql)) {
+                        psUpdate.setInt(1, bookId);
+                        psUpdate.executeUpdate();
+                    }
+                    // Hand the copy straight to the next hold, under the book row lock taken above.
+                    promoted = HoldService.fill(conn, bookId, 1);
+                    conn.commit();
+                } catch (SQLException e) {
+                    conn.rollback();
+                    throw e;
+                } finally {
+                    conn.setAutoCommit(true);
+                }
+            } catch (SQLException e) {
+                ServiceException.record(e);
+                System.err.println("Return book error: " + e.getMessage());
+                return false;
+            }
+            HoldService.onPromoted(promoted);
+            BookService.bookChanged(bookId);
+            DueDateScheduler.onReturned(borrowId);
+            InsightBoard.onReturned(issueDay, LocalDate.now().toEpochDay());
+            CirculationJournal.returned(borrowId, memberId, bookId, fineAmount);
+            CacheBus.publish(CacheBus.Entity.LOAN_RETURNED, borrowId);
+            return true;
+        } finally {
+            RETURN_BOOK.end(started);
+        }
+    }
+
+    // Applies a loan another node issued or returned, announced on the cache bus. Both events of one loan
+    // can arrive in either order, so the row is re-read and only a loan still open is scheduled.
+    static void onRemoteChange(CacheBus.Entity entity, int borrowId) {
+        if (entity == CacheBus.Entity.LOAN_RETURNED) {
+            DueDateScheduler.onReturned(borrowId);
+        }
+        if (!DueDateScheduler.isLoaded() && !InsightBoard.isLoaded()) {
+            return;
+        }
+        Borrowing b = getBorrowingById(borrowId);
+        if (b == null) {
+            return;
+        }
+        long issueDay = DueDateScheduler.epochDay(b.issueDate);
+        if (entity == CacheBus.Entity.LOAN_ISSUED) {
+            if ("ISSUED".equals(b.status)) {
+                DueDateScheduler.onIssued(b);
+            }
+            InsightBoard.onIssued(b.memberId, b.bookId, issueDay);
+        } else if (entity == CacheBus.Entity.LOAN_RETURNED && b.returnDate != null) {
+            InsightBoard.onReturned(issueDay, DueDateScheduler.epochDay(b.returnDate));
         }
     }
 
     public static List<Borrowing> getBorrowingsByMember(int memberId) {
-        List<Borrowing> list = new ArrayList<>();
-        String sql = "SELECT * FROM borrowings WHERE member_id=? ORDER BY issue_date DESC";
-        try (Connection conn = DbUtil.getConnection(); PreparedStatement ps = conn.prepareStatement(sql)) {
-            ps.setInt(1, memberId);
-            try (ResultSet rs = ps.executeQuery()) {
-                while (rs.next()) {
-                    list.add(new Borrowing(
-                        rs.getInt("borrow_id"),
-                        rs.getInt("member_id"),
-                        rs.getInt("book_id"),
-                        rs.getDate("issue_date"),
-                        rs.getDate("due_date"),
-                        rs.getDate("return_date"),
-                        rs.getDouble("fine_amount"),
-                        rs.getString("status")
-                    ));
+        long started = GET_BORROWINGS_BY_MEMBER.begin();
+        try {
+            List<Borrowing> list = new ArrayList<>();
+            String sql = "SELECT * FROM borrowings WHERE member_id=? ORDER BY issue_date DESC";
+            try (Connection conn = DbUtil.getConnection(); PreparedStatement ps = conn.prepareStatement(sql)) {
+                ps.setInt(1, memberId);
+                try (ResultSet rs = ps.executeQuery()) {
+                    while (rs.next()) {
+                        list.add(new Borrowing(
+                            rs.getInt("borrow_id"),
+                            rs.getInt("member_id"),
+                            rs.getInt("book_id"),
+                            rs.getDate("issue_date"),
+                            rs.getDate("due_date"),
+                            rs.getDate("return_date"),
+                            rs.getDouble("fine_amount"),
+                            rs.getString("status")
+                        ));
+                    }
                 }
+            } catch (SQLException e) {
+                ServiceException.record(e);
+                System.err.println("Get borrowings error: " + e.getMessage());
             }
-        } catch (SQLException e) {
-            System.err.println("Get borrowings error: " + e.getMessage());
+            return GET_BORROWINGS_BY_MEMBER.rows(list);
+        } finally {
+            GET_BORROWINGS_BY_MEMBER.end(started);
         }
-        return list;
     }
 
+    // Served from the due-date scheduler once it is loaded; otherwise queried directly.
     public static List<Borrowing> getOverdueBorrowings() {
-        List<Borrowing> list = new ArrayList<>();
-        String sql = "SELECT * FROM borrowings WHERE due_date < TRUNC(SYSDATE) AND status='ISSUED'";
-        try (Connection conn = DbUtil.getConnection(); PreparedStatement ps = conn.prepareStatement(sql)) {
-            try (ResultSet rs = ps.executeQuery()) {
-                while (rs.next()) {
-                    list.add(new Borrowing(
-                        rs.getInt("borrow_id"),
-                        rs.getInt("member_id"),
-                        rs.getInt("book_id"),
-                        rs.getDate("issue_date"),
-                        rs.getDate("due_date"),
-                        rs.getDate("return_date"),
-                        rs.getDouble("fine_amount"),
-                        rs.getString("status")
-                    ));
+        long started = GET_OVERDUE_BORROWINGS.begin();
+        try {
+            if (DueDateScheduler.isLoaded()) {
+                return GET_OVERDUE_BORROWINGS.rows(DueDateScheduler.getOverdue());
+            }
+            List<Borrowing> list = new ArrayList<>();
+            String sql = "SELECT * FROM borrowings WHERE due_date < TRUNC(SYSDATE) AND status='ISSUED'";
+            try (Connection conn = DbUtil.getConnection(); PreparedStatement ps = conn.prepareStatement(sql)) {
+                try (ResultSet rs = ps.executeQuery()) {
+                    while (rs.next()) {
+                        list.add(new Borrowing(
+                            rs.getInt("borrow_id"),
+                            rs.getInt("member_id"),
+                            rs.getInt("book_id"),
+                            rs.getDate("issue_date"),
+                            rs.getDate("due_date"),
+                            rs.getDate("return_date"),
+                            rs.getDouble("fine_amount"),
+                            rs.getString("status")
+                        ));
+                    }
                 }
+            } catch (SQLException e) {
+                ServiceException.record(e);
+                System.err.println("Get overdue borrowings error: " + e.getMessage());
             }
-        } catch (SQLException e) {
-            System.err.println("Get overdue borrowings error: " + e.getMessage());
+            return GET_OVERDUE_BORROWINGS.rows(list);
+        } finally {
+            GET_OVERDUE_BORROWINGS.end(started);
         }
-        return list;
     }
 
     public static List<Borrowing> getCurrentlyBorrowedBooks() {
-        List<Borrowing> list = new ArrayList<>();
-        String sql = "SELECT * FROM borrowings WHERE status='ISSUED' ORDER BY due_date ASC";
-        try (Connection conn = DbUtil.getConnection(); PreparedStatement ps = conn.prepareStatement(sql)) {
-            try (ResultSet rs = ps.executeQuery()) {
-                while (rs.next()) {
-                    list.add(new Borrowing(
-                        rs.getInt("borrow_id"),
-                        rs.getInt("member_id"),
-                        rs.getInt("book_id"),
-                        rs.getDate("issue_date"),
-                        rs.getDate("due_date"),
-                        rs.getDate("return_date"),
-                        rs.getDouble("fine_amount"),
-                        rs.getString("status")
-                    ));
+        long started = GET_CURRENTLY_BORROWED_BOOKS.begin();
+        try {
+            List<Borrowing> list = new ArrayList<>();
+            String sql = "SELECT * FROM borrowings WHERE status='ISSUED' ORDER BY due_date ASC";
+            try (Connection conn = DbUtil.getConnection(); PreparedStatement ps = conn.prepareStatement(sql)) {
+                try (ResultSet rs = ps.executeQuery()) {
+                    while (rs.next()) {
+                        list.add(new Borrowing(
+                            rs.getInt("borrow_id"),
+                            rs.getInt("member_id"),
+                            rs.getInt("book_id"),
+                            rs.getDate("issue_date"),
+                            rs.getDate("due_date"),
+                            rs.getDate("return_date"),
+                            rs.getDouble("fine_amount"),
+                            rs.getString("status")
+                        ));
+                    }
                 }
+            } catch (SQLException e) {
+                ServiceException.record(e);
+                System.err.println("Get currently borrowed books error: " + e.getMessage());
             }
-        } catch (SQLException e) {
-            System.err.println("Get currently borrowed books error: " + e.getMessage());
+            return GET_CURRENTLY_BORROWED_BOOKS.rows(list);
+        } finally {
+            GET_CURRENTLY_BORROWED_BOOKS.end(started);
+        }
+    }
+
+    // Open loans due from today through the next `days` days.
+    public static List<Borrowing> getBorrowingsDueWithin(int days) {
+        long started = GET_BORROWINGS_DUE_WITHIN.begin();
+        try {
+            if (DueDateScheduler.isLoaded()) {
+                return GET_BORROWINGS_DUE_WITHIN.rows(DueDateScheduler.getDueWithin(days));
+            }
+            List<Borrowing> list = new ArrayList<>();
+            String sql = "SELECT * FROM borrowings WHERE status='ISSUED' AND due_date >= TRUNC(SYSDATE) AND due_date <= TRUNC(SYSDATE) + ? ORDER BY due_date ASC";
+            try (Connection conn = DbUtil.getConnection(); PreparedStatement ps = conn.prepareStatement(sql)) {
+                ps.setInt(1, days);
+                try (ResultSet rs = ps.executeQuery()) {
+                    while (rs.next()) {
+                        list.add(readBorrowing(rs));
+                    }
+                }
+            } catch (SQLException e) {
+                ServiceException.record(e);
+                System.err.println("Get upcoming due borrowings error: " + e.getMessage());
+            }
+            return GET_BORROWINGS_DUE_WITHIN.rows(list);
+        } finally {
+            GET_BORROWINGS_DUE_WITHIN.end(started);
         }
-        return list;
     }
 
     public static double calculateFine(Date dueDate, Date returnDate, double dailyRate) {
         if (returnDate == null || !returnDate.after(dueDate)) return 0.0;
-        long diff = returnDate.getTime() - dueDate.getTime();
-        long days = diff / (1000 * 60 * 60 * 24);
+        long days = DueDateScheduler.epochDay(returnDate) - DueDateScheduler.epochDay(dueDate);
         return days * dailyRate;
     }
+
+    public static Borrowing getBorrowingById(int borrowId) {
+        long started = GET_BORROWING_BY_ID.begin();
+        try {
+            String sql = "SELECT * FROM borrowings WHERE borrow_id=?";
+            try (Connection conn = DbUtil.getConnection(); PreparedStatement ps = conn.prepareStatement(sql)) {
+                ps.setInt(1, borrowId);
+                try (ResultSet rs = ps.executeQuery()) {
+                    if (rs.next()) {
+                        return GET_BORROWING_BY_ID.rows(readBorrowing(rs));
+                    }
+                }
+            } catch (SQLException e) {
+                ServiceException.record(e);
+                System.err.println("Get borrowing error: " + e.getMessage());
+            }
+            return null;
+        } finally {
+            GET_BORROWING_BY_ID.end(started);
+        }
+    }
+
+    // Issues several books to one member in a single transaction. A copy set aside for one of the member's
+    // holds is used first; titles without a free copy are reported as NO_COPIES and skipped, and the rest
+    // of the batch still goes through.
+    public static List<ItemResult> issueBooks(int memberId, List<Integer> bookIds, Date dueDate) {
+        long started = ISSUE_BOOKS.begin();
+        try {
+            checkBatchSize(bookIds);
+            List<ItemResult> results = new ArrayList<>();
+            if (bookIds.isEmpty()) {
+                return ISSUE_BOOKS.rows(results);
+            }
+            Set<Integer> distinct = new LinkedHashSet<>(bookIds);
+            String lockSql = "SELECT book_id, available_copies FROM books WHERE book_id IN (" + placeholders(distinct.size()) + ") FOR UPDATE";
+            String updateBookSql = "UPDATE books SET available_copies = available_copies - ?, borrowed_copies = borrowed_copies + ?, version = version + 1 WHERE book_id = ?";
+            String insertSql = "INSERT INTO borrowings (member_id, book_id, due_date) VALUES (?, ?, ?)";
+            String claimSql = "UPDATE books SET held_copies = held_copies - 1, borrowed_copies = borrowed_copies + 1, version = version + 1 WHERE book_id = ?";
+            Set<Integer> changed = new LinkedHashSet<>();
+            Map<Integer, Integer> claimed = new HashMap<>();
+            List<Borrowing> newLoans = new ArrayList<>();
+            try (Connection conn = DbUtil.getConnection()) {
+                conn.setAutoCommit(false);
+                try {
+                    Map<Integer, Integer> available = new HashMap<>();
+                    try (PreparedStatement ps = conn.prepareStatement(lockSql)) {
+                        int i = 1;
+                        for (int id : distinct) {
+                            ps.setInt(i++, id);
+                        }
+                        try (ResultSet rs = ps.executeQuery()) {
+                            while (rs.next()) {
+                                available.put(rs.getInt("book_id"), rs.getInt("available_copies"));
+                            }
+                        }
+                    }
+                    Map<Integer, Integer> readyHolds = available.isEmpty() ? new HashMap<>() : HoldService.readyHolds(conn, memberId, available.keySet());
+                    Map<Integer, Integer> taken = new HashMap<>();
+                    for (int bookId : bookIds) {
+                        Integer free = available.get(bookId);
+                        if (free == null) {
+                            results.add(new ItemResult(bookId, ItemStatus.NOT_FOUND));
+                        } else if (readyHolds.containsKey(bookId) && !claimed.containsKey(bookId)) {
+                            claimed.put(bookId, readyHolds.get(bookId));
+                            results.add(new ItemResult(bookId, ItemStatus.SUCCESS));
+                        } else if (HoldService.mustQueue(memberId, bookId)) {
+                            results.add(new ItemResult(bookId, ItemStatus.HOLDS_WAITING));
+                        } else if (free - taken.getOrDefault(bookId, 0) <= 0) {
+                            results.add(new ItemResult(bookId, ItemStatus.NO_COPIES));
+                        } else {
+                            taken.merge(bookId, 1, Integer::sum);
+                            results.add(new ItemResult(bookId, ItemStatus.SUCCESS));
+                        }
+                    }
+                    if (!taken.isEmpty() || !claimed.isEmpty()) {
+                        Set<Integer> issuedBooks = new LinkedHashSet<>(taken.keySet());
+                        issuedBooks.addAll(claimed.keySet());
+                        // Batch inserts do not hand back the new borrow ids, so they are found as the open loans that were not there before.
+                        Set<Integer> before = new HashSet<>();
+                        for (Borrowing b : openLoans(conn, memberId, issuedBooks)) {
+                            before.add(b.borrowId);
+                        }
+                        try (PreparedStatement psUpdate = conn.prepareStatement(updateBookSql);
+                             PreparedStatement psClaim = conn.prepareStatement(claimSql);
+                             PreparedStatement psInsert = conn.prepareStatement(insertSql)) {
+                            for (Map.Entry<Integer, Integer> e : taken.entrySet()) {
+                                psUpdate.setInt(1, e.getValue());
+                                psUpdate.setInt(2, e.getValue());
+                                psUpdate.setInt(3, e.getKey());
+                                psUpdate.addBatch();
+                            }
+                            for (Map.Entry<Integer, Integer> e : claimed.entrySet()) {
+                                psClaim.setInt(1, e.getKey());
+                                psClaim.addBatch();
+                                HoldService.markFulfilled(conn, e.getValue());
+                            }
+                            for (ItemResult r : results) {
+                                if (r.status == ItemStatus.SUCCESS) {
+                                    psInsert.setInt(1, memberId);
+                                    psInsert.setInt(2, r.id);
+                                    psInsert.setDate(3, new java.sql.Date(dueDate.getTime()));
+                                    psInsert.addBatch();
+                                }
+                            }
+                            psUpdate.executeBatch();
+                            psClaim.executeBatch();
+                            psInsert.executeBatch();
+                        }
+                        for (Borrowing b : openLoans(conn, memberId, issuedBooks)) {
+                            if (!before.contains(b.borrowId)) {
+                                newLoans.add(b);
+                            }
+                        }
+                    }
+                    conn.commit();
+                    changed.addAll(taken.keySet());
+                    changed.addAll(claimed.keySet());
+                } catch (SQLException e) {
+                    conn.rollback();
+                    throw e;
+                } finally {
+                    conn.setAutoCommit(true);
+                }
+            } catch (SQLException e) {
+                ServiceException.record(e);
+                System.err.println("Batch issue error: " + e.getMessage());
+                return ISSUE_BOOKS.rows(allFailed(bookIds));
+            }
+            for (Map.Entry<Integer, Integer> e : claimed.entrySet()) {
+                HoldService.onFulfilled(e.getKey(), e.getValue(), memberId);
+            }
+            for (int bookId : changed) {
+                BookService.bookChanged(bookId);
+            }
+            if (!changed.isEmpty()) {
+                MemberService.borrowsChanged(memberId);
+            }
+            long today = LocalDate.now().toEpochDay();
+            for (Borrowing b : newLoans) {
+                DueDateScheduler.onIssued(b);
+                InsightBoard.onIssued(memberId, b.bookId, today);
+                CirculationJournal.issued(b.borrowId, memberId, b.bookId);
+                CacheBus.publish(CacheBus.Entity.LOAN_ISSUED, b.borrowId);
+            }
+            return ISSUE_BOOKS.rows(results);
+        } finally {
+            ISSUE_BOOKS.end(started);
+        }
+    }
+
+    // Fallback for a driver that hands back no generated key: the loan just inserted in this transaction
+    // is the member's newest open loan on the book. 0 if there is none.
+    private static int newestOpenLoan(Connection conn, int memberId, int bookId) throws SQLException {
+        String sql = "SELECT MAX(borrow_id) FROM borrowings WHERE member_id = ? AND book_id = ? AND status = 'ISSUED'";
+        try (PreparedStatement ps = conn.prepareStatement(sql)) {
+            ps.setInt(1, memberId);
+            ps.setInt(2, bookId);
+            try (ResultSet rs = ps.executeQuery()) {
+                return rs.next() ? rs.getInt(1) : 0;
+            }
+        }
+    }
+
+    // A member's open loans on the given books.
+    private static List<Borrowing> openLoans(Connection conn, int memberId, Set<Integer> bookIds) throws SQLException {
+        List<Borrowing> loans = new ArrayList<>();
+        String sql = "SELECT * FROM borrowings WHERE member_id = ? AND status = 'ISSUED' AND book_id IN (" + placeholders(bookIds.size()) + ")";
+        try (PreparedStatement ps = conn.prepareStatement(sql)) {
+            ps.setInt(1, memberId);
+            int i = 2;
+            for (int id : bookIds) {
+                ps.setInt(i++, id);
+            }
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    loans.add(readBorrowing(rs));
+                }
+            }
+        }
+        return loans;
+    }
+
+    // Returns several loans in a single transaction and puts the copies back on the shelf, or aside for
+    // the oldest waiting holds.
+    // Fines are left as recorded; loans that are unknown or already returned are reported per item.
+    public static List<ItemResult> returnBooks(List<Integer> borrowIds) {
+        long started = RETURN_BOOKS.begin();
+        try {
+            checkBatchSize(borrowIds);
+            List<ItemResult> results = new ArrayList<>();
+            if (borrowIds.isEmpty()) {
+                return RETURN_BOOKS.rows(results);
+            }
+            Set<Integer> distinct = new LinkedHashSet<>(borrowIds);
+            String lockSql = "SELECT borrow_id, member_id, book_id, issue_date, fine_amount, status FROM borrowings WHERE borrow_id IN (" + placeholders(distinct.size()) + ") FOR UPDATE";
+            String returnSql = "UPDATE borrowings SET return_date=TRUNC(SYSDATE), status='RETURNED' WHERE borrow_id=?";
+            String updateBookSql = "UPDATE books SET available_copies = available_copies + ?, borrowed_copies = borrowed_copies - ?, version = version + 1 WHERE book_id = ?";
+            Set<Integer> changed = new LinkedHashSet<>();
+            Map<Integer, Long> issueDays = new HashMap<>();
+            Map<Integer, Borrowing> returned = new HashMap<>();
+            List<HoldService.Hold> promoted = new ArrayList<>();
+            try (Connection conn = DbUtil.getConnection()) {
+                conn.setAutoCommit(false);
+                try {
+                    Map<Integer, Integer> openLoans = new HashMap<>();
+                    Set<Integer> closedLoans = new LinkedHashSet<>();
+                    try (PreparedStatement ps = conn.prepareStatement(lockSql)) {
+                        int i = 1;
+                        for (int id : distinct) {
+                            ps.setInt(i++, id);
+                        }
+                        try (ResultSet rs = ps.executeQuery()) {
+                            while (rs.next()) {
+                                if ("ISSUED".equals(rs.getString("status"))) {
+                                    openLoans.put(rs.getInt("borrow_id"), rs.getInt("book_id"));
+                                    issueDays.put(rs.getInt("borrow_id"), rs.getDate("issue_date").toLocalDate().toEpochDay());
+                                    returned.put(rs.getInt("borrow_id"), new Borrowing(rs.getInt("borrow_id"), rs.getInt("member_id"), rs.getInt("book_id"), rs.getDate("issue_date"), null, null, rs.getDouble("fine_amount"), "RETURNED"));
+                                } else {
+                                    closedLoans.add(rs.getInt("borrow_id"));
+                                }
+                            }
+                        }
+                    }
+                    Map<Integer, Integer> restocked = new HashMap<>();
+                    try (PreparedStatement psReturn = conn.prepareStatement(returnSql);
+                         PreparedStatement psUpdate = conn.prepareStatement(updateBookSql)) {
+                        for (int borrowId : borrowIds) {
+                            Integer bookId = openLoans.remove(borrowId);
+                            if (bookId != null) {
+                                psReturn.setInt(1, borrowId);
+                                psReturn.addBatch();
+                                restocked.merge(bookId, 1, Integer::sum);
+                                closedLoans.add(borrowId);
+                                results.add(new ItemResult(borrowId, ItemStatus.SUCCESS));
+                            } else if (closedLoans.contains(borrowId)) {
+                                results.add(new ItemResult(borrowId, ItemStatus.ALREADY_RETURNED));
+                            } else {
+                                results.add(new ItemResult(borrowId, ItemStatus.NOT_FOUND));
+                            }
+                        }
+                        if (!restocked.isEmpty()) {
+                            for (Map.Entry<Integer, Integer> e : restocked.entrySet()) {
+                                psUpdate.setInt(1, e.getValue());
+                                psUpdate.setInt(2, e.getValue());
+                                psUpdate.setInt(3, e.getKey());
+                                psUpdate.addBatch();
+                            }
+                            psReturn.executeBatch();
+                            psUpdate.executeBatch();
+                            for (Map.Entry<Integer, Integer> e : restocked.entrySet()) {
+                                promoted.addAll(HoldService.fill(conn, e.getKey(), e.getValue()));
+                            }
+                        }
+                    }
+                    conn.commit();
+                    changed.addAll(restocked.keySet());
+                    for (ItemResult r : results) {
+                        if (r.status == ItemStatus.SUCCESS) {
+                            DueDateScheduler.onReturned(r.id);
+                        }
+                    }
+                } catch (SQLException e) {
+                    conn.rollback();
+                    throw e;
+                } finally {
+                    conn.setAutoCommit(true);
+                }
+            } catch (SQLException e) {
+                ServiceException.record(e);
+                System.err.println("Batch return error: " + e.getMessage());
+                return RETURN_BOOKS.rows(allFailed(borrowIds));
+            }
+            HoldService.onPromoted(promoted);
+            for (int bookId : changed) {
+                BookService.bookChanged(bookId);
+            }
+            long today = LocalDate.now().toEpochDay();
+            for (ItemResult r : results) {
+                if (r.status == ItemStatus.SUCCESS) {
+                    InsightBoard.onReturned(issueDays.get(r.id), today);
+                    Borrowing b = returned.get(r.id);
+                    CirculationJournal.returned(b.borrowId, b.memberId, b.bookId, b.fineAmount);
+                    CacheBus.publish(CacheBus.Entity.LOAN_RETURNED, b.borrowId);
+                }
+            }
+            return RETURN_BOOKS.rows(results);
+        } finally {
+            RETURN_BOOKS.end(started);
+        }
+    }
+
+    private static void checkBatchSize(List<Integer> ids) {
+        if (ids.size() > MAX_BATCH_ITEMS) {
+            throw new IllegalArgumentException("At most " + MAX_BATCH_ITEMS + " items per batch, got " + ids.size());
+        }
+    }
+
+    private static String placeholders(int count) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < count; i++) {
+            sb.append(i == 0 ? "?" : ", ?");
+        }
+        return sb.toString();
+    }
+
+    private static List<ItemResult> allFailed(List<Integer> ids) {
+        List<ItemResult> results = new ArrayList<>();
+        for (int id : ids) {
+            results.add(new ItemResult(id, ItemStatus.FAILED));
+        }
+        return results;
+    }
+
+    static Borrowing readBorrowing(ResultSet rs) throws SQLException {
+        return new Borrowing(
+            rs.getInt("borrow_id"),
+            rs.getInt("member_id"),
+            rs.getInt("book_id"),
+            rs.getDate("issue_date"),
+            rs.getDate("due_date"),
+            rs.getDate("return_date"),
+            rs.getDouble("fine_amount"),
+            rs.getString("status")
+        );
+    }
 }
\ No newline at end of file
@@ -0,0 +1,324 @@
+package src;
+
+import java.io.IOException;
+import java.net.DatagramPacket;
+import java.net.DatagramSocket;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.MulticastSocket;
+import java.net.NetworkInterface;
+import java.net.SocketAddress;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+// Tells the other Lexora processes on the same database which cached rows this one changed, so they
+// drop or re-read their copies (-Dlexora.bus.enabled=true). Changes are collected for
+// lexora.bus.batchMs, deduplicated per (entity, id) and sent as (entity, id, version) entries in UDP
+// datagrams: to the multicast group lexora.bus.group:lexora.bus.port, or, if lexora.bus.peers is set
+// (host:port,...), to each peer directly, which also works between JVMs on one machine. The version is
+// the sender's change stamp. Every datagram carries a per-node batch number, and idle nodes repeat their
+// last one as a heartbeat. A receiver that finds a gap in the numbers, or hears again from a node it had
+// lost, may have missed changes, so it drops all of its caches and reloads them lazily (a resync).
+// Loans issued and returned are announced too, so the due-date queue and the insight counters of the
+// other nodes follow them. The receiver thread only parses datagrams; the database reads that applying
+// a change may need run in order on a separate worker.
+public class CacheBus {
+    // id 0 on MEMBER and BORROWS means every member; LOAN_ISSUED and LOAN_RETURNED carry a borrow id.
+    // New entities go at the end, since the ordinal is what goes on the wire.
+    public enum Entity { BOOK, MEMBER, BORROWS, AUTHORS, CATALOG, LOAN_ISSUED, LOAN_RETURNED }
+
+    public static class Stats {
+        public final long batchesSent;
+        public final long batchesReceived;
+        public final long entriesApplied;
+        public final long duplicates;
+        public final long resyncs;
+        public final int peers;
+        public Stats(long batchesSent, long batchesReceived, long entriesApplied, long duplicates, long resyncs, int peers) {
+            this.batchesSent = batchesSent;
+            this.batchesReceived = batchesReceived;
+            this.entriesApplied = entriesApplied;
+            this.duplicates = duplicates;
+            this.resyncs = resyncs;
+            this.peers = peers;
+        }
+
+        @Override
+        public String toString() {
+            return peers + " peer(s), sent " + batchesSent + " batches, received " + batchesReceived + " (" + entriesApplied
+                    + " changes applied, " + duplicates + " duplicates), " + resyncs + " resyncs";
+        }
+    }
+
+    private static class Peer {
+        volatile long lastBatch;
+        volatile long lastHeard;
+        Peer(long lastBatch, long lastHeard) {
+            this.lastBatch = lastBatch;
+            this.lastHeard = lastHeard;
+        }
+    }
+
+    private static final boolean ENABLED = Boolean.getBoolean("lexora.bus.enabled");
+    private static final String GROUP = System.getProperty("lexora.bus.group", "239.255.76.88");
+    private static final int PORT = Integer.getInteger("lexora.bus.port", 47688);
+    private static final String PEERS = System.getProperty("lexora.bus.peers", "");
+    private static final int TTL = Integer.getInteger("lexora.bus.ttl", 1);
+    private static final long BATCH_MS = Long.getLong("lexora.bus.batchMs", 20L);
+    private static final long HEARTBEAT_MS = Long.getLong("lexora.bus.heartbeatMs", 1000L);
+    // A peer silent for this long is forgotten; hearing from it again counts as a rejoin.
+    private static final long PEER_TIMEOUT_MS = Long.getLong("lexora.bus.peerTimeoutMs", 10000L);
+
+    private static final int MAGIC = 0x4C584231; // "LXB1"
+    private static final int HEADER_BYTES = 22; // magic, node id, batch number, entry count
+    private static final int ENTRY_BYTES = 13; // entity, id, version
+    private static final int MAX_ENTRIES = 100; // keeps a datagram under a typical 1500-byte MTU
+    private static final Entity[] ENTITIES = Entity.values();
+
+    private static final long NODE_ID = ThreadLocalRandom.current().nextLong();
+    private static final AtomicLong stamps = new AtomicLong();
+    // (entity, id) -> newest stamp, waiting for the next batch
+    private static final Map<Long, Long> pending = new ConcurrentHashMap<>();
+    private static final Map<Long, Peer> peers = new ConcurrentHashMap<>();
+    private static final LongAdder received = new LongAdder();
+    private static final LongAdder applied = new LongAdder();
+    private static final LongAdder duplicates = new LongAdder();
+    private static final LongAdder resyncs = new LongAdder();
+
+    private static volatile boolean started = false;
+    private static DatagramSocket socket;
+    private static List<SocketAddress> targets;
+    private static ScheduledExecutorService sender;
+    private static ExecutorService applier;
+    // touched only by the sender thread
+    private static volatile long batchNumber;
+    private static long lastSent;
+
+    // Joins the bus. Does nothing unless lexora.bus.enabled is set; safe to call more than once.
+    public static synchronized boolean start() {
+        if (!ENABLED) {
+            return false;
+        }
+        if (started) {
+            return true;
+        }
+        try {
+            targets = new ArrayList<>();
+            if (PEERS.trim().isEmpty()) {
+                InetAddress group = InetAddress.getByName(GROUP);
+                MulticastSocket ms = new MulticastSocket(PORT);
+                ms.setTimeToLive(TTL);
+                ms.joinGroup(new InetSocketAddress(group, PORT), (NetworkInterface) null);
+                socket = ms;
+                targets.add(new InetSocketAddress(group, PORT));
+            } else {
+                socket = new DatagramSocket(PORT);
+                for (String peer : PEERS.split(",")) {
+                    String p = peer.trim();
+                    int colon = p.lastIndexOf(':');
+                    targets.add(new InetSocketAddress(p.substring(0, colon), Integer.parseInt(p.substring(colon + 1))));
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            System.err.println("Cache bus start error: " + e.getMessage());
+            if (socket != null) {
+                socket.close();
+            }
+            return false;
+        }
+        applier = Executors.newSingleThreadExecutor(r -> {
+            Thread t = new Thread(r, "lexora-bus-apply");
+            t.setDaemon(true);
+            return t;
+        });
+        Thread receiver = new Thread(CacheBus::receiveLoop, "lexora-bus-receiver");
+        receiver.setDaemon(true);
+        receiver.start();
+        sender = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "lexora-bus-sender");
+            t.setDaemon(true);
+            return t;
+        });
+        sender.scheduleWithFixedDelay(CacheBus::flush, BATCH_MS, BATCH_MS, TimeUnit.MILLISECONDS);
+        started = true;
+        return true;
+    }
+
+    public static boolean isStarted() {
+        return started;
+    }
+
+    // Queues a change for the other nodes. Repeated changes to one row before the next batch go out once.
+    static void publish(Entity entity, int id) {
+        if (started) {
+            pending.put(key(entity, id), stamps.incrementAndGet());
+        }
+    }
+
+    public static Stats getStats() {
+        return new Stats(batchNumber, received.sum(), applied.sum(), duplicates.sum(), resyncs.sum(), peers.size());
+    }
+
+    private static void flush() {
+        try {
+            List<Map.Entry<Long, Long>> batch = new ArrayList<>();
+            for (Map.Entry<Long, Long> e : pending.entrySet()) {
+                // Only take the stamp we saw; a newer publish of the same row stays queued for the next batch.
+                if (pending.remove(e.getKey(), e.getValue())) {
+                    batch.add(e);
+                }
+            }
+            long now = System.currentTimeMillis();
+            for (int from = 0; from < batch.size(); from += MAX_ENTRIES) {
+                send(++batchNumber, batch.subList(from, Math.min(batch.size(), from + MAX_ENTRIES)));
+                lastSent = now;
+            }
+            if (now - lastSent >= HEARTBEAT_MS) {
+                send(batchNumber, batch.subList(0, 0));
+                lastSent = now;
+                peers.values().removeIf(p -> now - p.lastHeard > PEER_TIMEOUT_MS);
+            }
+        } catch (IOException | RuntimeException e) {
+            // The batch is lost; receivers see the gap in batch numbers and resync.
+            System.err.println("Cache bus send error: " + e.getMessage());
+        }
+    }
+
+    private static void send(long number, List<Map.Entry<Long, Long>> entries) throws IOException {
+        ByteBuffer buf = ByteBuffer.allocate(HEADER_BYTES + entries.size() * ENTRY_BYTES);
+        buf.putInt(MAGIC).putLong(NODE_ID).putLong(number).putShort((short) entries.size());
+        for (Map.Entry<Long, Long> e : entries) {
+            long k = e.getKey();
+            buf.put((byte) (k >>> 32)).putInt((int) k).putLong(e.getValue());
+        }
+        for (SocketAddress target : targets) {
+            socket.send(new DatagramPacket(buf.array(), buf.position(), target));
+        }
+    }
+
+    private static void receiveLoop() {
+        byte[] data = new byte[HEADER_BYTES + MAX_ENTRIES * ENTRY_BYTES];
+        DatagramPacket packet = new DatagramPacket(data, data.length);
+        while (true) {
+            try {
+                packet.setLength(data.length);
+                socket.receive(packet);
+                handle(ByteBuffer.wrap(data, 0, packet.getLength()));
+            } catch (IOException e) {
+                if (socket.isClosed()) {
+                    return;
+                }
+                System.err.println("Cache bus receive error: " + e.getMessage());
+            } catch (RuntimeException e) {
+                System.err.println("Cache bus error: " + e.getMessage());
+            }
+        }
+    }
+
+    private static void handle(ByteBuffer buf) {
+        if (buf.remaining() < HEADER_BYTES || buf.getInt() != MAGIC) {
+            return;
+        }
+        long node = buf.getLong();
+        long number = buf.getLong();
+        int count = buf.getShort();
+        if (node == NODE_ID || buf.remaining() < count * ENTRY_BYTES) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        Peer peer = peers.get(node);
+        if (peer == null) {
+            // A node we have not heard from, or lost: anything it sent before now may have been missed.
+            peers.put(node, new Peer(number, now));
+            if (number > (count > 0 ? 1 : 0)) {
+                applier.execute(CacheBus::resync);
+                return;
+            }
+        } else {
+            peer.lastHeard = now;
+            if (number <= peer.lastBatch) {
+                if (count > 0) {
+                    duplicates.increment();
+                }
+                return;
+            }
+            // A heartbeat repeats the sender's last batch number, so any newer number on one means a lost batch.
+            boolean gap = number > peer.lastBatch + (count > 0 ? 1 : 0);
+            peer.lastBatch = number;
+            if (gap) {
+                applier.execute(CacheBus::resync);
+                return;
+            }
+        }
+        if (count > 0) {
+            received.increment();
+        }
+        for (int i = 0; i < count; i++) {
+            int entity = buf.get() & 0xFF;
+            int id = buf.getInt();
+            buf.getLong(); // version: ordering within a node is already given by the batch number
+            if (entity < ENTITIES.length) {
+                Entity e = ENTITIES[entity];
+                applier.execute(() -> apply(e, id));
+            }
+        }
+    }
+
+    // Runs on the apply worker.
+    private static void apply(Entity entity, int id) {
+        try {
+            applyChange(entity, id);
+            applied.increment();
+        } catch (RuntimeException e) {
+            System.err.println("Cache bus apply error: " + e.getMessage());
+        }
+    }
+
+    private static void applyChange(Entity entity, int id) {
+        switch (entity) {
+            case BOOK:
+            case AUTHORS:
+            case CATALOG:
+                BookService.onRemoteChange(entity, id);
+                break;
+            case MEMBER:
+            case BORROWS:
+                MemberService.onRemoteChange(entity, id);
+                break;
+            case LOAN_ISSUED:
+            case LOAN_RETURNED:
+                BorrowingService.onRemoteChange(entity, id);
+                break;
+        }
+    }
+
+    // Drops every cache the bus keeps in step; they reload from the database on next use, except the
+    // due-date queue, which reloads at once so overdue notices keep coming, and the InsightBoard, which
+    // re-reads only its recent days. Runs on the apply worker.
+    private static void resync() {
+        resyncs.increment();
+        try {
+            BookService.onRemoteChange(Entity.CATALOG, 0);
+            MemberService.onRemoteChange(Entity.MEMBER, 0);
+            MemberService.onRemoteChange(Entity.BORROWS, 0);
+            InsightBoard.refreshRecent();
+            DueDateScheduler.reload();
+        } catch (RuntimeException e) {
+            System.err.println("Cache bus resync error: " + e.getMessage());
+        }
+    }
+
+    private static long key(Entity entity, int id) {
+        return ((long) entity.ordinal() << 32) | (id & 0xFFFFFFFFL);
+    }
+}
\ No newline at end of file
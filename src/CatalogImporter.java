@@ -0,0 +1,371 @@
+package src;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.Year;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+// Streams a CSV catalog export into the books table.
+// Expected columns: isbn,title,author,category,published_year,total_copies (header row optional).
+// A reader thread cuts the file into chunks, a worker pool parses and validates them, and the
+// calling thread upserts the rows on isbn in batched transactions, in file order.
+public class CatalogImporter {
+    public interface ProgressListener {
+        void onProgress(ImportReport progress);
+    }
+
+    public static class RowError {
+        public final long lineNumber;
+        public final String message;
+        public RowError(long lineNumber, String message) {
+            this.lineNumber = lineNumber;
+            this.message = message;
+        }
+    }
+
+    public static class ImportReport {
+        public final long rowsRead;
+        public final long rowsImported;
+        public final long rowsRejected;
+        public final List<RowError> errors;
+        public final long elapsedMillis;
+        public ImportReport(long rowsRead, long rowsImported, long rowsRejected, List<RowError> errors, long elapsedMillis) {
+            this.rowsRead = rowsRead;
+            this.rowsImported = rowsImported;
+            this.rowsRejected = rowsRejected;
+            this.errors = errors;
+            this.elapsedMillis = elapsedMillis;
+        }
+    }
+
+    private static class Row {
+        final long lineNumber;
+        final String isbn;
+        final String title;
+        final String author;
+        final String category;
+        final int publishedYear;
+        final int totalCopies;
+        Row(long lineNumber, String isbn, String title, String author, String category, int publishedYear, int totalCopies) {
+            this.lineNumber = lineNumber;
+            this.isbn = isbn;
+            this.title = title;
+            this.author = author;
+            this.category = category;
+            this.publishedYear = publishedYear;
+            this.totalCopies = totalCopies;
+        }
+    }
+
+    private static class ParsedChunk {
+        final List<Row> rows = new ArrayList<>();
+        final List<RowError> errors = new ArrayList<>();
+        long linesRead;
+    }
+
+    private static final int MAX_REPORTED_ERRORS = 1000;
+    private static final int LINES_PER_CHUNK = 1000;
+    // Stays under Oracle's limit of 1000 values in an IN list.
+    private static final int JOURNAL_LOOKUP_SIZE = 500;
+
+    // Existing titles get their metadata replaced and available copies recomputed from the new total.
+    private static final String UPSERT_SQL =
+            "MERGE INTO books b USING (SELECT ? AS isbn, ? AS title, ? AS author, ? AS category, ? AS published_year, ? AS total_copies FROM dual) s " +
+            "ON (b.isbn = s.isbn) " +
+            "WHEN MATCHED THEN UPDATE SET b.title = s.title, b.author = s.author, b.category = s.category, b.published_year = s.published_year, " +
+            "b.available_copies = GREATEST(0, s.total_copies - b.borrowed_copies - b.held_copies), b.total_copies = s.total_copies, b.version = b.version + 1 " +
+            "WHEN NOT MATCHED THEN INSERT (isbn, title, author, category, published_year, total_copies, available_copies, status) " +
+            "VALUES (s.isbn, s.title, s.author, s.category, s.published_year, s.total_copies, s.total_copies, 'AVAILABLE')";
+
+    private final int workers;
+    private final int batchSize;
+    private final ProgressListener listener;
+
+    public CatalogImporter(int workers, int batchSize, ProgressListener listener) {
+        this.workers = Math.max(1, workers);
+        this.batchSize = Math.max(1, batchSize);
+        this.listener = listener;
+    }
+
+    public ImportReport importCsv(Path file) throws IOException, SQLException {
+        long start = System.currentTimeMillis();
+        ExecutorService parsers = Executors.newFixedThreadPool(workers, r -> {
+            Thread t = new Thread(r, "lexora-import-parser");
+            t.setDaemon(true);
+            return t;
+        });
+        // Bounded so the reader cannot run ahead of the database by more than a few chunks.
+        BlockingQueue<Future<ParsedChunk>> pending = new ArrayBlockingQueue<>(workers * 2);
+        Future<ParsedChunk> endOfFile = parsers.submit(() -> null);
+        Thread reader = new Thread(() -> readChunks(file, parsers, pending, endOfFile), "lexora-import-reader");
+        reader.setDaemon(true);
+        reader.start();
+
+        long rowsRead = 0;
+        long imported = 0;
+        long rejected = 0;
+        List<RowError> errors = new ArrayList<>();
+        List<Row> batch = new ArrayList<>(batchSize);
+        try (Connection conn = DbUtil.getConnection()) {
+            conn.setAutoCommit(false);
+            try {
+                while (true) {
+                    Future<ParsedChunk> next = pending.take();
+                    if (next == endOfFile) {
+                        break;
+                    }
+                    ParsedChunk chunk = next.get();
+                    rowsRead += chunk.linesRead;
+                    rejected += chunk.errors.size();
+                    addErrors(errors, chunk.errors);
+                    for (Row row : chunk.rows) {
+                        batch.add(row);
+                        if (batch.size() == batchSize) {
+                            int written = writeBatch(conn, batch, errors);
+                            imported += written;
+                            rejected += batch.size() - written;
+                            batch.clear();
+                        }
+                    }
+                    if (listener != null) {
+                        listener.onProgress(new ImportReport(rowsRead, imported, rejected, errors, System.currentTimeMillis() - start));
+                    }
+                }
+                if (!batch.isEmpty()) {
+                    int written = writeBatch(conn, batch, errors);
+                    imported += written;
+                    rejected += batch.size() - written;
+                }
+            } finally {
+                conn.setAutoCommit(true);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Import interrupted", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            throw cause instanceof IOException ? (IOException) cause : new IOException("Import failed", cause);
+        } finally {
+            reader.interrupt();
+            parsers.shutdownNow();
+            if (imported > 0) {
+                BookService.catalogChanged();
+            }
+        }
+        ImportReport report = new ImportReport(rowsRead, imported, rejected, errors, System.currentTimeMillis() - start);
+        if (listener != null) {
+            listener.onProgress(report);
+        }
+        return report;
+    }
+
+    private void readChunks(Path file, ExecutorService parsers, BlockingQueue<Future<ParsedChunk>> pending, Future<ParsedChunk> endOfFile) {
+        try {
+            try (BufferedReader in = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+                long lineNumber = 0;
+                List<String> lines = new ArrayList<>(LINES_PER_CHUNK);
+                long firstLine = 1;
+                String line;
+                while ((line = in.readLine()) != null) {
+                    lineNumber++;
+                    if (lineNumber == 1 && line.trim().toLowerCase().startsWith("isbn")) {
+                        firstLine = 2;
+                        continue;
+                    }
+                    lines.add(line);
+                    if (lines.size() == LINES_PER_CHUNK) {
+                        pending.put(submitChunk(parsers, lines, firstLine));
+                        firstLine = lineNumber + 1;
+                        lines = new ArrayList<>(LINES_PER_CHUNK);
+                    }
+                }
+                if (!lines.isEmpty()) {
+                    pending.put(submitChunk(parsers, lines, firstLine));
+                }
+            } catch (IOException e) {
+                pending.put(parsers.submit(() -> {
+                    throw e;
+                }));
+            }
+            pending.put(endOfFile);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static Future<ParsedChunk> submitChunk(ExecutorService parsers, List<String> lines, long firstLine) {
+        return parsers.submit(() -> {
+            ParsedChunk chunk = new ParsedChunk();
+            long lineNumber = firstLine;
+            for (String line : lines) {
+                chunk.linesRead++;
+                if (!line.trim().isEmpty()) {
+                    parseRow(line, lineNumber, chunk);
+                }
+                lineNumber++;
+            }
+            return chunk;
+        });
+    }
+
+    private static void parseRow(String line, long lineNumber, ParsedChunk chunk) {
+        List<String> fields = splitCsv(line);
+        if (fields.size() != 6) {
+            chunk.errors.add(new RowError(lineNumber, "Expected 6 columns but found " + fields.size()));
+            return;
+        }
+        String isbn = fields.get(0).trim();
+        String title = fields.get(1).trim();
+        if (isbn.isEmpty() || title.isEmpty()) {
+            chunk.errors.add(new RowError(lineNumber, "ISBN and title are required"));
+            return;
+        }
+        int year;
+        int copies;
+        try {
+            year = Integer.parseInt(fields.get(4).trim());
+            copies = Integer.parseInt(fields.get(5).trim());
+        } catch (NumberFormatException e) {
+            chunk.errors.add(new RowError(lineNumber, "Invalid number: " + e.getMessage()));
+            return;
+        }
+        if (year < 0 || year > Year.now().getValue() + 1) {
+            chunk.errors.add(new RowError(lineNumber, "Invalid published year: " + year));
+            return;
+        }
+        if (copies < 0) {
+            chunk.errors.add(new RowError(lineNumber, "Total copies cannot be negative"));
+            return;
+        }
+        chunk.rows.add(new Row(lineNumber, isbn, title, fields.get(2).trim(), fields.get(3).trim(), year, copies));
+    }
+
+    // Splits one CSV line, honouring double-quoted fields and "" escapes.
+    static List<String> splitCsv(String line) {
+        List<String> fields = new ArrayList<>();
+        StringBuilder current = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c == '"' && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    current.append('"');
+                    i++;
+                } else if (c == '"') {
+                    quoted = false;
+                } else {
+                    current.append(c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                fields.add(current.toString());
+                current.setLength(0);
+            } else {
+                current.append(c);
+            }
+        }
+        fields.add(current.toString());
+        return fields;
+    }
+
+    // Writes one batch in its own transaction. If the batch fails, it is retried row by row so
+    // only the offending rows are rejected. Returns the number of rows written.
+    private static int writeBatch(Connection conn, List<Row> batch, List<RowError> errors) throws SQLException {
+        try (PreparedStatement ps = conn.prepareStatement(UPSERT_SQL)) {
+            for (Row row : batch) {
+                bind(ps, row);
+                ps.addBatch();
+            }
+            ps.executeBatch();
+            conn.commit();
+        } catch (SQLException e) {
+            conn.rollback();
+            return writeRows(conn, batch, errors);
+        }
+        journalCopies(conn, batch);
+        return batch.size();
+    }
+
+    // Fallback after a failed batch: each row on its own, so one bad row rejects only itself.
+    private static int writeRows(Connection conn, List<Row> batch, List<RowError> errors) throws SQLException {
+        List<Row> written = new ArrayList<>();
+        try (PreparedStatement ps = conn.prepareStatement(UPSERT_SQL)) {
+            for (Row row : batch) {
+                try {
+                    bind(ps, row);
+                    ps.executeUpdate();
+                    conn.commit();
+                    written.add(row);
+                } catch (SQLException e) {
+                    conn.rollback();
+                    List<RowError> rowError = new ArrayList<>();
+                    rowError.add(new RowError(row.lineNumber, e.getMessage()));
+                    addErrors(errors, rowError);
+                }
+            }
+        }
+        journalCopies(conn, written);
+        return written.size();
+    }
+
+    // Journals each committed row's total_copies as an ADJUSTMENT. MERGE does not say which book_id it
+    // touched, so they are looked up by isbn.
+    private static void journalCopies(Connection conn, List<Row> rows) {
+        for (int from = 0; from < rows.size(); from += JOURNAL_LOOKUP_SIZE) {
+            List<Row> part = rows.subList(from, Math.min(rows.size(), from + JOURNAL_LOOKUP_SIZE));
+            StringBuilder sql = new StringBuilder("SELECT book_id, total_copies FROM books WHERE isbn IN (");
+            for (int i = 0; i < part.size(); i++) {
+                sql.append(i == 0 ? "?" : ", ?");
+            }
+            sql.append(")");
+            try (PreparedStatement ps = conn.prepareStatement(sql.toString())) {
+                int i = 1;
+                for (Row row : part) {
+                    ps.setString(i++, row.isbn);
+                }
+                try (ResultSet rs = ps.executeQuery()) {
+                    while (rs.next()) {
+                        CirculationJournal.adjusted(rs.getInt(1), rs.getInt(2));
+                    }
+                }
+                conn.commit();
+            } catch (SQLException e) {
+                ServiceException.record(e);
+                System.err.println("Journal import error: " + e.getMessage());
+            }
+        }
+    }
+
+    private static void bind(PreparedStatement ps, Row row) throws SQLException {
+        ps.setString(1, row.isbn);
+        ps.setString(2, row.title);
+        ps.setString(3, row.author);
+        ps.setString(4, row.category);
+        ps.setInt(5, row.publishedYear);
+        ps.setInt(6, row.totalCopies);
+    }
+
+    private static void addErrors(List<RowError> errors, List<RowError> more) {
+        for (RowError e : more) {
+            if (errors.size() >= MAX_REPORTED_ERRORS) {
+                return;
+            }
+            errors.add(e);
+        }
+    }
+}
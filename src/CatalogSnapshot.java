@@ -0,0 +1,399 @@
+package src;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+// Read-optimized, columnar copy of the books table. Each attribute is one int[] column indexed by
+// row, rows are kept in book_id order, author/category/status are dictionary codes and title/isbn
+// are UTF-8 slices of one shared byte[] per column. Book objects are only built for rows a caller
+// asks for, and filters scan the int columns without touching any strings.
+public class CatalogSnapshot {
+    // Null fields match anything; fromYear/toYear of 0 are open bounds.
+    public static class Filter {
+        public final String category;
+        public final String author;
+        public final String status;
+        public final int fromYear;
+        public final int toYear;
+        public final boolean availableOnly;
+        public Filter(String category, String author, String status, int fromYear, int toYear, boolean availableOnly) {
+            this.category = category;
+            this.author = author;
+            this.status = status;
+            this.fromYear = fromYear;
+            this.toYear = toYear;
+            this.availableOnly = availableOnly;
+        }
+    }
+
+    private static final int ID = 0;
+    private static final int YEAR = 1;
+    private static final int TOTAL = 2;
+    private static final int AVAILABLE = 3;
+    private static final int BORROWED = 4;
+    private static final int AUTHOR = 5;
+    private static final int CATEGORY = 6;
+    private static final int STATUS = 7;
+    private static final int TITLE_OFFSET = 8;
+    private static final int TITLE_LENGTH = 9;
+    private static final int ISBN_OFFSET = 10;
+    private static final int ISBN_LENGTH = 11;
+    private static final int COLUMNS = 12;
+
+    private static final int NULL_CODE = -1;
+    private static final int NO_SUCH_CODE = -2;
+
+    // String dictionary, only read and written under the snapshot lock. Codes of values no row uses any
+    // more are kept until clear(), which starts over with empty dictionaries.
+    private static class Dictionary {
+        final Map<String, Integer> codes = new HashMap<>();
+        final List<String> values = new ArrayList<>();
+
+        int encode(String value) {
+            if (value == null) {
+                return NULL_CODE;
+            }
+            Integer code = codes.get(value);
+            if (code == null) {
+                code = values.size();
+                codes.put(value, code);
+                values.add(value);
+            }
+            return code;
+        }
+
+        int lookup(String value) {
+            Integer code = codes.get(value);
+            return code != null ? code : NO_SUCH_CODE;
+        }
+
+        String decode(int code) {
+            return code == NULL_CODE ? null : values.get(code);
+        }
+    }
+
+    // UTF-8 bytes of every value back to back; replaced values become garbage until the next compaction.
+    private static class StringStore {
+        byte[] bytes = new byte[4096];
+        int used;
+        int garbage;
+
+        int append(byte[] source, int from, int length) {
+            if (used + length > bytes.length) {
+                bytes = Arrays.copyOf(bytes, Math.max(bytes.length * 2, used + length));
+            }
+            System.arraycopy(source, from, bytes, used, length);
+            int offset = used;
+            used += length;
+            return offset;
+        }
+
+        String read(int offset, int length) {
+            return length < 0 ? null : new String(bytes, offset, length, StandardCharsets.UTF_8);
+        }
+    }
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private int[][] columns = new int[COLUMNS][1024];
+    private int size;
+    private Dictionary authors = new Dictionary();
+    private Dictionary categories = new Dictionary();
+    private Dictionary statuses = new Dictionary();
+    private StringStore titles = new StringStore();
+    private StringStore isbns = new StringStore();
+
+    // Inserts or replaces the row for book.bookId. Rows arriving in book_id order are appended.
+    public void put(BookService.Book book) {
+        lock.writeLock().lock();
+        try {
+            int row = size > 0 && book.bookId > columns[ID][size - 1] ? -(size + 1) : find(book.bookId);
+            if (row >= 0) {
+                titles.garbage += Math.max(0, columns[TITLE_LENGTH][row]);
+                isbns.garbage += Math.max(0, columns[ISBN_LENGTH][row]);
+            } else {
+                row = -(row + 1);
+                insertRow(row);
+            }
+            int[][] c = columns;
+            c[ID][row] = book.bookId;
+            c[YEAR][row] = book.publishedYear;
+            c[TOTAL][row] = book.totalCopies;
+            c[AVAILABLE][row] = book.availableCopies;
+            c[BORROWED][row] = book.borrowedCopies;
+            c[AUTHOR][row] = authors.encode(book.author);
+            c[CATEGORY][row] = categories.encode(book.category);
+            c[STATUS][row] = statuses.encode(book.status);
+            writeString(titles, book.title, row, TITLE_OFFSET, TITLE_LENGTH);
+            writeString(isbns, book.isbn, row, ISBN_OFFSET, ISBN_LENGTH);
+            compactIfNeeded();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(int bookId) {
+        lock.writeLock().lock();
+        try {
+            int row = find(bookId);
+            if (row < 0) {
+                return;
+            }
+            titles.garbage += Math.max(0, columns[TITLE_LENGTH][row]);
+            isbns.garbage += Math.max(0, columns[ISBN_LENGTH][row]);
+            for (int[] column : columns) {
+                System.arraycopy(column, row + 1, column, row, size - row - 1);
+            }
+            size--;
+            compactIfNeeded();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void clear() {
+        lock.writeLock().lock();
+        try {
+            columns = new int[COLUMNS][1024];
+            size = 0;
+            titles = new StringStore();
+            isbns = new StringStore();
+            authors = new Dictionary();
+            categories = new Dictionary();
+            statuses = new Dictionary();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return size;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public BookService.Book get(int bookId) {
+        lock.readLock().lock();
+        try {
+            int row = find(bookId);
+            return row >= 0 ? view(row) : null;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // The books among bookIds that are in the snapshot, in the order given.
+    public List<BookService.Book> getAll(Collection<Integer> bookIds) {
+        lock.readLock().lock();
+        try {
+            List<BookService.Book> books = new ArrayList<>(bookIds.size());
+            for (int bookId : bookIds) {
+                int row = find(bookId);
+                if (row >= 0) {
+                    books.add(view(row));
+                }
+            }
+            return books;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Every book in book_id order.
+    public List<BookService.Book> toBooks() {
+        lock.readLock().lock();
+        try {
+            List<BookService.Book> books = new ArrayList<>(size);
+            for (int row = 0; row < size; row++) {
+                books.add(view(row));
+            }
+            return books;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Up to limit books with book_id > afterBookId, in book_id order.
+    public List<BookService.Book> page(int afterBookId, int limit) {
+        lock.readLock().lock();
+        try {
+            int row = find(afterBookId);
+            row = row >= 0 ? row + 1 : -(row + 1);
+            List<BookService.Book> books = new ArrayList<>();
+            for (; row < size && books.size() < limit; row++) {
+                books.add(view(row));
+            }
+            return books;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Matching books in book_id order. Filter strings are resolved to codes once; the scan itself
+    // only compares ints.
+    public List<BookService.Book> filter(Filter f) {
+        lock.readLock().lock();
+        try {
+            List<BookService.Book> books = new ArrayList<>();
+            int category = f.category == null ? NULL_CODE : categories.lookup(f.category);
+            int author = f.author == null ? NULL_CODE : authors.lookup(f.author);
+            int status = f.status == null ? NULL_CODE : statuses.lookup(f.status);
+            if (category == NO_SUCH_CODE || author == NO_SUCH_CODE || status == NO_SUCH_CODE) {
+                return books;
+            }
+            int fromYear = f.fromYear > 0 ? f.fromYear : Integer.MIN_VALUE;
+            int toYear = f.toYear > 0 ? f.toYear : Integer.MAX_VALUE;
+            int[] years = columns[YEAR];
+            int[] available = columns[AVAILABLE];
+            int[] categoryCodes = columns[CATEGORY];
+            int[] authorCodes = columns[AUTHOR];
+            int[] statusCodes = columns[STATUS];
+            for (int row = 0; row < size; row++) {
+                if (years[row] < fromYear || years[row] > toYear
+                        || (f.availableOnly && available[row] <= 0)
+                        || (category != NULL_CODE && categoryCodes[row] != category)
+                        || (author != NULL_CODE && authorCodes[row] != author)
+                        || (status != NULL_CODE && statusCodes[row] != status)) {
+                    continue;
+                }
+                books.add(view(row));
+            }
+            return books;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Per category: {titles, total copies, borrowed copies, issues}, where issues are counts[i] loans of
+    // bookIds[i] (books no longer in the catalog are skipped). Null categories are reported as "".
+    public Map<String, long[]> categoryTotals(int[] bookIds, int[] counts, int length) {
+        lock.readLock().lock();
+        try {
+            long[][] byCode = new long[categories.values.size() + 1][4];
+            for (int row = 0; row < size; row++) {
+                long[] t = byCode[columns[CATEGORY][row] + 1];
+                t[0]++;
+                t[1] += columns[TOTAL][row];
+                t[2] += columns[BORROWED][row];
+            }
+            for (int i = 0; i < length; i++) {
+                int row = find(bookIds[i]);
+                if (row >= 0) {
+                    byCode[columns[CATEGORY][row] + 1][3] += counts[i];
+                }
+            }
+            Map<String, long[]> totals = new HashMap<>();
+            for (int code = NULL_CODE; code < categories.values.size(); code++) {
+                long[] t = byCode[code + 1];
+                if (t[0] > 0) {
+                    totals.put(code == NULL_CODE ? "" : categories.decode(code), t);
+                }
+            }
+            return totals;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Approximate heap held by the columns, string stores and dictionaries.
+    public long estimatedBytes() {
+        lock.readLock().lock();
+        try {
+            long bytes = (long) COLUMNS * columns[ID].length * Integer.BYTES + titles.bytes.length + isbns.bytes.length;
+            for (Dictionary d : new Dictionary[] {authors, categories, statuses}) {
+                for (String value : d.values) {
+                    bytes += 64 + 2L * value.length();
+                }
+            }
+            return bytes;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public String toString() {
+        lock.readLock().lock();
+        try {
+            return "books=" + size + ", authors=" + authors.values.size() + ", categories=" + categories.values.size() + ", ~" + (estimatedBytes() / 1024) + " KB";
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private BookService.Book view(int row) {
+        int[][] c = columns;
+        return new BookService.Book(
+            c[ID][row],
+            isbns.read(c[ISBN_OFFSET][row], c[ISBN_LENGTH][row]),
+            titles.read(c[TITLE_OFFSET][row], c[TITLE_LENGTH][row]),
+            authors.decode(c[AUTHOR][row]),
+            categories.decode(c[CATEGORY][row]),
+            c[YEAR][row],
+            c[TOTAL][row],
+            c[AVAILABLE][row],
+            c[BORROWED][row],
+            statuses.decode(c[STATUS][row])
+        );
+    }
+
+    // Row index of bookId, or -(insertion point + 1) when absent.
+    private int find(int bookId) {
+        return Arrays.binarySearch(columns[ID], 0, size, bookId);
+    }
+
+    private void insertRow(int row) {
+        if (size == columns[ID].length) {
+            int capacity = size + (size >> 1);
+            for (int i = 0; i < COLUMNS; i++) {
+                columns[i] = Arrays.copyOf(columns[i], capacity);
+            }
+        }
+        if (row < size) {
+            for (int[] column : columns) {
+                System.arraycopy(column, row, column, row + 1, size - row);
+            }
+        }
+        size++;
+    }
+
+    private void writeString(StringStore store, String value, int row, int offsetColumn, int lengthColumn) {
+        if (value == null) {
+            columns[offsetColumn][row] = 0;
+            columns[lengthColumn][row] = -1;
+            return;
+        }
+        byte[] encoded = value.getBytes(StandardCharsets.UTF_8);
+        columns[offsetColumn][row] = store.append(encoded, 0, encoded.length);
+        columns[lengthColumn][row] = encoded.length;
+    }
+
+    // Rewrites a string store once more than half of it is replaced or deleted values.
+    private void compactIfNeeded() {
+        titles = compact(titles, TITLE_OFFSET, TITLE_LENGTH);
+        isbns = compact(isbns, ISBN_OFFSET, ISBN_LENGTH);
+    }
+
+    private StringStore compact(StringStore store, int offsetColumn, int lengthColumn) {
+        if (store.garbage < 4096 || store.garbage * 2 < store.used) {
+            return store;
+        }
+        StringStore fresh = new StringStore();
+        fresh.bytes = new byte[Math.max(4096, store.used - store.garbage)];
+        for (int row = 0; row < size; row++) {
+            int length = columns[lengthColumn][row];
+            if (length >= 0) {
+                columns[offsetColumn][row] = fresh.append(store.bytes, columns[offsetColumn][row], length);
+            }
+        }
+        return fresh;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,134 @@
+package src;
+
+import java.time.Instant;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+// Trips after failureThreshold failures within windowMillis and then rejects every call for
+// openMillis. After that one trial call is let through (half-open): if it succeeds the breaker
+// closes, and if it fails the breaker stays open for another openMillis. A trial that never reports
+// back is replaced after openMillis. Callers report outcomes themselves; the listener hears about
+// every change of state.
+public class CircuitBreaker {
+    public enum State { CLOSED, OPEN, HALF_OPEN }
+
+    public interface Listener {
+        void stateChanged(State from, State to);
+    }
+
+    public static class Stats {
+        public final State state;
+        public final long openedAt;
+        public final long opens;
+        public final long rejected;
+        public Stats(State state, long openedAt, long opens, long rejected) {
+            this.state = state;
+            this.openedAt = openedAt;
+            this.opens = opens;
+            this.rejected = rejected;
+        }
+
+        @Override
+        public String toString() {
+            String since = state == State.CLOSED ? "" : " since " + Instant.ofEpochMilli(openedAt);
+            return state.name().toLowerCase().replace('_', '-') + since + ", opened " + opens + " times, " + rejected + " calls rejected";
+        }
+    }
+
+    private final int failureThreshold;
+    private final long windowNanos;
+    private final long openNanos;
+    private final Listener listener;
+
+    // guarded by this
+    private State state = State.CLOSED;
+    // Times of the last failureThreshold failures, oldest at next.
+    private final long[] failures;
+    private int next;
+    private int count;
+    private long retryAt;
+    private long openedAt;
+    private long opens;
+    private final LongAdder rejected = new LongAdder();
+
+    public CircuitBreaker(int failureThreshold, long windowMillis, long openMillis, Listener listener) {
+        if (failureThreshold < 1) {
+            throw new IllegalArgumentException("Invalid failure threshold: " + failureThreshold);
+        }
+        this.failureThreshold = failureThreshold;
+        this.windowNanos = TimeUnit.MILLISECONDS.toNanos(windowMillis);
+        this.openNanos = TimeUnit.MILLISECONDS.toNanos(openMillis);
+        this.listener = listener;
+        this.failures = new long[failureThreshold];
+    }
+
+    // True if the call may go ahead; while half-open only the trial call gets true.
+    public boolean allowRequest() {
+        State from;
+        synchronized (this) {
+            long now = System.nanoTime();
+            if (state == State.CLOSED) {
+                return true;
+            }
+            if (now - retryAt < 0) {
+                rejected.increment();
+                return false;
+            }
+            from = state;
+            state = State.HALF_OPEN;
+            retryAt = now + openNanos;
+        }
+        if (from != State.HALF_OPEN) {
+            listener.stateChanged(from, State.HALF_OPEN);
+        }
+        return true;
+    }
+
+    public void onSuccess() {
+        synchronized (this) {
+            if (state != State.HALF_OPEN) {
+                return;
+            }
+            state = State.CLOSED;
+            count = 0;
+        }
+        listener.stateChanged(State.HALF_OPEN, State.CLOSED);
+    }
+
+    public void onFailure() {
+        State from;
+        synchronized (this) {
+            long now = System.nanoTime();
+            from = state;
+            if (from == State.OPEN) {
+                return;
+            }
+            if (from == State.CLOSED) {
+                failures[next] = now;
+                next = (next + 1) % failureThreshold;
+                count = Math.min(count + 1, failureThreshold);
+                if (count < failureThreshold || now - failures[next] > windowNanos) {
+                    return;
+                }
+                openedAt = System.currentTimeMillis();
+                opens++;
+            }
+            state = State.OPEN;
+            retryAt = now + openNanos;
+        }
+        listener.stateChanged(from, State.OPEN);
+    }
+
+    public synchronized State getState() {
+        return state;
+    }
+
+    // How long until a trial call is let through; 0 while closed.
+    public synchronized long retryAfterMillis() {
+        return state == State.CLOSED ? 0L : Math.max(0L, TimeUnit.NANOSECONDS.toMillis(retryAt - System.nanoTime()));
+    }
+
+    public synchronized Stats getStats() {
+        return new Stats(state, openedAt, opens, rejected.sum());
+    }
+}
\ No newline at end of file
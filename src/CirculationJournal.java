@@ -0,0 +1,414 @@
+package src;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.zip.CRC32;
+
+// Append-only journal of circulation events: issues, returns, fines, inventory adjustments and copies
+// set aside for holds. Reports, caches and audits can rebuild their state by replaying it instead of
+// querying the live tables. A book's counters follow from its events: ISSUE moves a copy from available
+// to borrowed and RETURN moves it back. HOLD_READY moves one from available to held, and HOLD_RELEASED
+// moves it back, whether the hold expired, was cancelled or was checked out (the ISSUE that follows then
+// takes it as usual). ADJUSTMENT sets total_copies, and available is then total minus borrowed minus held.
+// Events go into fixed-size memory-mapped segment files under -Dlexora.journal.dir, one record per
+// event, framed by its length and a CRC32. On the next start a torn tail left by a crash is found and
+// cut off. Appending only copies bytes into the mapping. One flusher thread forces the written pages to
+// disk every lexora.journal.flushMs, so every event appended in between shares one sync (group commit).
+// Events are journaled after the database commit. After a crash the journal can lack the last few
+// events, but it never holds one the database rolled back.
+public class CirculationJournal {
+    // New types go at the end, since the ordinal is what is stored.
+    public enum EventType { ISSUE, RETURN, FINE, ADJUSTMENT, HOLD_READY, HOLD_RELEASED }
+
+    // borrowId is the loan on ISSUE, RETURN and FINE, the hold on HOLD_READY and HOLD_RELEASED, and 0 on
+    // an ADJUSTMENT. fineAmount is the fine on a RETURN and the new fine on a FINE. copies is the book's
+    // total_copies after an ADJUSTMENT (0 once the book is deleted).
+    public static class Event {
+        public final long seq;
+        public final long timestamp;
+        public final EventType type;
+        public final int borrowId;
+        public final int memberId;
+        public final int bookId;
+        public final double fineAmount;
+        public final int copies;
+        public Event(long seq, long timestamp, EventType type, int borrowId, int memberId, int bookId, double fineAmount, int copies) {
+            this.seq = seq;
+            this.timestamp = timestamp;
+            this.type = type;
+            this.borrowId = borrowId;
+            this.memberId = memberId;
+            this.bookId = bookId;
+            this.fineAmount = fineAmount;
+            this.copies = copies;
+        }
+    }
+
+    public interface EventSink {
+        void onEvent(Event event);
+    }
+
+    public static class Stats {
+        public final boolean open;
+        public final int segments;
+        public final long lastSeq;
+        public final long durableSeq;
+        public final long syncs;
+        public Stats(boolean open, int segments, long lastSeq, long durableSeq, long syncs) {
+            this.open = open;
+            this.segments = segments;
+            this.lastSeq = lastSeq;
+            this.durableSeq = durableSeq;
+            this.syncs = syncs;
+        }
+
+        @Override
+        public String toString() {
+            if (!open) {
+                return "closed";
+            }
+            return lastSeq + " events in " + segments + " segment(s), durable through #" + durableSeq + ", " + syncs + " syncs";
+        }
+    }
+
+    private static final boolean ENABLED = Boolean.parseBoolean(System.getProperty("lexora.journal.enabled", "true"));
+    private static final Path DIR = Paths.get(System.getProperty("lexora.journal.dir", "journal"));
+    private static final int SEGMENT_BYTES = Integer.getInteger("lexora.journal.segmentBytes", 64 * 1024 * 1024);
+    private static final long FLUSH_MS = Long.getLong("lexora.journal.flushMs", 10L);
+    // When set, circulation calls return only once their event is on disk.
+    private static final boolean SYNC_WRITES = Boolean.getBoolean("lexora.journal.syncWrites");
+
+    private static final int MAGIC = 0x4C584A31; // "LXJ1"
+    private static final int HEADER_BYTES = 16; // magic, reserved, first seq
+    private static final int PAYLOAD_BYTES = 41; // seq, timestamp, type, borrow id, member id, book id, fine cents, copies
+    private static final int RECORD_BYTES = 8 + PAYLOAD_BYTES; // length, crc, payload
+    private static final String SUFFIX = ".seg";
+    private static final EventType[] TYPES = EventType.values();
+
+    private static final Object LOCK = new Object();
+    // first seq -> segment file
+    private static final NavigableMap<Long, Path> segments = new TreeMap<>();
+    private static final ByteBuffer scratch = ByteBuffer.allocate(PAYLOAD_BYTES);
+    private static final CRC32 crc = new CRC32();
+    private static MappedByteBuffer active;
+    private static int position;
+    private static long nextSeq;
+    private static long syncs;
+    private static boolean syncRequested;
+    private static Thread flusher;
+    private static volatile boolean open = false;
+    private static volatile long durableSeq;
+
+    // Opens the newest segment, drops any torn tail and starts the flusher. Safe to call more than once.
+    public static boolean start() {
+        if (!ENABLED) {
+            return false;
+        }
+        synchronized (LOCK) {
+            if (open) {
+                return true;
+            }
+            try {
+                Files.createDirectories(DIR);
+                segments.clear();
+                try (DirectoryStream<Path> files = Files.newDirectoryStream(DIR, "*" + SUFFIX)) {
+                    for (Path file : files) {
+                        String name = file.getFileName().toString();
+                        segments.put(Long.parseLong(name.substring(0, name.length() - SUFFIX.length())), file);
+                    }
+                }
+                if (segments.isEmpty()) {
+                    openSegment(1);
+                } else {
+                    recover(segments.lastEntry().getValue());
+                }
+            } catch (IOException | RuntimeException e) {
+                System.err.println("Open circulation journal error: " + e.getMessage());
+                active = null;
+                return false;
+            }
+            durableSeq = nextSeq - 1;
+            open = true;
+            if (flusher == null) {
+                flusher = new Thread(CirculationJournal::flushLoop, "lexora-journal-flusher");
+                flusher.setDaemon(true);
+                flusher.start();
+                Runtime.getRuntime().addShutdownHook(new Thread(CirculationJournal::close, "lexora-journal-shutdown"));
+            }
+            return true;
+        }
+    }
+
+    public static boolean isOpen() {
+        return open;
+    }
+
+    static void issued(int borrowId, int memberId, int bookId) {
+        record(EventType.ISSUE, borrowId, memberId, bookId, 0.0, 0);
+    }
+
+    static void returned(int borrowId, int memberId, int bookId, double fineAmount) {
+        record(EventType.RETURN, borrowId, memberId, bookId, fineAmount, 0);
+    }
+
+    static void fined(int borrowId, double fineAmount) {
+        record(EventType.FINE, borrowId, 0, 0, fineAmount, 0);
+    }
+
+    static void adjusted(int bookId, int totalCopies) {
+        record(EventType.ADJUSTMENT, 0, 0, bookId, 0.0, totalCopies);
+    }
+
+    static void holdReady(int holdId, int memberId, int bookId) {
+        record(EventType.HOLD_READY, holdId, memberId, bookId, 0.0, 0);
+    }
+
+    static void holdReleased(int holdId, int memberId, int bookId) {
+        record(EventType.HOLD_RELEASED, holdId, memberId, bookId, 0.0, 0);
+    }
+
+    private static void record(EventType type, int borrowId, int memberId, int bookId, double fineAmount, int copies) {
+        long seq = append(type, borrowId, memberId, bookId, fineAmount, copies);
+        if (SYNC_WRITES && seq > 0) {
+            awaitDurable(seq);
+        }
+    }
+
+    // Writes one event into the active segment and returns its seq, or 0 if the journal is not open.
+    static long append(EventType type, int borrowId, int memberId, int bookId, double fineAmount, int copies) {
+        if (!open) {
+            return 0;
+        }
+        synchronized (LOCK) {
+            if (!open) {
+                return 0;
+            }
+            try {
+                if (position + RECORD_BYTES > active.capacity()) {
+                    roll();
+                }
+            } catch (IOException e) {
+                System.err.println("Circulation journal error, journaling stopped: " + e.getMessage());
+                open = false;
+                return 0;
+            }
+            long seq = nextSeq++;
+            scratch.clear();
+            scratch.putLong(seq).putLong(System.currentTimeMillis()).put((byte) type.ordinal())
+                    .putInt(borrowId).putInt(memberId).putInt(bookId).putLong(Math.round(fineAmount * 100.0)).putInt(copies);
+            scratch.flip();
+            crc.reset();
+            crc.update(scratch);
+            scratch.flip();
+            active.putInt(position, PAYLOAD_BYTES);
+            active.putInt(position + 4, (int) crc.getValue());
+            active.position(position + 8);
+            active.put(scratch);
+            position += RECORD_BYTES;
+            return seq;
+        }
+    }
+
+    // Blocks until the event with this seq is on disk, joining the next group sync. False if the journal closed first.
+    static boolean awaitDurable(long seq) {
+        synchronized (LOCK) {
+            while (durableSeq < seq) {
+                if (!open) {
+                    return false;
+                }
+                syncRequested = true;
+                LOCK.notifyAll();
+                try {
+                    LOCK.wait();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+
+    // Streams every event from fromSeq on, in order, to the sink, reading the segment files sequentially.
+    // Events appended while the replay runs are not included. Returns how many events were delivered,
+    // or -1 if the journal could not be read.
+    public static long replay(long fromSeq, EventSink sink) {
+        List<Map.Entry<Long, Path>> files;
+        long lastSeq;
+        synchronized (LOCK) {
+            if (!open) {
+                return -1;
+            }
+            Long first = segments.floorKey(fromSeq);
+            files = new ArrayList<>((first == null ? segments : segments.tailMap(first, true)).entrySet());
+            lastSeq = nextSeq - 1;
+        }
+        long delivered = 0;
+        CRC32 check = new CRC32();
+        for (Map.Entry<Long, Path> segment : files) {
+            if (segment.getKey() > lastSeq) {
+                break;
+            }
+            MappedByteBuffer buf;
+            try (FileChannel ch = FileChannel.open(segment.getValue(), StandardOpenOption.READ)) {
+                buf = ch.map(FileChannel.MapMode.READ_ONLY, 0, ch.size());
+            } catch (IOException e) {
+                System.err.println("Replay circulation journal error: " + e.getMessage());
+                return -1;
+            }
+            long expected = segment.getKey();
+            for (int pos = HEADER_BYTES; expected <= lastSeq; pos += RECORD_BYTES, expected++) {
+                if (!valid(buf, pos, expected, check)) {
+                    System.err.println("Circulation journal ends early in " + segment.getValue().getFileName() + " at #" + expected);
+                    return delivered;
+                }
+                if (expected >= fromSeq) {
+                    sink.onEvent(read(buf, pos + 8));
+                    delivered++;
+                }
+                if (pos + 2 * RECORD_BYTES > buf.capacity()) {
+                    break;
+                }
+            }
+        }
+        return delivered;
+    }
+
+    public static Stats getStats() {
+        synchronized (LOCK) {
+            return new Stats(open, segments.size(), open ? nextSeq - 1 : 0, durableSeq, syncs);
+        }
+    }
+
+    // Forces what was written and stops journaling. Called on shutdown.
+    static void close() {
+        MappedByteBuffer last;
+        synchronized (LOCK) {
+            if (!open) {
+                return;
+            }
+            open = false;
+            last = active;
+            LOCK.notifyAll();
+        }
+        last.force();
+        synchronized (LOCK) {
+            durableSeq = nextSeq - 1;
+        }
+    }
+
+    private static void flushLoop() {
+        while (true) {
+            MappedByteBuffer target;
+            long upTo;
+            synchronized (LOCK) {
+                try {
+                    if (!syncRequested) {
+                        LOCK.wait(FLUSH_MS);
+                    }
+                } catch (InterruptedException e) {
+                    return;
+                }
+                syncRequested = false;
+                upTo = nextSeq - 1;
+                if (!open || upTo <= durableSeq) {
+                    continue;
+                }
+                target = active;
+            }
+            // Appends carry on into the mapping while the pages are forced.
+            target.force();
+            synchronized (LOCK) {
+                if (upTo > durableSeq) {
+                    durableSeq = upTo;
+                }
+                syncs++;
+                LOCK.notifyAll();
+            }
+        }
+    }
+
+    // Syncs the full segment and starts the next one. Called with LOCK held.
+    private static void roll() throws IOException {
+        active.force();
+        syncs++;
+        durableSeq = nextSeq - 1;
+        openSegment(nextSeq);
+    }
+
+    private static void openSegment(long firstSeq) throws IOException {
+        Path file = DIR.resolve(String.format("%020d%s", firstSeq, SUFFIX));
+        try (FileChannel ch = FileChannel.open(file, StandardOpenOption.CREATE_NEW, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            active = ch.map(FileChannel.MapMode.READ_WRITE, 0, SEGMENT_BYTES);
+        }
+        active.putInt(0, MAGIC);
+        active.putLong(8, firstSeq);
+        active.force();
+        segments.put(firstSeq, file);
+        position = HEADER_BYTES;
+        nextSeq = firstSeq;
+    }
+
+    // Maps the newest segment and finds the end of its last intact record.
+    private static void recover(Path file) throws IOException {
+        try (FileChannel ch = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            active = ch.map(FileChannel.MapMode.READ_WRITE, 0, ch.size());
+        }
+        if (active.capacity() < HEADER_BYTES || active.getInt(0) != MAGIC) {
+            throw new IOException(file.getFileName() + " is not a journal segment");
+        }
+        long seq = active.getLong(8);
+        int pos = HEADER_BYTES;
+        CRC32 check = new CRC32();
+        while (pos + RECORD_BYTES <= active.capacity() && valid(active, pos, seq, check)) {
+            pos += RECORD_BYTES;
+            seq++;
+        }
+        if (pos + 4 <= active.capacity() && active.getInt(pos) != 0) {
+            // Torn or stale bytes past the last good record; clear them so they can never be read back.
+            System.err.println("Circulation journal: dropped torn tail of " + file.getFileName() + " after #" + (seq - 1));
+            for (int i = pos; i < active.capacity(); i++) {
+                active.put(i, (byte) 0);
+            }
+            active.force();
+        }
+        position = pos;
+        nextSeq = seq;
+    }
+
+    private static boolean valid(ByteBuffer buf, int pos, long expectedSeq, CRC32 check) {
+        if (pos + RECORD_BYTES > buf.capacity() || buf.getInt(pos) != PAYLOAD_BYTES) {
+            return false;
+        }
+        ByteBuffer payload = buf.duplicate();
+        payload.limit(pos + RECORD_BYTES).position(pos + 8);
+        check.reset();
+        check.update(payload);
+        return (int) check.getValue() == buf.getInt(pos + 4) && buf.getLong(pos + 8) == expectedSeq && (buf.get(pos + 24) & 0xFF) < TYPES.length;
+    }
+
+    private static Event read(ByteBuffer buf, int at) {
+        return new Event(
+            buf.getLong(at),
+            buf.getLong(at + 8),
+            TYPES[buf.get(at + 16)],
+            buf.getInt(at + 17),
+            buf.getInt(at + 21),
+            buf.getInt(at + 25),
+            buf.getLong(at + 29) / 100.0,
+            buf.getInt(at + 37)
+        );
+    }
+}
\ No newline at end of file
@@ -0,0 +1,454 @@
+package src;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.SQLTimeoutException;
+import java.sql.Statement;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Bounded pool of physical JDBC connections. Callers get a proxy whose close() hands the
+// connection back instead of closing it, and whose prepareStatement(String) is served from
+// a small per-connection statement cache. Every statement handed out carries queryTimeoutSeconds.
+public class ConnectionPool {
+    public static class PoolStats {
+        public final int active;
+        public final int idle;
+        public final int total;
+        public final int maxSize;
+        public final long acquired;
+        public final long created;
+        public final long evicted;
+        public final long timeouts;
+        public final double avgWaitMillis;
+        public final double maxWaitMillis;
+        public PoolStats(int active, int idle, int total, int maxSize, long acquired, long created, long evicted, long timeouts, double avgWaitMillis, double maxWaitMillis) {
+            this.active = active;
+            this.idle = idle;
+            this.total = total;
+            this.maxSize = maxSize;
+            this.acquired = acquired;
+            this.created = created;
+            this.evicted = evicted;
+            this.timeouts = timeouts;
+            this.avgWaitMillis = avgWaitMillis;
+            this.maxWaitMillis = maxWaitMillis;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("active=%d, idle=%d, total=%d/%d, acquired=%d, created=%d, evicted=%d, timeouts=%d, avgWait=%.2fms, maxWait=%.2fms",
+                    active, idle, total, maxSize, acquired, created, evicted, timeouts, avgWaitMillis, maxWaitMillis);
+        }
+    }
+
+    private static final int VALIDATION_TIMEOUT_SECONDS = 2;
+
+    private final String url;
+    private final Properties info;
+    private final int minSize;
+    private final int maxSize;
+    private final long acquireTimeoutMillis;
+    private final long idleTimeoutMillis;
+    private final long validationIntervalMillis;
+    private final int statementCacheSize;
+    private final int queryTimeoutSeconds;
+
+    // Most recently returned connections sit at the head, so the tail holds the longest idle ones.
+    private final LinkedBlockingDeque<PooledConnection> idle = new LinkedBlockingDeque<>();
+    private final Semaphore permits;
+    private final AtomicInteger active = new AtomicInteger();
+    private final AtomicInteger total = new AtomicInteger();
+    private final AtomicLong acquired = new AtomicLong();
+    private final AtomicLong created = new AtomicLong();
+    private final AtomicLong evicted = new AtomicLong();
+    private final AtomicLong timeouts = new AtomicLong();
+    private final AtomicLong waitNanosTotal = new AtomicLong();
+    private final AtomicLong waitNanosMax = new AtomicLong();
+    private final ScheduledExecutorService housekeeper;
+    private volatile boolean shutdown;
+
+    // info holds the driver properties (user, password, timeouts); queryTimeoutSeconds of 0 means no limit.
+    public ConnectionPool(String url, Properties info, int minSize, int maxSize, long acquireTimeoutMillis,
+                          long idleTimeoutMillis, long validationIntervalMillis, int statementCacheSize, int queryTimeoutSeconds) {
+        if (minSize < 0 || maxSize < 1 || minSize > maxSize) {
+            throw new IllegalArgumentException("Invalid pool size: min=" + minSize + ", max=" + maxSize);
+        }
+        this.url = url;
+        this.info = info;
+        this.minSize = minSize;
+        this.maxSize = maxSize;
+        this.acquireTimeoutMillis = acquireTimeoutMillis;
+        this.idleTimeoutMillis = idleTimeoutMillis;
+        this.validationIntervalMillis = validationIntervalMillis;
+        this.statementCacheSize = statementCacheSize;
+        this.queryTimeoutSeconds = queryTimeoutSeconds;
+        this.permits = new Semaphore(maxSize, true);
+        this.housekeeper = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "lexora-pool-housekeeper");
+            t.setDaemon(true);
+            return t;
+        });
+        long period = Math.max(1000, idleTimeoutMillis / 2);
+        housekeeper.scheduleWithFixedDelay(this::maintain, 0, period, TimeUnit.MILLISECONDS);
+    }
+
+    public Connection getConnection() throws SQLException {
+        if (shutdown) {
+            throw new SQLException("Connection pool has been shut down");
+        }
+        long start = System.nanoTime();
+        try {
+            if (!permits.tryAcquire(acquireTimeoutMillis, TimeUnit.MILLISECONDS)) {
+                timeouts.incrementAndGet();
+                throw new SQLTimeoutException("Timed out after " + acquireTimeoutMillis + "ms waiting for a database connection");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while waiting for a database connection", e);
+        }
+        recordWait(System.nanoTime() - start);
+        try {
+            PooledConnection pc;
+            while ((pc = idle.pollFirst()) != null) {
+                if (isUsable(pc)) {
+                    break;
+                }
+                discard(pc);
+            }
+            if (pc == null) {
+                pc = open();
+            }
+            active.incrementAndGet();
+            acquired.incrementAndGet();
+            return pc.checkout();
+        } catch (SQLException | RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+    public PoolStats getStats() {
+        long count = acquired.get();
+        double avgWait = count == 0 ? 0.0 : waitNanosTotal.get() / 1_000_000.0 / count;
+        return new PoolStats(active.get(), idle.size(), total.get(), maxSize, count, created.get(),
+                evicted.get(), timeouts.get(), avgWait, waitNanosMax.get() / 1_000_000.0);
+    }
+
+    // Closes every idle connection, e.g. once the database has failed over and they all point at the old host.
+    public void evictIdle() {
+        PooledConnection pc;
+        while ((pc = idle.pollFirst()) != null) {
+            evicted.incrementAndGet();
+            discard(pc);
+        }
+    }
+
+    public void shutdown() {
+        shutdown = true;
+        housekeeper.shutdownNow();
+        PooledConnection pc;
+        while ((pc = idle.pollFirst()) != null) {
+            discard(pc);
+        }
+    }
+
+    private void recordWait(long nanos) {
+        waitNanosTotal.addAndGet(nanos);
+        long max;
+        while (nanos > (max = waitNanosMax.get()) && !waitNanosMax.compareAndSet(max, nanos)) {
+            // retry until the max is published
+        }
+    }
+
+    private PooledConnection open() throws SQLException {
+        Connection physical = DriverManager.getConnection(url, info);
+        total.incrementAndGet();
+        created.incrementAndGet();
+        return new PooledConnection(physical);
+    }
+
+    private boolean isUsable(PooledConnection pc) {
+        if (System.currentTimeMillis() - pc.lastUsed < validationIntervalMillis) {
+            return true;
+        }
+        try {
+            return pc.physical.isValid(VALIDATION_TIMEOUT_SECONDS);
+        } catch (SQLException e) {
+            return false;
+        }
+    }
+
+    private void discard(PooledConnection pc) {
+        total.decrementAndGet();
+        pc.closePhysical();
+    }
+
+    private void release(PooledConnection pc) {
+        active.decrementAndGet();
+        boolean healthy = true;
+        try {
+            if (!pc.physical.getAutoCommit()) {
+                pc.physical.rollback();
+                pc.physical.setAutoCommit(true);
+            }
+        } catch (SQLException e) {
+            healthy = false;
+        }
+        if (healthy && !shutdown) {
+            pc.lastUsed = System.currentTimeMillis();
+            idle.offerFirst(pc);
+        } else {
+            discard(pc);
+        }
+        permits.release();
+    }
+
+    // Closes connections idle past the timeout (never shrinking below minSize) and tops the pool up to minSize.
+    private void maintain() {
+        long now = System.currentTimeMillis();
+        Iterator<PooledConnection> it = idle.descendingIterator();
+        while (it.hasNext() && total.get() > minSize) {
+            PooledConnection pc = it.next();
+            if (now - pc.lastUsed > idleTimeoutMillis && idle.removeFirstOccurrence(pc)) {
+                evicted.incrementAndGet();
+                discard(pc);
+            }
+        }
+        while (!shutdown && total.get() < minSize) {
+            try {
+                idle.offerLast(open());
+            } catch (SQLException e) {
+                System.err.println("Connection pool warm-up error: " + e.getMessage());
+                return;
+            }
+        }
+    }
+
+    private class PooledConnection {
+        final Connection physical;
+        final Map<String, CachedStatement> statements;
+        volatile long lastUsed = System.currentTimeMillis();
+
+        PooledConnection(Connection physical) {
+            this.physical = physical;
+            this.statements = new LinkedHashMap<String, CachedStatement>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, CachedStatement> eldest) {
+                    if (size() <= statementCacheSize) {
+                        return false;
+                    }
+                    eldest.getValue().evict();
+                    return true;
+                }
+            };
+        }
+
+        Connection checkout() {
+            return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(),
+                    new Class<?>[]{Connection.class}, new LogicalConnection(this));
+        }
+
+        PreparedStatement prepare(String sql, Connection logical) throws SQLException {
+            if (statementCacheSize <= 0) {
+                return withTimeout(physical.prepareStatement(sql));
+            }
+            CachedStatement cached = statements.get(sql);
+            if (cached == null) {
+                cached = new CachedStatement(physical.prepareStatement(sql));
+                statements.put(sql, cached);
+            } else if (cached.inUse) {
+                // Same SQL already open on this connection; hand out a private statement.
+                return withTimeout(physical.prepareStatement(sql));
+            }
+            // Set on every checkout, since the previous user may have changed it.
+            withTimeout(cached.physical);
+            cached.inUse = true;
+            return (PreparedStatement) Proxy.newProxyInstance(PreparedStatement.class.getClassLoader(),
+                    new Class<?>[]{PreparedStatement.class}, new LogicalStatement(cached, logical));
+        }
+
+        void closePhysical() {
+            for (CachedStatement cached : statements.values()) {
+                cached.evict();
+            }
+            statements.clear();
+            try {
+                physical.close();
+            } catch (SQLException e) {
+                // already broken, nothing left to release
+            }
+        }
+    }
+
+    private static class CachedStatement {
+        final PreparedStatement physical;
+        boolean inUse;
+        boolean evicted;
+        ResultSet lastResultSet;
+        // Driver defaults, put back on reset so one borrower's limits do not leak into the next.
+        private final int defaultMaxRows;
+        private final int defaultFetchSize;
+        private final int defaultQueryTimeout;
+
+        CachedStatement(PreparedStatement physical) throws SQLException {
+            this.physical = physical;
+            this.defaultMaxRows = physical.getMaxRows();
+            this.defaultFetchSize = physical.getFetchSize();
+            this.defaultQueryTimeout = physical.getQueryTimeout();
+        }
+
+        void reset() {
+            inUse = false;
+            try {
+                if (lastResultSet != null) {
+                    lastResultSet.close();
+                }
+                physical.clearParameters();
+                physical.clearBatch();
+                physical.setMaxRows(defaultMaxRows);
+                physical.setFetchSize(defaultFetchSize);
+                physical.setQueryTimeout(defaultQueryTimeout);
+            } catch (SQLException e) {
+                evicted = true;
+            }
+            lastResultSet = null;
+            if (evicted) {
+                closeQuietly();
+            }
+        }
+
+        void evict() {
+            evicted = true;
+            if (!inUse) {
+                closeQuietly();
+            }
+        }
+
+        private void closeQuietly() {
+            try {
+                physical.close();
+            } catch (SQLException e) {
+                // statement is unusable either way
+            }
+        }
+    }
+
+    private class LogicalConnection implements InvocationHandler {
+        private final PooledConnection pooled;
+        private boolean closed;
+
+        LogicalConnection(PooledConnection pooled) {
+            this.pooled = pooled;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            String name = method.getName();
+            switch (name) {
+                case "close":
+                    if (!closed) {
+                        closed = true;
+                        release(pooled);
+                    }
+                    return null;
+                case "isClosed":
+                    return closed;
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "toString":
+                    return "PooledConnection[" + pooled.physical + "]";
+                default:
+                    break;
+            }
+            if (closed) {
+                throw new SQLException("Connection has already been returned to the pool");
+            }
+            if (name.equals("prepareStatement") && args.length == 1) {
+                return pooled.prepare((String) args[0], (Connection) proxy);
+            }
+            Object result = invokeTarget(pooled.physical, method, args);
+            if (result instanceof Statement) {
+                withTimeout((Statement) result);
+            }
+            return result;
+        }
+    }
+
+    private static class LogicalStatement implements InvocationHandler {
+        private final CachedStatement cached;
+        private final Connection connection;
+        private boolean closed;
+
+        LogicalStatement(CachedStatement cached, Connection connection) {
+            this.cached = cached;
+            this.connection = connection;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            String name = method.getName();
+            switch (name) {
+                case "close":
+                    if (!closed) {
+                        closed = true;
+                        cached.reset();
+                    }
+                    return null;
+                case "isClosed":
+                    return closed;
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                default:
+                    break;
+            }
+            if (closed) {
+                throw new SQLException("Statement is closed");
+            }
+            // Callers must only ever see the pooled connection, never the physical one behind it.
+            if (name.equals("getConnection")) {
+                return connection;
+            }
+            Object result = invokeTarget(cached.physical, method, args);
+            if (result instanceof ResultSet) {
+                cached.lastResultSet = (ResultSet) result;
+            }
+            return result;
+        }
+    }
+
+    private <S extends Statement> S withTimeout(S statement) throws SQLException {
+        if (queryTimeoutSeconds > 0) {
+            statement.setQueryTimeout(queryTimeoutSeconds);
+        }
+        return statement;
+    }
+
+    private static Object invokeTarget(Object target, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+}
@@ -0,0 +1,132 @@
+package src;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Optional in-process gate in front of single checkouts (-Dlexora.reservations.enabled=true). Each book
+// has one AtomicLong packing the last known available_copies (high 32 bits) and this process's checkouts
+// in flight (low 32 bits). A checkout takes a slot with a CAS before it goes to the database, so once a
+// title's copies are spoken for, further desks are turned away in memory instead of queueing on the
+// book row. The database stays authoritative: its guarded decrement still refuses a checkout another
+// node got to first. The known count is refreshed whenever the book row is re-read, and at the latest
+// lexora.reservations.refreshMs after the last refresh when a checkout would be turned away.
+public class CopyReservations {
+    private static final boolean ENABLED = Boolean.getBoolean("lexora.reservations.enabled");
+    private static final long REFRESH_MS = Long.getLong("lexora.reservations.refreshMs", 5000L);
+
+    private static class Slot {
+        final AtomicLong state;
+        volatile long refreshedAt = System.currentTimeMillis();
+        Slot(int available) {
+            state = new AtomicLong(pack(available, 0));
+        }
+    }
+
+    private static final Map<Integer, Slot> SLOTS = new ConcurrentHashMap<>();
+
+    public static boolean isEnabled() {
+        return ENABLED;
+    }
+
+    // Takes a copy of the book for a checkout that is about to run. Unknown books are let through
+    // so the database can report them.
+    static boolean tryReserve(int bookId) {
+        Slot slot = SLOTS.get(bookId);
+        if (slot == null) {
+            int available = loadAvailable(bookId);
+            if (available < 0) {
+                return true;
+            }
+            slot = SLOTS.computeIfAbsent(bookId, id -> new Slot(available));
+        }
+        if (take(slot)) {
+            return true;
+        }
+        long seen = slot.refreshedAt;
+        if (System.currentTimeMillis() - seen < REFRESH_MS) {
+            return false;
+        }
+        // Re-read a stale count once; other threads keep using the old one meanwhile.
+        synchronized (slot) {
+            if (slot.refreshedAt == seen) {
+                int available = loadAvailable(bookId);
+                if (available >= 0) {
+                    refresh(slot, available);
+                }
+            }
+        }
+        return take(slot);
+    }
+
+    // Ends a reservation. A checkout that took a shelf copy also uses up one known copy.
+    static void release(int bookId, boolean tookShelfCopy) {
+        Slot slot = SLOTS.get(bookId);
+        if (slot != null) {
+            slot.state.updateAndGet(s -> pack(tookShelfCopy ? Math.max(0, available(s) - 1) : available(s), Math.max(0, inFlight(s) - 1)));
+        }
+    }
+
+    // Called when the book row has been re-read. Checkouts still in flight keep their slots.
+    static void refresh(int bookId, int availableCopies) {
+        Slot slot = SLOTS.get(bookId);
+        if (slot != null) {
+            refresh(slot, availableCopies);
+        }
+    }
+
+    static void forget(int bookId) {
+        SLOTS.remove(bookId);
+    }
+
+    static void clear() {
+        SLOTS.clear();
+    }
+
+    private static boolean take(Slot slot) {
+        while (true) {
+            long s = slot.state.get();
+            if (inFlight(s) >= available(s)) {
+                return false;
+            }
+            if (slot.state.compareAndSet(s, pack(available(s), inFlight(s) + 1))) {
+                return true;
+            }
+        }
+    }
+
+    private static void refresh(Slot slot, int availableCopies) {
+        slot.state.updateAndGet(s -> pack(availableCopies, inFlight(s)));
+        slot.refreshedAt = System.currentTimeMillis();
+    }
+
+    // available_copies straight from the database, or -1 if the book does not exist or cannot be read.
+    private static int loadAvailable(int bookId) {
+        String sql = "SELECT available_copies FROM books WHERE book_id = ?";
+        try (Connection conn = DbUtil.getConnection(); PreparedStatement ps = conn.prepareStatement(sql)) {
+            ps.setInt(1, bookId);
+            try (ResultSet rs = ps.executeQuery()) {
+                return rs.next() ? rs.getInt(1) : -1;
+            }
+        } catch (SQLException e) {
+            System.err.println("Load available copies error: " + e.getMessage());
+            return -1;
+        }
+    }
+
+    private static long pack(int available, int inFlight) {
+        return ((long) available << 32) | (inFlight & 0xFFFFFFFFL);
+    }
+
+    private static int available(long state) {
+        return (int) (state >>> 32);
+    }
+
+    private static int inFlight(long state) {
+        return (int) state;
+    }
+}
\ No newline at end of file
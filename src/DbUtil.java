@@ -1,13 +1,71 @@
 package src;
 
 import java.sql.Connection;
-import java.sql.DriverManager;
 import java.sql.SQLException;
+import java.sql.SQLNonTransientConnectionException;
+import java.sql.SQLRecoverableException;
+import java.sql.SQLTimeoutException;
+import java.sql.SQLTransientConnectionException;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ThreadLocalRandom;
 
 public class DbUtil {
-    private static final String DB_URL = "jdbc:oracle:thin:@localhost:1521/orclpdb"; // Update if your Oracle instance differs
-    private static final String DB_USER = "lexora_user";
-    private static final String DB_PASSWORD = "lexora_password";
+    // Thrown straight away while the circuit breaker is open, instead of waiting on an unreachable database.
+    public static class UnavailableException extends SQLTransientConnectionException {
+        private static final long serialVersionUID = 1L;
+
+        private final long retryAfterMillis;
+        UnavailableException(long retryAfterMillis) {
+            super("Database unavailable (next check in " + retryAfterMillis + " ms)");
+            this.retryAfterMillis = retryAfterMillis;
+        }
+
+        public long getRetryAfterMillis() {
+            return retryAfterMillis;
+        }
+    }
+
+    // Overridable with -Dlexora.db.url / user / password, e.g. to point the benchmark at a scratch schema
+    private static final String DB_URL = System.getProperty("lexora.db.url", "jdbc:oracle:thin:@localhost:1521/orclpdb"); // Update if your Oracle instance differs
+    private static final String DB_USER = System.getProperty("lexora.db.user", "lexora_user");
+    private static final String DB_PASSWORD = System.getProperty("lexora.db.password", "lexora_password");
+
+    // Pool settings, overridable with -Dlexora.pool.<name>=<value>
+    private static final int POOL_MIN_SIZE = Integer.getInteger("lexora.pool.minSize", 2);
+    private static final int POOL_MAX_SIZE = Integer.getInteger("lexora.pool.maxSize", 10);
+    private static final long POOL_ACQUIRE_TIMEOUT_MS = Long.getLong("lexora.pool.acquireTimeoutMs", 5000L);
+    private static final long POOL_IDLE_TIMEOUT_MS = Long.getLong("lexora.pool.idleTimeoutMs", 300000L);
+    private static final long POOL_VALIDATION_INTERVAL_MS = Long.getLong("lexora.pool.validationIntervalMs", 30000L);
+    private static final int POOL_STATEMENT_CACHE_SIZE = Integer.getInteger("lexora.pool.statementCacheSize", 32);
+
+    // Timeouts: opening a connection, one statement, and one network round trip (0 = none).
+    private static final int CONNECT_TIMEOUT_MS = Integer.getInteger("lexora.db.connectTimeoutMs", 5000);
+    private static final int QUERY_TIMEOUT_SECONDS = Integer.getInteger("lexora.db.queryTimeoutSeconds", 30);
+    private static final int READ_TIMEOUT_MS = Integer.getInteger("lexora.db.readTimeoutMs", QUERY_TIMEOUT_SECONDS > 0 ? (QUERY_TIMEOUT_SECONDS + 10) * 1000 : 0);
+    // Failed connection attempts are retried this often, after a random wait of up to retryBackoffMs * 2^attempt.
+    private static final int CONNECT_RETRIES = Integer.getInteger("lexora.db.connectRetries", 2);
+    private static final long RETRY_BACKOFF_MS = Long.getLong("lexora.db.retryBackoffMs", 50L);
+    // The breaker opens after breakerFailures unreachable-database errors within breakerWindowMs and
+    // probes again every breakerOpenMs.
+    private static final int BREAKER_FAILURES = Integer.getInteger("lexora.db.breakerFailures", 5);
+    private static final long BREAKER_WINDOW_MS = Long.getLong("lexora.db.breakerWindowMs", 10000L);
+    private static final long BREAKER_OPEN_MS = Long.getLong("lexora.db.breakerOpenMs", 5000L);
+    private static final int VALIDATION_TIMEOUT_SECONDS = 2;
+
+    // Rows per round trip for large reads, overridable with -Dlexora.jdbc.fetchSize=<rows>
+    public static final int FETCH_SIZE = Integer.getInteger("lexora.jdbc.fetchSize", 500);
+
+    private static final ConnectionPool POOL;
+    private static final CircuitBreaker BREAKER = new CircuitBreaker(BREAKER_FAILURES, BREAKER_WINDOW_MS, BREAKER_OPEN_MS, DbUtil::breakerChanged);
+    // Run when the database is reachable again after an outage, to drop what may have been missed meanwhile.
+    private static final List<Runnable> AFTER_RECONNECT = new CopyOnWriteArrayList<>();
+    // Run on JVM exit while the pool still hands out connections; shutdown hooks run in no set order.
+    private static final List<Runnable> BEFORE_SHUTDOWN = new CopyOnWriteArrayList<>();
+
+    // Time spent waiting for a pooled connection; timeouts count as errors.
+    private static final OperationMetrics.Op GET_CONNECTION = OperationMetrics.register("DbUtil.getConnection");
 
     static {
         try {
@@ -16,14 +74,138 @@ public class DbUtil {
             System.err.println("Oracle JDBC Driver not found. Please add ojdbc8.jar to the lib directory.");
             e.printStackTrace();
         }
+        Properties info = new Properties();
+        info.setProperty("user", DB_USER);
+        info.setProperty("password", DB_PASSWORD);
+        info.setProperty("oracle.net.CONNECT_TIMEOUT", String.valueOf(CONNECT_TIMEOUT_MS));
+        info.setProperty("oracle.jdbc.ReadTimeout", String.valueOf(READ_TIMEOUT_MS));
+        POOL = new ConnectionPool(DB_URL, info, POOL_MIN_SIZE, POOL_MAX_SIZE, POOL_ACQUIRE_TIMEOUT_MS,
+                POOL_IDLE_TIMEOUT_MS, POOL_VALIDATION_INTERVAL_MS, POOL_STATEMENT_CACHE_SIZE, QUERY_TIMEOUT_SECONDS);
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            for (Runnable task : BEFORE_SHUTDOWN) {
+                try {
+                    task.run();
+                } catch (RuntimeException e) {
+                    System.err.println("Shutdown task error: " + e.getMessage());
+                }
+            }
+            POOL.shutdown();
+        }, "lexora-pool-shutdown"));
+    }
+
+    public static void beforeShutdown(Runnable task) {
+        BEFORE_SHUTDOWN.add(task);
     }
 
+    public static void afterReconnect(Runnable task) {
+        AFTER_RECONNECT.add(task);
+    }
+
+    // Fails fast with UnavailableException while the breaker is open. The one trial call let through
+    // after breakerOpenMs closes it again only with a connection that answers a validity check.
     public static Connection getConnection() throws SQLException {
-        return DriverManager.getConnection(DB_URL, DB_USER, DB_PASSWORD);
+        long started = GET_CONNECTION.begin();
+        boolean trial = false;
+        try {
+            if (!BREAKER.allowRequest()) {
+                throw new UnavailableException(BREAKER.retryAfterMillis());
+            }
+            trial = BREAKER.getState() != CircuitBreaker.State.CLOSED;
+            Connection conn = acquire();
+            if (trial) {
+                if (!conn.isValid(VALIDATION_TIMEOUT_SECONDS)) {
+                    conn.close();
+                    throw new SQLRecoverableException("Database did not answer the validity check");
+                }
+                BREAKER.onSuccess();
+            }
+            return conn;
+        } catch (SQLException e) {
+            GET_CONNECTION.error();
+            // Outside a trial, failures reach the breaker through ServiceException.record.
+            if (trial) {
+                BREAKER.onFailure();
+            }
+            throw e;
+        } finally {
+            GET_CONNECTION.end(started);
+        }
+    }
+
+    // Opening a connection is safe to repeat. A pool timeout is not retried, since every connection is already busy.
+    private static Connection acquire() throws SQLException {
+        for (int attempt = 0; ; attempt++) {
+            try {
+                return POOL.getConnection();
+            } catch (SQLTimeoutException e) {
+                throw e;
+            } catch (SQLException e) {
+                if (attempt >= CONNECT_RETRIES || Thread.currentThread().isInterrupted()) {
+                    throw e;
+                }
+                // Full jitter, so desks that failed together do not all retry together.
+                try {
+                    Thread.sleep(ThreadLocalRandom.current().nextLong((RETRY_BACKOFF_MS << attempt) + 1));
+                } catch (InterruptedException ie) {
+                    Thread.currentThread().interrupt();
+                    throw e;
+                }
+            }
+        }
+    }
+
+    // Counts errors that mean the database could not be reached (lost or refused connections, timeouts)
+    // towards opening the breaker. Other errors, such as constraint violations, are the caller's business.
+    static void noteError(SQLException e) {
+        if (e instanceof UnavailableException) {
+            return;
+        }
+        String state = e.getSQLState();
+        if (e instanceof SQLRecoverableException || e instanceof SQLTransientConnectionException
+                || e instanceof SQLNonTransientConnectionException || e instanceof SQLTimeoutException
+                || (state != null && state.startsWith("08"))) {
+            BREAKER.onFailure();
+        }
+    }
+
+    // True while the database is considered unreachable: reads are served from memory and writes fail fast.
+    public static boolean isDegraded() {
+        return BREAKER.getState() != CircuitBreaker.State.CLOSED;
+    }
+
+    public static CircuitBreaker.Stats getBreakerStats() {
+        return BREAKER.getStats();
+    }
+
+    private static void breakerChanged(CircuitBreaker.State from, CircuitBreaker.State to) {
+        if (to == CircuitBreaker.State.OPEN && from == CircuitBreaker.State.CLOSED) {
+            System.err.println("Database unreachable; serving reads from memory and rejecting changes until it is back.");
+            // Connections idle in the pool are likely dead too; the trial call opens a fresh one.
+            POOL.evictIdle();
+        } else if (to == CircuitBreaker.State.CLOSED) {
+            System.err.println("Database reachable again.");
+            // After a failover the remaining idle connections still point at the old host.
+            POOL.evictIdle();
+            for (Runnable task : AFTER_RECONNECT) {
+                try {
+                    task.run();
+                } catch (RuntimeException e) {
+                    System.err.println("Reconnect task error: " + e.getMessage());
+                }
+            }
+        }
+    }
+
+    public static ConnectionPool.PoolStats getPoolStats() {
+        return POOL.getStats();
     }
 
     public static boolean testConnection() {
-        try (Connection conn = DriverManager.getConnection(DB_URL, DB_USER, DB_PASSWORD)) {
+        try (Connection conn = getConnection()) {
+            if (!conn.isValid(VALIDATION_TIMEOUT_SECONDS)) {
+                System.err.println("Database connection failed: connection is not valid");
+                return false;
+            }
             System.out.println("Database connection successful!");
             return true;
         } catch (SQLException e) {
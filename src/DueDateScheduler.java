@@ -0,0 +1,234 @@
+package src;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+// Keeps every open loan in a calendar queue keyed by due date (epoch day), loaded once from the
+// database and then updated by issue and return. A loan becomes overdue the day after its due
+// date, matching "due_date < TRUNC(SYSDATE)"; listeners hear about each transition once.
+public class DueDateScheduler {
+    public interface OverdueListener {
+        void onOverdue(BorrowingService.Borrowing borrowing);
+    }
+
+    private static final long TICK_SECONDS = 60;
+
+    // due epoch day -> (borrow id -> loan), for loans not yet overdue
+    private static final NavigableMap<Long, Map<Integer, BorrowingService.Borrowing>> upcoming = new TreeMap<>();
+    private static final Map<Integer, BorrowingService.Borrowing> overdue = new LinkedHashMap<>();
+    private static final Map<Integer, Long> dueDayByLoan = new HashMap<>();
+    private static final List<OverdueListener> listeners = new CopyOnWriteArrayList<>();
+    private static ScheduledExecutorService ticker;
+    private static volatile boolean loaded = false;
+
+    // Loads the open loans and starts the once-a-minute overdue check. Safe to call more than once.
+    public static synchronized boolean start() {
+        if (loaded) {
+            return true;
+        }
+        String sql = "SELECT * FROM borrowings WHERE status='ISSUED'";
+        upcoming.clear();
+        overdue.clear();
+        dueDayByLoan.clear();
+        try (Connection conn = DbUtil.getConnection(); PreparedStatement ps = conn.prepareStatement(sql)) {
+            ps.setFetchSize(DbUtil.FETCH_SIZE);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    schedule(BorrowingService.readBorrowing(rs), false);
+                }
+            }
+        } catch (SQLException e) {
+            System.err.println("Load open loans error: " + e.getMessage());
+            return false;
+        }
+        loaded = true;
+        startTicker();
+        return true;
+    }
+
+    // Warm start: schedules saved open loans, then catches up on what changed since the save at sinceMillis
+    // (database SCN sinceScn): open loans written after sinceScn are added or rescheduled, and loans
+    // returned since the day before the save are dropped. The day's margin covers clock skew with the
+    // database, and dropping a loan that is not scheduled does nothing. Only open loans and recent
+    // returns are read, not the whole loan history. Returns how many rows were re-read, or -1 if the
+    // database could not be reached, in which case start() loads everything later.
+    public static synchronized int start(List<BorrowingService.Borrowing> saved, long sinceScn, long sinceMillis) {
+        if (loaded) {
+            return 0;
+        }
+        String sql = "SELECT * FROM borrowings WHERE (status='ISSUED' AND ORA_ROWSCN > ?) OR (status<>'ISSUED' AND return_date >= TRUNC(?) - 1)";
+        upcoming.clear();
+        overdue.clear();
+        dueDayByLoan.clear();
+        for (BorrowingService.Borrowing b : saved) {
+            schedule(b, false);
+        }
+        int changed = 0;
+        try (Connection conn = DbUtil.getConnection(); PreparedStatement ps = conn.prepareStatement(sql)) {
+            ps.setFetchSize(DbUtil.FETCH_SIZE);
+            ps.setLong(1, sinceScn);
+            ps.setTimestamp(2, new java.sql.Timestamp(sinceMillis));
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    BorrowingService.Borrowing b = BorrowingService.readBorrowing(rs);
+                    unschedule(b.borrowId);
+                    if ("ISSUED".equals(b.status)) {
+                        schedule(b, false);
+                    }
+                    changed++;
+                }
+            }
+        } catch (SQLException e) {
+            System.err.println("Catch up open loans error: " + e.getMessage());
+            return -1;
+        }
+        loaded = true;
+        startTicker();
+        return changed;
+    }
+
+    private static void startTicker() {
+        if (ticker == null) {
+            ticker = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread t = new Thread(r, "lexora-due-date-ticker");
+                t.setDaemon(true);
+                return t;
+            });
+            ticker.scheduleAtFixedRate(DueDateScheduler::advance, TICK_SECONDS, TICK_SECONDS, TimeUnit.SECONDS);
+        }
+    }
+
+    public static boolean isLoaded() {
+        return loaded;
+    }
+
+    // Loads the open loans again if they were loaded, for when changes may have been missed.
+    static synchronized boolean reload() {
+        if (!loaded) {
+            return true;
+        }
+        loaded = false;
+        return start();
+    }
+
+    public static void addListener(OverdueListener listener) {
+        listeners.add(listener);
+    }
+
+    public static void onIssued(BorrowingService.Borrowing borrowing) {
+        List<BorrowingService.Borrowing> fired;
+        synchronized (DueDateScheduler.class) {
+            if (!loaded || dueDayByLoan.containsKey(borrowing.borrowId)) {
+                return;
+            }
+            fired = schedule(borrowing, true);
+        }
+        notifyListeners(fired);
+    }
+
+    public static synchronized void onReturned(int borrowId) {
+        if (loaded) {
+            unschedule(borrowId);
+        }
+    }
+
+    private static void unschedule(int borrowId) {
+        Long day = dueDayByLoan.remove(borrowId);
+        if (day == null) {
+            return;
+        }
+        if (overdue.remove(borrowId) == null) {
+            Map<Integer, BorrowingService.Borrowing> bucket = upcoming.get(day);
+            if (bucket != null) {
+                bucket.remove(borrowId);
+                if (bucket.isEmpty()) {
+                    upcoming.remove(day);
+                }
+            }
+        }
+    }
+
+    // Open loans whose due date is before today, earliest due first.
+    public static List<BorrowingService.Borrowing> getOverdue() {
+        advance();
+        synchronized (DueDateScheduler.class) {
+            List<BorrowingService.Borrowing> list = new ArrayList<>(overdue.values());
+            list.sort((a, b) -> Long.compare(epochDay(a.dueDate), epochDay(b.dueDate)));
+            return list;
+        }
+    }
+
+    // Open loans due between today and today + days (inclusive), earliest due first.
+    public static List<BorrowingService.Borrowing> getDueWithin(int days) {
+        advance();
+        long today = LocalDate.now().toEpochDay();
+        List<BorrowingService.Borrowing> list = new ArrayList<>();
+        synchronized (DueDateScheduler.class) {
+            for (Map<Integer, BorrowingService.Borrowing> bucket : upcoming.subMap(today, true, today + days, true).values()) {
+                list.addAll(bucket.values());
+            }
+        }
+        return list;
+    }
+
+    // Moves every loan due before today into the overdue set and notifies listeners.
+    static void advance() {
+        List<BorrowingService.Borrowing> fired = new ArrayList<>();
+        synchronized (DueDateScheduler.class) {
+            long today = LocalDate.now().toEpochDay();
+            while (!upcoming.isEmpty() && upcoming.firstKey() < today) {
+                for (BorrowingService.Borrowing b : upcoming.pollFirstEntry().getValue().values()) {
+                    overdue.put(b.borrowId, b);
+                    fired.add(b);
+                }
+            }
+        }
+        notifyListeners(fired);
+    }
+
+    private static List<BorrowingService.Borrowing> schedule(BorrowingService.Borrowing b, boolean notify) {
+        long day = epochDay(b.dueDate);
+        dueDayByLoan.put(b.borrowId, day);
+        if (day < LocalDate.now().toEpochDay()) {
+            overdue.put(b.borrowId, b);
+            List<BorrowingService.Borrowing> fired = new ArrayList<>();
+            if (notify) {
+                fired.add(b);
+            }
+            return fired;
+        }
+        upcoming.computeIfAbsent(day, d -> new LinkedHashMap<>()).put(b.borrowId, b);
+        return new ArrayList<>();
+    }
+
+    private static void notifyListeners(List<BorrowingService.Borrowing> fired) {
+        for (BorrowingService.Borrowing b : fired) {
+            for (OverdueListener listener : listeners) {
+                try {
+                    listener.onOverdue(b);
+                } catch (RuntimeException e) {
+                    System.err.println("Overdue listener error: " + e.getMessage());
+                }
+            }
+        }
+    }
+
+    static long epochDay(Date date) {
+        return new java.sql.Date(date.getTime()).toLocalDate().toEpochDay();
+    }
+}
@@ -0,0 +1,123 @@
+package src;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// In-memory mirror of the open holds, one lock-free FIFO per book. The holds table is the source of
+// truth and decides who is next; the mirror answers queue length and position questions and lets a
+// checkout for a title with waiting patrons fail without touching the book row. Each node keeps its
+// own mirror and HoldService reloads it periodically, so holds changed on other nodes show up late.
+public class HoldQueue {
+    private static class BookQueue {
+        final ConcurrentLinkedQueue<HoldService.Hold> waiting = new ConcurrentLinkedQueue<>();
+        final AtomicInteger size = new AtomicInteger();
+    }
+
+    private volatile Map<Integer, BookQueue> waitingByBook = new ConcurrentHashMap<>();
+    // hold id -> hold, for holds with a copy set aside
+    private volatile Map<Integer, HoldService.Hold> ready = new ConcurrentHashMap<>();
+    // (book id, member id) -> number of those holds, so a checkout can ask without scanning them
+    private volatile Map<Long, Integer> readyByMember = new ConcurrentHashMap<>();
+
+    public void addWaiting(HoldService.Hold hold) {
+        BookQueue q = waitingByBook.computeIfAbsent(hold.bookId, id -> new BookQueue());
+        q.waiting.add(hold);
+        q.size.incrementAndGet();
+    }
+
+    // Moves a hold from its book's wait queue to the ready set.
+    public void markReady(HoldService.Hold hold) {
+        removeWaiting(hold.bookId, hold.holdId);
+        if (ready.put(hold.holdId, hold) == null) {
+            readyByMember.merge(key(hold.bookId, hold.memberId), 1, Integer::sum);
+        }
+    }
+
+    // Drops a hold that was fulfilled, cancelled or expired, whatever state the mirror had it in.
+    public void remove(int bookId, int holdId) {
+        HoldService.Hold h = ready.remove(holdId);
+        if (h == null) {
+            removeWaiting(bookId, holdId);
+        } else {
+            readyByMember.computeIfPresent(key(h.bookId, h.memberId), (k, n) -> n > 1 ? n - 1 : null);
+        }
+    }
+
+    public int waitingCount(int bookId) {
+        BookQueue q = waitingByBook.get(bookId);
+        return q == null ? 0 : q.size.get();
+    }
+
+    // 1-based place of the member's waiting hold on the book, or 0 if the member is not waiting for it.
+    public int position(int bookId, int memberId) {
+        BookQueue q = waitingByBook.get(bookId);
+        if (q == null) {
+            return 0;
+        }
+        HoldService.Hold mine = null;
+        for (HoldService.Hold h : q.waiting) {
+            if (h.memberId == memberId) {
+                mine = h;
+                break;
+            }
+        }
+        if (mine == null) {
+            return 0;
+        }
+        // Holds can reach the queue slightly out of hold_id order, so count rather than use the index.
+        int ahead = 0;
+        for (HoldService.Hold h : q.waiting) {
+            if (h.holdId < mine.holdId) {
+                ahead++;
+            }
+        }
+        return ahead + 1;
+    }
+
+    public boolean hasReady(int bookId, int memberId) {
+        return readyByMember.containsKey(key(bookId, memberId));
+    }
+
+    // Waiting holds for the book in hold_id (arrival) order.
+    public List<HoldService.Hold> waiting(int bookId) {
+        BookQueue q = waitingByBook.get(bookId);
+        List<HoldService.Hold> list = q == null ? new ArrayList<>() : new ArrayList<>(q.waiting);
+        list.sort((a, b) -> Integer.compare(a.holdId, b.holdId));
+        return list;
+    }
+
+    // Swaps in a freshly loaded set of open holds. Updates racing with the swap are picked up by the next reload.
+    public void replaceAll(List<HoldService.Hold> open) {
+        Map<Integer, BookQueue> freshWaiting = new ConcurrentHashMap<>();
+        Map<Integer, HoldService.Hold> freshReady = new ConcurrentHashMap<>();
+        Map<Long, Integer> freshReadyByMember = new ConcurrentHashMap<>();
+        for (HoldService.Hold h : open) {
+            if (h.status == HoldService.HoldStatus.READY) {
+                freshReady.put(h.holdId, h);
+                freshReadyByMember.merge(key(h.bookId, h.memberId), 1, Integer::sum);
+            } else {
+                BookQueue q = freshWaiting.computeIfAbsent(h.bookId, id -> new BookQueue());
+                q.waiting.add(h);
+                q.size.incrementAndGet();
+            }
+        }
+        waitingByBook = freshWaiting;
+        ready = freshReady;
+        readyByMember = freshReadyByMember;
+    }
+
+    private static long key(int bookId, int memberId) {
+        return ((long) bookId << 32) | (memberId & 0xFFFFFFFFL);
+    }
+
+    private void removeWaiting(int bookId, int holdId) {
+        BookQueue q = waitingByBook.get(bookId);
+        if (q != null && q.waiting.removeIf(h -> h.holdId == holdId)) {
+            q.size.decrementAndGet();
+        }
+    }
+}
\ No newline at end of file
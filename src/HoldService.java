@@ -0,0 +1,502 @@
+package src;
+
+import java.sql.*;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+// Reservation queues for titles with no free copy. Holds wait in hold_id (arrival) order in the holds
+// table. A returned copy is set aside for the oldest waiting hold in the same transaction as the return
+// (books.held_copies instead of available_copies), and the holder has lexora.holds.pickupHours to check
+// it out before it passes to the next patron in line. Every change that moves a copy locks the book row
+// first, so one title's queue is serialized by its own row and different titles never contend.
+public class HoldService {
+    public enum HoldStatus { WAITING, READY, FULFILLED, CANCELLED, EXPIRED }
+
+    public enum PlaceResult { PLACED, COPIES_AVAILABLE, ALREADY_HELD, NOT_FOUND, FAILED }
+
+    public static class Hold {
+        public final int holdId;
+        public final int bookId;
+        public final int memberId;
+        public final Date placedAt;
+        public final HoldStatus status;
+        public final Date pickupExpires;
+        public Hold(int holdId, int bookId, int memberId, Date placedAt, HoldStatus status, Date pickupExpires) {
+            this.holdId = holdId;
+            this.bookId = bookId;
+            this.memberId = memberId;
+            this.placedAt = placedAt;
+            this.status = status;
+            this.pickupExpires = pickupExpires;
+        }
+    }
+
+    public interface HoldListener {
+        void onReady(Hold hold);
+    }
+
+    private static final long PICKUP_MILLIS = TimeUnit.HOURS.toMillis(Long.getLong("lexora.holds.pickupHours", 48L));
+    private static final long SWEEP_SECONDS = Long.getLong("lexora.holds.sweepSeconds", 60L);
+
+    private static final HoldQueue QUEUE = new HoldQueue();
+    private static final List<HoldListener> listeners = new CopyOnWriteArrayList<>();
+    private static ScheduledExecutorService sweeper;
+
+    private static final OperationMetrics.Op PLACE_HOLD = OperationMetrics.register("HoldService.placeHold");
+    private static final OperationMetrics.Op CANCEL_HOLD = OperationMetrics.register("HoldService.cancelHold");
+    private static final OperationMetrics.Op GET_HOLDS_BY_MEMBER = OperationMetrics.register("HoldService.getHoldsByMember");
+
+    // Loads the open holds and starts the pickup-expiry sweep. Safe to call more than once.
+    public static synchronized boolean start() {
+        if (!reload()) {
+            return false;
+        }
+        if (sweeper == null) {
+            sweeper = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread t = new Thread(r, "lexora-hold-sweeper");
+                t.setDaemon(true);
+                return t;
+            });
+            sweeper.scheduleWithFixedDelay(HoldService::sweep, SWEEP_SECONDS, SWEEP_SECONDS, TimeUnit.SECONDS);
+        }
+        return true;
+    }
+
+    public static void addListener(HoldListener listener) {
+        listeners.add(listener);
+    }
+
+    // Queues the member for the book. Titles with a copy on the shelf are not held; borrow them instead.
+    public static PlaceResult placeHold(int memberId, int bookId) {
+        long started = PLACE_HOLD.begin();
+        try {
+            String openSql = "SELECT COUNT(*) FROM holds WHERE member_id = ? AND book_id = ? AND status IN ('WAITING', 'READY')";
+            String insertSql = "INSERT INTO holds (book_id, member_id, status) VALUES (?, ?, 'WAITING')";
+            Hold hold = null;
+            boolean copyReturnedMeanwhile;
+            try (Connection conn = DbUtil.getConnection()) {
+                int available = availableCopies(conn, bookId);
+                if (available < 0) {
+                    return PlaceResult.NOT_FOUND;
+                }
+                if (available > 0) {
+                    return PlaceResult.COPIES_AVAILABLE;
+                }
+                try (PreparedStatement ps = conn.prepareStatement(openSql)) {
+                    ps.setInt(1, memberId);
+                    ps.setInt(2, bookId);
+                    try (ResultSet rs = ps.executeQuery()) {
+                        if (rs.next() && rs.getInt(1) > 0) {
+                            return PlaceResult.ALREADY_HELD;
+                        }
+                    }
+                }
+                try (PreparedStatement ps = conn.prepareStatement(insertSql, new String[] {"hold_id"})) {
+                    ps.setInt(1, bookId);
+                    ps.setInt(2, memberId);
+                    ps.executeUpdate();
+                    try (ResultSet keys = ps.getGeneratedKeys()) {
+                        if (keys.next()) {
+                            hold = new Hold(keys.getInt(1), bookId, memberId, new Date(), HoldStatus.WAITING, null);
+                        }
+                    }
+                }
+                // A copy returned while the hold was being placed went to the shelf, not to this hold.
+                copyReturnedMeanwhile = availableCopies(conn, bookId) > 0;
+            } catch (SQLIntegrityConstraintViolationException e) {
+                return PlaceResult.ALREADY_HELD;
+            } catch (SQLException e) {
+                ServiceException.record(e);
+                System.err.println("Place hold error: " + e.getMessage());
+                return PlaceResult.FAILED;
+            }
+            if (hold != null) {
+                QUEUE.addWaiting(hold);
+            }
+            if (copyReturnedMeanwhile) {
+                fillFromShelf(bookId);
+            }
+            return PlaceResult.PLACED;
+        } finally {
+            PLACE_HOLD.end(started);
+        }
+    }
+
+    // Cancels one of the member's waiting or ready holds. A copy set aside for it passes to the next patron in line.
+    public static boolean cancelHold(int memberId, int holdId) {
+        long started = CANCEL_HOLD.begin();
+        try {
+            return closeHold(holdId, memberId, HoldStatus.CANCELLED);
+        } finally {
+            CANCEL_HOLD.end(started);
+        }
+    }
+
+    // The member's waiting and ready holds, oldest first.
+    public static List<Hold> getHoldsByMember(int memberId) {
+        long started = GET_HOLDS_BY_MEMBER.begin();
+        try {
+            List<Hold> holds = new ArrayList<>();
+            String sql = "SELECT * FROM holds WHERE member_id = ? AND status IN ('WAITING', 'READY') ORDER BY hold_id";
+            try (Connection conn = DbUtil.getConnection(); PreparedStatement ps = conn.prepareStatement(sql)) {
+                ps.setInt(1, memberId);
+                try (ResultSet rs = ps.executeQuery()) {
+                    while (rs.next()) {
+                        holds.add(readHold(rs));
+                    }
+                }
+            } catch (SQLException e) {
+                ServiceException.record(e);
+                System.err.println("Get holds error: " + e.getMessage());
+            }
+            return GET_HOLDS_BY_MEMBER.rows(holds);
+        } finally {
+            GET_HOLDS_BY_MEMBER.end(started);
+        }
+    }
+
+    // 1-based place in the book's queue as last seen by this node, or 0 if the member is not waiting for it.
+    public static int getQueuePosition(int bookId, int memberId) {
+        return QUEUE.position(bookId, memberId);
+    }
+
+    public static int getWaitingCount(int bookId) {
+        return QUEUE.waitingCount(bookId);
+    }
+
+    // True when patrons are queued for the book and the member has no copy set aside, so a checkout
+    // can be refused without a database round trip.
+    static boolean mustQueue(int memberId, int bookId) {
+        return QUEUE.waitingCount(bookId) > 0 && !QUEUE.hasReady(bookId, memberId);
+    }
+
+    static boolean hasReadyHold(int memberId, int bookId) {
+        return QUEUE.hasReady(bookId, memberId);
+    }
+
+    // Sets up to copies shelf copies of the book aside for the oldest waiting holds. The caller holds the
+    // book row lock and has just added those copies to available_copies. Returns the holds that became READY.
+    static List<Hold> fill(Connection conn, int bookId, int copies) throws SQLException {
+        List<Hold> promoted = new ArrayList<>();
+        String nextSql = "SELECT * FROM holds WHERE book_id = ? AND status = 'WAITING' AND hold_id > ? ORDER BY hold_id";
+        String readySql = "UPDATE holds SET status = 'READY', pickup_expires = ? WHERE hold_id = ? AND status = 'WAITING'";
+        String moveSql = "UPDATE books SET available_copies = available_copies - ?, held_copies = held_copies + ?, version = version + 1 WHERE book_id = ?";
+        Date expires = new Date(System.currentTimeMillis() + PICKUP_MILLIS);
+        int lastSeen = 0;
+        while (promoted.size() < copies) {
+            List<Hold> candidates = new ArrayList<>();
+            try (PreparedStatement ps = conn.prepareStatement(nextSql)) {
+                ps.setInt(1, bookId);
+                ps.setInt(2, lastSeen);
+                ps.setMaxRows(copies - promoted.size());
+                try (ResultSet rs = ps.executeQuery()) {
+                    while (rs.next()) {
+                        candidates.add(readHold(rs));
+                    }
+                }
+            }
+            if (candidates.isEmpty()) {
+                break;
+            }
+            // Waiting holds are cancelled without the book lock, so a candidate may already be gone.
+            try (PreparedStatement ps = conn.prepareStatement(readySql)) {
+                for (Hold h : candidates) {
+                    lastSeen = h.holdId;
+                    ps.setTimestamp(1, new Timestamp(expires.getTime()));
+                    ps.setInt(2, h.holdId);
+                    if (ps.executeUpdate() > 0) {
+                        promoted.add(new Hold(h.holdId, h.bookId, h.memberId, h.placedAt, HoldStatus.READY, expires));
+                    }
+                }
+            }
+        }
+        if (!promoted.isEmpty()) {
+            try (PreparedStatement ps = conn.prepareStatement(moveSql)) {
+                ps.setInt(1, promoted.size());
+                ps.setInt(2, promoted.size());
+                ps.setInt(3, bookId);
+                ps.executeUpdate();
+            }
+        }
+        return promoted;
+    }
+
+    // Inside an issue transaction: turns the member's ready hold on the book into the loan's copy
+    // (held_copies -> borrowed_copies). Returns the hold id, or 0 with nothing changed if there is none.
+    static int claimReadyHold(Connection conn, int memberId, int bookId) throws SQLException {
+        String takeSql = "UPDATE books SET held_copies = held_copies - 1, borrowed_copies = borrowed_copies + 1, version = version + 1 WHERE book_id = ? AND held_copies > 0";
+        String findSql = "SELECT hold_id FROM holds WHERE book_id = ? AND member_id = ? AND status = 'READY'";
+        String undoSql = "UPDATE books SET held_copies = held_copies + 1, borrowed_copies = borrowed_copies - 1, version = version + 1 WHERE book_id = ?";
+        try (PreparedStatement ps = conn.prepareStatement(takeSql)) {
+            ps.setInt(1, bookId);
+            if (ps.executeUpdate() == 0) {
+                return 0;
+            }
+        }
+        // The book row is locked now, so the hold cannot expire or be cancelled underneath us.
+        int holdId = 0;
+        try (PreparedStatement ps = conn.prepareStatement(findSql)) {
+            ps.setInt(1, bookId);
+            ps.setInt(2, memberId);
+            try (ResultSet rs = ps.executeQuery()) {
+                if (rs.next()) {
+                    holdId = rs.getInt(1);
+                }
+            }
+        }
+        if (holdId == 0) {
+            try (PreparedStatement ps = conn.prepareStatement(undoSql)) {
+                ps.setInt(1, bookId);
+                ps.executeUpdate();
+            }
+            return 0;
+        }
+        markFulfilled(conn, holdId);
+        return holdId;
+    }
+
+    // book id -> hold id of the member's ready holds among the given books. The caller holds the book row locks.
+    static Map<Integer, Integer> readyHolds(Connection conn, int memberId, Set<Integer> bookIds) throws SQLException {
+        Map<Integer, Integer> ready = new HashMap<>();
+        StringBuilder sql = new StringBuilder("SELECT book_id, hold_id FROM holds WHERE member_id = ? AND status = 'READY' AND book_id IN (");
+        for (int i = 0; i < bookIds.size(); i++) {
+            sql.append(i == 0 ? "?" : ", ?");
+        }
+        sql.append(")");
+        try (PreparedStatement ps = conn.prepareStatement(sql.toString())) {
+            ps.setInt(1, memberId);
+            int i = 2;
+            for (int id : bookIds) {
+                ps.setInt(i++, id);
+            }
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    ready.put(rs.getInt(1), rs.getInt(2));
+                }
+            }
+        }
+        return ready;
+    }
+
+    static void markFulfilled(Connection conn, int holdId) throws SQLException {
+        try (PreparedStatement ps = conn.prepareStatement("UPDATE holds SET status = 'FULFILLED' WHERE hold_id = ?")) {
+            ps.setInt(1, holdId);
+            ps.executeUpdate();
+        }
+    }
+
+    // Called after the transaction that filled holds has committed.
+    static void onPromoted(List<Hold> promoted) {
+        for (Hold h : promoted) {
+            QUEUE.markReady(h);
+            CirculationJournal.holdReady(h.holdId, h.memberId, h.bookId);
+            for (HoldListener listener : listeners) {
+                try {
+                    listener.onReady(h);
+                } catch (RuntimeException e) {
+                    System.err.println("Hold listener error: " + e.getMessage());
+                }
+            }
+        }
+    }
+
+    // Called after the transaction that checked out a held copy has committed.
+    static void onFulfilled(int bookId, int holdId, int memberId) {
+        QUEUE.remove(bookId, holdId);
+        CirculationJournal.holdReleased(holdId, memberId, bookId);
+    }
+
+    // Expires uncollected ready holds, hands shelf copies to titles that still have a queue, and reloads the mirror.
+    static void sweep() {
+        List<Integer> expired = new ArrayList<>();
+        List<Integer> shelved = new ArrayList<>();
+        String expiredSql = "SELECT hold_id FROM holds WHERE status = 'READY' AND pickup_expires < ?";
+        String shelvedSql = "SELECT DISTINCT h.book_id FROM holds h JOIN books b ON b.book_id = h.book_id WHERE h.status = 'WAITING' AND b.available_copies > 0";
+        try (Connection conn = DbUtil.getConnection()) {
+            try (PreparedStatement ps = conn.prepareStatement(expiredSql)) {
+                ps.setTimestamp(1, new Timestamp(System.currentTimeMillis()));
+                try (ResultSet rs = ps.executeQuery()) {
+                    while (rs.next()) {
+                        expired.add(rs.getInt(1));
+                    }
+                }
+            }
+            try (PreparedStatement ps = conn.prepareStatement(shelvedSql); ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    shelved.add(rs.getInt(1));
+                }
+            }
+        } catch (SQLException e) {
+            System.err.println("Hold sweep error: " + e.getMessage());
+            return;
+        }
+        for (int holdId : expired) {
+            closeHold(holdId, null, HoldStatus.EXPIRED);
+        }
+        for (int bookId : shelved) {
+            fillFromShelf(bookId);
+        }
+        reload();
+    }
+
+    // Moves a hold to CANCELLED or EXPIRED. Expiry only applies to ready holds; a non-null memberId must own the hold.
+    private static boolean closeHold(int holdId, Integer memberId, HoldStatus closed) {
+        String bookSql = "SELECT book_id, member_id FROM holds WHERE hold_id = ?";
+        int holder = 0;
+        String lockSql = "SELECT book_id FROM books WHERE book_id = ? FOR UPDATE";
+        String statusSql = "SELECT status FROM holds WHERE hold_id = ?";
+        String closeSql = "UPDATE holds SET status = ? WHERE hold_id = ?";
+        String releaseSql = "UPDATE books SET held_copies = held_copies - 1, available_copies = available_copies + 1, version = version + 1 WHERE book_id = ?";
+        int bookId = 0;
+        boolean released = false;
+        List<Hold> promoted = new ArrayList<>();
+        try (Connection conn = DbUtil.getConnection()) {
+            try (PreparedStatement ps = conn.prepareStatement(bookSql)) {
+                ps.setInt(1, holdId);
+                try (ResultSet rs = ps.executeQuery()) {
+                    if (!rs.next() || (memberId != null && rs.getInt(2) != memberId)) {
+                        return false;
+                    }
+                    bookId = rs.getInt(1);
+                    holder = rs.getInt(2);
+                }
+            }
+            conn.setAutoCommit(false);
+            try {
+                try (PreparedStatement ps = conn.prepareStatement(lockSql)) {
+                    ps.setInt(1, bookId);
+                    ps.executeQuery().close();
+                }
+                HoldStatus current = null;
+                try (PreparedStatement ps = conn.prepareStatement(statusSql)) {
+                    ps.setInt(1, holdId);
+                    try (ResultSet rs = ps.executeQuery()) {
+                        if (rs.next()) {
+                            current = HoldStatus.valueOf(rs.getString(1));
+                        }
+                    }
+                }
+                if (current != HoldStatus.READY && (current != HoldStatus.WAITING || closed == HoldStatus.EXPIRED)) {
+                    conn.rollback();
+                    return false;
+                }
+                try (PreparedStatement ps = conn.prepareStatement(closeSql)) {
+                    ps.setString(1, closed.name());
+                    ps.setInt(2, holdId);
+                    ps.executeUpdate();
+                }
+                if (current == HoldStatus.READY) {
+                    try (PreparedStatement ps = conn.prepareStatement(releaseSql)) {
+                        ps.setInt(1, bookId);
+                        ps.executeUpdate();
+                    }
+                    promoted = fill(conn, bookId, 1);
+                    released = true;
+                }
+                conn.commit();
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            } finally {
+                conn.setAutoCommit(true);
+            }
+        } catch (SQLException e) {
+            ServiceException.record(e);
+            System.err.println("Close hold error: " + e.getMessage());
+            return false;
+        }
+        QUEUE.remove(bookId, holdId);
+        if (released) {
+            CirculationJournal.holdReleased(holdId, holder, bookId);
+        }
+        onPromoted(promoted);
+        if (released && promoted.isEmpty()) {
+            BookService.bookChanged(bookId);
+        }
+        return true;
+    }
+
+    // Hands copies sitting on the shelf to a title's waiting holds.
+    private static void fillFromShelf(int bookId) {
+        String lockSql = "SELECT available_copies FROM books WHERE book_id = ? FOR UPDATE";
+        List<Hold> promoted = new ArrayList<>();
+        try (Connection conn = DbUtil.getConnection()) {
+            conn.setAutoCommit(false);
+            try {
+                int available = 0;
+                try (PreparedStatement ps = conn.prepareStatement(lockSql)) {
+                    ps.setInt(1, bookId);
+                    try (ResultSet rs = ps.executeQuery()) {
+                        if (rs.next()) {
+                            available = rs.getInt(1);
+                        }
+                    }
+                }
+                if (available > 0) {
+                    promoted = fill(conn, bookId, available);
+                }
+                conn.commit();
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            } finally {
+                conn.setAutoCommit(true);
+            }
+        } catch (SQLException e) {
+            ServiceException.record(e);
+            System.err.println("Fill holds error: " + e.getMessage());
+            return;
+        }
+        if (!promoted.isEmpty()) {
+            onPromoted(promoted);
+            BookService.bookChanged(bookId);
+        }
+    }
+
+    private static boolean reload() {
+        List<Hold> open = new ArrayList<>();
+        String sql = "SELECT * FROM holds WHERE status IN ('WAITING', 'READY') ORDER BY hold_id";
+        try (Connection conn = DbUtil.getConnection(); PreparedStatement ps = conn.prepareStatement(sql)) {
+            ps.setFetchSize(DbUtil.FETCH_SIZE);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    open.add(readHold(rs));
+                }
+            }
+        } catch (SQLException e) {
+            System.err.println("Load holds error: " + e.getMessage());
+            return false;
+        }
+        QUEUE.replaceAll(open);
+        return true;
+    }
+
+    // available_copies of the book, or -1 if it does not exist.
+    private static int availableCopies(Connection conn, int bookId) throws SQLException {
+        try (PreparedStatement ps = conn.prepareStatement("SELECT available_copies FROM books WHERE book_id = ?")) {
+            ps.setInt(1, bookId);
+            try (ResultSet rs = ps.executeQuery()) {
+                return rs.next() ? rs.getInt(1) : -1;
+            }
+        }
+    }
+
+    private static Hold readHold(ResultSet rs) throws SQLException {
+        return new Hold(
+            rs.getInt("hold_id"),
+            rs.getInt("book_id"),
+            rs.getInt("member_id"),
+            rs.getTimestamp("placed_at"),
+            HoldStatus.valueOf(rs.getString("status")),
+            rs.getTimestamp("pickup_expires")
+        );
+    }
+}
\ No newline at end of file
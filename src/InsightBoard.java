@@ -0,0 +1,442 @@
+package src;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+// Circulation analytics for the InsightBoard reports. Loan history is rolled up once into per-day
+// buckets (issues per book, issues per member, returns and loan days) and then kept current from
+// issue and return events, so a report over any date window only merges the buckets in that
+// window (in parallel) and never runs GROUP BYs against the live tables.
+public class InsightBoard {
+    public static class TitleStat {
+        public final int bookId;
+        public final String title;
+        public final String author;
+        public final long issues;
+        public TitleStat(int bookId, String title, String author, long issues) {
+            this.bookId = bookId;
+            this.title = title;
+            this.author = author;
+            this.issues = issues;
+        }
+    }
+
+    public static class CategoryStat {
+        public final String category;
+        public final long titles;
+        public final long totalCopies;
+        public final long borrowedCopies;
+        public final long issues;
+        public CategoryStat(String category, long titles, long totalCopies, long borrowedCopies, long issues) {
+            this.category = category;
+            this.titles = titles;
+            this.totalCopies = totalCopies;
+            this.borrowedCopies = borrowedCopies;
+            this.issues = issues;
+        }
+
+        // Share of the category's copies on loan right now.
+        public double utilization() {
+            return totalCopies == 0 ? 0.0 : (double) borrowedCopies / totalCopies;
+        }
+
+        // Loans in the window per copy held.
+        public double turnoverPerCopy() {
+            return totalCopies == 0 ? 0.0 : (double) issues / totalCopies;
+        }
+    }
+
+    public static class MemberActivity {
+        public final int memberId;
+        public final long issues;
+        public MemberActivity(int memberId, long issues) {
+            this.memberId = memberId;
+            this.issues = issues;
+        }
+    }
+
+    public static class Report {
+        public final LocalDate from;
+        public final LocalDate to;
+        public final long loansIssued;
+        public final long loansReturned;
+        public final double averageLoanDays;
+        public final int activeMembers;
+        public final int distinctTitles;
+        public final double turnoverPerCopy;
+        public final List<TitleStat> topTitles;
+        public final List<CategoryStat> categories;
+        public final List<MemberActivity> topMembers;
+        public Report(LocalDate from, LocalDate to, long loansIssued, long loansReturned, double averageLoanDays, int activeMembers,
+                      int distinctTitles, double turnoverPerCopy, List<TitleStat> topTitles, List<CategoryStat> categories, List<MemberActivity> topMembers) {
+            this.from = from;
+            this.to = to;
+            this.loansIssued = loansIssued;
+            this.loansReturned = loansReturned;
+            this.averageLoanDays = averageLoanDays;
+            this.activeMembers = activeMembers;
+            this.distinctTitles = distinctTitles;
+            this.turnoverPerCopy = turnoverPerCopy;
+            this.topTitles = topTitles;
+            this.categories = categories;
+            this.topMembers = topMembers;
+        }
+    }
+
+    // History older than this is not loaded, overridable with -Dlexora.insight.historyDays=<days>
+    private static final int HISTORY_DAYS = Integer.getInteger("lexora.insight.historyDays", 730);
+    // Days re-read after a cache bus resync, overridable with -Dlexora.insight.resyncDays=<days>
+    private static final int RESYNC_DAYS = Integer.getInteger("lexora.insight.resyncDays", 7);
+    private static final int PARALLEL_THRESHOLD = 32;
+
+    // Open-addressing int -> long counter; key 0 is never used (ids start at 1).
+    private static class Counter {
+        int[] keys = new int[16];
+        long[] values = new long[16];
+        int size;
+
+        void add(int key, long delta) {
+            if ((size + 1) * 4 > keys.length * 3) {
+                grow();
+            }
+            int mask = keys.length - 1;
+            int i = mix(key) & mask;
+            while (keys[i] != 0 && keys[i] != key) {
+                i = (i + 1) & mask;
+            }
+            if (keys[i] == 0) {
+                keys[i] = key;
+                size++;
+            }
+            values[i] += delta;
+        }
+
+        void addAll(Counter other) {
+            for (int i = 0; i < other.keys.length; i++) {
+                if (other.keys[i] != 0) {
+                    add(other.keys[i], other.values[i]);
+                }
+            }
+        }
+
+        private void grow() {
+            int[] oldKeys = keys;
+            long[] oldValues = values;
+            keys = new int[oldKeys.length * 2];
+            values = new long[oldKeys.length * 2];
+            size = 0;
+            for (int i = 0; i < oldKeys.length; i++) {
+                if (oldKeys[i] != 0) {
+                    add(oldKeys[i], oldValues[i]);
+                }
+            }
+        }
+
+        private static int mix(int key) {
+            int h = key * 0x9E3779B9;
+            return h ^ (h >>> 16);
+        }
+
+        // The n keys with the highest counts, highest first (ties by lower key).
+        int[] top(int n) {
+            List<Integer> slots = new ArrayList<>(size);
+            for (int i = 0; i < keys.length; i++) {
+                if (keys[i] != 0) {
+                    slots.add(i);
+                }
+            }
+            slots.sort((a, b) -> values[a] != values[b] ? Long.compare(values[b], values[a]) : Integer.compare(keys[a], keys[b]));
+            int[] result = new int[Math.min(n, slots.size())];
+            for (int i = 0; i < result.length; i++) {
+                result[i] = slots.get(i);
+            }
+            return result;
+        }
+    }
+
+    private static class Bucket {
+        final Counter bookIssues = new Counter();
+        final Counter memberIssues = new Counter();
+        long returns;
+        long loanDays;
+    }
+
+    private static final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private static final NavigableMap<Long, Bucket> days = new TreeMap<>();
+    private static volatile boolean loaded = false;
+    // Issue and return events that arrive while start() is rolling up history; guarded by itself.
+    private static final List<Runnable> pending = new ArrayList<>();
+    private static boolean loading = false;
+
+    // Rolls up the last HISTORY_DAYS of loans. Safe to call more than once.
+    public static boolean start() {
+        if (loaded) {
+            return true;
+        }
+        lock.writeLock().lock();
+        try {
+            if (loaded) {
+                return true;
+            }
+            synchronized (pending) {
+                loading = true;
+                pending.clear();
+            }
+            days.clear();
+            try {
+                rollUp(LocalDate.now().toEpochDay() - HISTORY_DAYS, days);
+            } catch (SQLException e) {
+                ServiceException.record(e);
+                System.err.println("Load circulation history error: " + e.getMessage());
+                days.clear();
+                synchronized (pending) {
+                    loading = false;
+                    pending.clear();
+                }
+                return false;
+            }
+            // Events that came in during the rollup may not be in it; apply them before going live.
+            synchronized (pending) {
+                for (Runnable event : pending) {
+                    event.run();
+                }
+                pending.clear();
+                loading = false;
+                loaded = true;
+            }
+            return true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public static boolean isLoaded() {
+        return loaded;
+    }
+
+    // Re-reads the buckets of the last RESYNC_DAYS days (today included) and replaces them, leaving the
+    // older history as it is. Used after a cache bus resync, since the events missed are recent ones.
+    static boolean refreshRecent() {
+        if (!loaded) {
+            return true;
+        }
+        long fromDay = LocalDate.now().toEpochDay() - Math.max(0, Math.min(RESYNC_DAYS, HISTORY_DAYS) - 1);
+        lock.writeLock().lock();
+        try {
+            NavigableMap<Long, Bucket> recent = new TreeMap<>();
+            try {
+                rollUp(fromDay, recent);
+            } catch (SQLException e) {
+                ServiceException.record(e);
+                System.err.println("Refresh circulation history error: " + e.getMessage());
+                return false;
+            }
+            days.tailMap(fromDay, true).clear();
+            days.putAll(recent);
+            return true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    static void onIssued(int memberId, int bookId, long issueDay) {
+        if (!loaded && !deferred(() -> addIssue(memberId, bookId, issueDay))) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            addIssue(memberId, bookId, issueDay);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    static void onReturned(long issueDay, long returnDay) {
+        if (!loaded && !deferred(() -> addReturn(issueDay, returnDay))) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            addReturn(issueDay, returnDay);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Called when not loaded: queues the event if a rollup is in progress. Returns true only if the
+    // rollup finished in the meantime, so the caller should apply the event itself.
+    private static boolean deferred(Runnable event) {
+        synchronized (pending) {
+            if (loading) {
+                pending.add(event);
+                return false;
+            }
+            return loaded;
+        }
+    }
+
+    private static void addIssue(int memberId, int bookId, long issueDay) {
+        Bucket b = bucket(issueDay);
+        b.bookIssues.add(bookId, 1);
+        b.memberIssues.add(memberId, 1);
+    }
+
+    private static void addReturn(long issueDay, long returnDay) {
+        Bucket b = bucket(returnDay);
+        b.returns++;
+        b.loanDays += returnDay - issueDay;
+    }
+
+    // Loads the issue and return buckets of every day from fromDay on into target.
+    private static void rollUp(long fromDay, NavigableMap<Long, Bucket> target) throws SQLException {
+        java.sql.Date from = java.sql.Date.valueOf(LocalDate.ofEpochDay(fromDay));
+        String byBook = "SELECT TRUNC(issue_date) AS d, book_id AS k, COUNT(*) AS n FROM borrowings " +
+                "WHERE issue_date >= ? GROUP BY TRUNC(issue_date), book_id";
+        String byMember = "SELECT TRUNC(issue_date) AS d, member_id AS k, COUNT(*) AS n FROM borrowings " +
+                "WHERE issue_date >= ? GROUP BY TRUNC(issue_date), member_id";
+        String returns = "SELECT TRUNC(return_date) AS d, COUNT(*) AS n, SUM(TRUNC(return_date) - TRUNC(issue_date)) AS loan_days " +
+                "FROM borrowings WHERE return_date >= ? GROUP BY TRUNC(return_date)";
+        try (Connection conn = DbUtil.getConnection()) {
+            try (PreparedStatement ps = conn.prepareStatement(byBook)) {
+                ps.setDate(1, from);
+                ps.setFetchSize(DbUtil.FETCH_SIZE);
+                try (ResultSet rs = ps.executeQuery()) {
+                    while (rs.next()) {
+                        bucket(rs.getDate("d").toLocalDate().toEpochDay(), target).bookIssues.add(rs.getInt("k"), rs.getLong("n"));
+                    }
+                }
+            }
+            try (PreparedStatement ps = conn.prepareStatement(byMember)) {
+                ps.setDate(1, from);
+                ps.setFetchSize(DbUtil.FETCH_SIZE);
+                try (ResultSet rs = ps.executeQuery()) {
+                    while (rs.next()) {
+                        bucket(rs.getDate("d").toLocalDate().toEpochDay(), target).memberIssues.add(rs.getInt("k"), rs.getLong("n"));
+                    }
+                }
+            }
+            try (PreparedStatement ps = conn.prepareStatement(returns)) {
+                ps.setDate(1, from);
+                try (ResultSet rs = ps.executeQuery()) {
+                    while (rs.next()) {
+                        Bucket b = bucket(rs.getDate("d").toLocalDate().toEpochDay(), target);
+                        b.returns += rs.getLong("n");
+                        b.loanDays += rs.getLong("loan_days");
+                    }
+                }
+            }
+        }
+    }
+
+    // Report for loans issued (and returned) between from and to inclusive; null if history cannot be loaded.
+    public static Report report(LocalDate from, LocalDate to, int topN) {
+        if (!start()) {
+            return null;
+        }
+        Bucket total;
+        lock.readLock().lock();
+        try {
+            List<Bucket> window = new ArrayList<>(days.subMap(from.toEpochDay(), true, to.toEpochDay(), true).values());
+            total = ForkJoinPool.commonPool().invoke(new Merge(window, 0, window.size()));
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        long issued = 0;
+        int[] bookIds = new int[total.bookIssues.size];
+        int[] counts = new int[total.bookIssues.size];
+        int n = 0;
+        for (int i = 0; i < total.bookIssues.keys.length; i++) {
+            if (total.bookIssues.keys[i] != 0) {
+                bookIds[n] = total.bookIssues.keys[i];
+                counts[n++] = (int) total.bookIssues.values[i];
+                issued += total.bookIssues.values[i];
+            }
+        }
+
+        List<TitleStat> topTitles = new ArrayList<>();
+        for (int slot : total.bookIssues.top(topN)) {
+            int bookId = total.bookIssues.keys[slot];
+            BookService.Book book = BookService.getBookById(bookId);
+            topTitles.add(new TitleStat(bookId, book != null ? book.title : null, book != null ? book.author : null, total.bookIssues.values[slot]));
+        }
+        List<MemberActivity> topMembers = new ArrayList<>();
+        for (int slot : total.memberIssues.top(topN)) {
+            topMembers.add(new MemberActivity(total.memberIssues.keys[slot], total.memberIssues.values[slot]));
+        }
+
+        List<CategoryStat> categories = new ArrayList<>();
+        long copies = 0;
+        CatalogSnapshot catalog = BookService.catalogSnapshot();
+        if (catalog != null) {
+            for (Map.Entry<String, long[]> e : catalog.categoryTotals(bookIds, counts, n).entrySet()) {
+                long[] t = e.getValue();
+                categories.add(new CategoryStat(e.getKey(), t[0], t[1], t[2], t[3]));
+                copies += t[1];
+            }
+            categories.sort((a, b) -> a.issues != b.issues ? Long.compare(b.issues, a.issues) : a.category.compareTo(b.category));
+        }
+
+        double averageLoanDays = total.returns == 0 ? 0.0 : Math.round(total.loanDays * 100.0 / total.returns) / 100.0;
+        double turnover = copies == 0 ? 0.0 : (double) issued / copies;
+        return new Report(from, to, issued, total.returns, averageLoanDays, total.memberIssues.size, total.bookIssues.size,
+                turnover, topTitles, categories, topMembers);
+    }
+
+    private static Bucket bucket(long day) {
+        return bucket(day, days);
+    }
+
+    private static Bucket bucket(long day, NavigableMap<Long, Bucket> target) {
+        return target.computeIfAbsent(day, d -> new Bucket());
+    }
+
+    private static class Merge extends RecursiveTask<Bucket> {
+        private static final long serialVersionUID = 1L;
+
+        private final List<Bucket> buckets;
+        private final int from;
+        private final int to;
+
+        Merge(List<Bucket> buckets, int from, int to) {
+            this.buckets = buckets;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected Bucket compute() {
+            if (to - from <= PARALLEL_THRESHOLD) {
+                Bucket merged = new Bucket();
+                for (Bucket b : buckets.subList(from, to)) {
+                    merged.bookIssues.addAll(b.bookIssues);
+                    merged.memberIssues.addAll(b.memberIssues);
+                    merged.returns += b.returns;
+                    merged.loanDays += b.loanDays;
+                }
+                return merged;
+            }
+            int mid = (from + to) >>> 1;
+            Merge left = new Merge(buckets, from, mid);
+            left.fork();
+            Bucket merged = new Merge(buckets, mid, to).compute();
+            Bucket other = left.join();
+            merged.bookIssues.addAll(other.bookIssues);
+            merged.memberIssues.addAll(other.memberIssues);
+            merged.returns += other.returns;
+            merged.loanDays += other.loanDays;
+            return merged;
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,148 @@
+package src;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+// Checks the per-book circulation counters (books.borrowed_copies / held_copies / available_copies)
+// against the ISSUED rows in borrowings and the READY rows in holds, and optionally repairs any drift.
+public class InventoryReconciler {
+    public static class Discrepancy {
+        public final int bookId;
+        public final int totalCopies;
+        public final int recordedBorrowed;
+        public final int recordedAvailable;
+        public final int actualBorrowed;
+        public final int recordedHeld;
+        public final int actualHeld;
+        public Discrepancy(int bookId, int totalCopies, int recordedBorrowed, int recordedAvailable, int actualBorrowed, int recordedHeld, int actualHeld) {
+            this.bookId = bookId;
+            this.totalCopies = totalCopies;
+            this.recordedBorrowed = recordedBorrowed;
+            this.recordedAvailable = recordedAvailable;
+            this.actualBorrowed = actualBorrowed;
+            this.recordedHeld = recordedHeld;
+            this.actualHeld = actualHeld;
+        }
+
+        public int expectedAvailable() {
+            return Math.max(0, totalCopies - actualBorrowed - actualHeld);
+        }
+    }
+
+    private static final String CHECK_SQL =
+            "SELECT b.book_id, b.total_copies, b.borrowed_copies, b.available_copies, b.held_copies, " +
+            "NVL(o.open_count, 0) AS open_count, NVL(h.ready_count, 0) AS ready_count " +
+            "FROM books b LEFT JOIN (SELECT book_id, COUNT(*) AS open_count FROM borrowings WHERE status = 'ISSUED' GROUP BY book_id) o " +
+            "ON o.book_id = b.book_id " +
+            "LEFT JOIN (SELECT book_id, COUNT(*) AS ready_count FROM holds WHERE status = 'READY' GROUP BY book_id) h " +
+            "ON h.book_id = b.book_id " +
+            "WHERE b.borrowed_copies <> NVL(o.open_count, 0) OR b.held_copies <> NVL(h.ready_count, 0) " +
+            "OR b.available_copies <> GREATEST(0, b.total_copies - NVL(o.open_count, 0) - NVL(h.ready_count, 0))";
+
+    // Recounts under a row lock so a checkout that commits in between is not overwritten.
+    private static final String REPAIR_SQL =
+            "UPDATE books b SET b.version = b.version + 1, " +
+            "b.borrowed_copies = (SELECT COUNT(*) FROM borrowings br WHERE br.book_id = b.book_id AND br.status = 'ISSUED'), " +
+            "b.held_copies = (SELECT COUNT(*) FROM holds h WHERE h.book_id = b.book_id AND h.status = 'READY'), " +
+            "b.available_copies = GREATEST(0, b.total_copies - (SELECT COUNT(*) FROM borrowings br WHERE br.book_id = b.book_id AND br.status = 'ISSUED') " +
+            "- (SELECT COUNT(*) FROM holds h WHERE h.book_id = b.book_id AND h.status = 'READY')) " +
+            "WHERE b.book_id = ?";
+
+    private static ScheduledExecutorService scheduler;
+
+    public static List<Discrepancy> findDiscrepancies() {
+        List<Discrepancy> list = new ArrayList<>();
+        try (Connection conn = DbUtil.getConnection(); PreparedStatement ps = conn.prepareStatement(CHECK_SQL)) {
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    list.add(new Discrepancy(
+                        rs.getInt("book_id"),
+                        rs.getInt("total_copies"),
+                        rs.getInt("borrowed_copies"),
+                        rs.getInt("available_copies"),
+                        rs.getInt("open_count"),
+                        rs.getInt("held_copies"),
+                        rs.getInt("ready_count")
+                    ));
+                }
+            }
+        } catch (SQLException e) {
+            System.err.println("Inventory check error: " + e.getMessage());
+        }
+        return list;
+    }
+
+    // Finds drifted books and, if repair is set, resets their counters from borrowings. Returns what was found.
+    public static List<Discrepancy> reconcile(boolean repair) {
+        List<Discrepancy> found = findDiscrepancies();
+        if (!repair || found.isEmpty()) {
+            return found;
+        }
+        try (Connection conn = DbUtil.getConnection(); PreparedStatement ps = conn.prepareStatement(REPAIR_SQL)) {
+            conn.setAutoCommit(false);
+            try {
+                for (Discrepancy d : found) {
+                    ps.setInt(1, d.bookId);
+                    ps.addBatch();
+                }
+                ps.executeBatch();
+                conn.commit();
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            } finally {
+                conn.setAutoCommit(true);
+            }
+        } catch (SQLException e) {
+            System.err.println("Inventory repair error: " + e.getMessage());
+            return found;
+        }
+        for (Discrepancy d : found) {
+            BookService.bookChanged(d.bookId);
+        }
+        journalCopies(found);
+        return found;
+    }
+
+    // Runs reconcile(true) in the background every periodMinutes.
+    // A repair resets the counters the journal's events add up to, so replay restarts each repaired book
+    // from an ADJUSTMENT with its current total.
+    private static void journalCopies(List<Discrepancy> repaired) {
+        String sql = "SELECT total_copies FROM books WHERE book_id = ?";
+        try (Connection conn = DbUtil.getConnection(); PreparedStatement ps = conn.prepareStatement(sql)) {
+            for (Discrepancy d : repaired) {
+                ps.setInt(1, d.bookId);
+                try (ResultSet rs = ps.executeQuery()) {
+                    CirculationJournal.adjusted(d.bookId, rs.next() ? rs.getInt(1) : 0);
+                }
+            }
+        } catch (SQLException e) {
+            ServiceException.record(e);
+            System.err.println("Journal inventory repair error: " + e.getMessage());
+        }
+    }
+
+    public static synchronized void schedule(long periodMinutes) {
+        if (scheduler != null) {
+            return;
+        }
+        scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "lexora-inventory-reconciler");
+            t.setDaemon(true);
+            return t;
+        });
+        scheduler.scheduleWithFixedDelay(() -> {
+            List<Discrepancy> fixed = reconcile(true);
+            if (!fixed.isEmpty()) {
+                System.err.println("Inventory reconciler repaired counters for " + fixed.size() + " book(s).");
+            }
+        }, periodMinutes, periodMinutes, TimeUnit.MINUTES);
+    }
+}
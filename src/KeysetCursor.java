@@ -0,0 +1,78 @@
+package src;
+
+import java.sql.SQLException;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.ToIntFunction;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+// Walks a table in primary-key order one page at a time ("WHERE id > ? ORDER BY id"),
+// so only one page is ever held in memory and no cursor stays open between pages.
+// A page that cannot be read ends the walk with a ServiceException (DATABASE_ERROR) instead of
+// looking like the end of the table.
+public class KeysetCursor<T> implements Iterator<T> {
+    // Like the blocking services: a failed fetch records its SQLException with ServiceException.record.
+    public interface PageFetcher<T> {
+        List<T> fetch(int afterKey, int pageSize);
+    }
+
+    private final PageFetcher<T> fetcher;
+    private final ToIntFunction<T> keyOf;
+    private final int pageSize;
+    private List<T> page;
+    private int position;
+    private int lastKey;
+    private boolean exhausted;
+
+    public KeysetCursor(PageFetcher<T> fetcher, ToIntFunction<T> keyOf, int afterKey, int pageSize) {
+        if (pageSize < 1) {
+            throw new IllegalArgumentException("Page size must be positive: " + pageSize);
+        }
+        this.fetcher = fetcher;
+        this.keyOf = keyOf;
+        this.lastKey = afterKey;
+        this.pageSize = pageSize;
+    }
+
+    public static <T> Stream<T> stream(PageFetcher<T> fetcher, ToIntFunction<T> keyOf, int pageSize) {
+        KeysetCursor<T> cursor = new KeysetCursor<>(fetcher, keyOf, 0, pageSize);
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(cursor, Spliterator.ORDERED | Spliterator.NONNULL), false);
+    }
+
+    @Override
+    public boolean hasNext() {
+        if (page != null && position < page.size()) {
+            return true;
+        }
+        if (exhausted) {
+            return false;
+        }
+        ServiceException.clear();
+        List<T> fetched = fetcher.fetch(lastKey, pageSize);
+        SQLException error = ServiceException.takeLast();
+        if (error != null) {
+            // Left as it was, so hasNext() can try the same page again.
+            throw new ServiceException(ServiceException.Kind.DATABASE_ERROR, error.getMessage(), error);
+        }
+        page = fetched;
+        position = 0;
+        if (page.size() < pageSize) {
+            exhausted = true;
+        }
+        return !page.isEmpty();
+    }
+
+    @Override
+    public T next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        T item = page.get(position++);
+        lastKey = keyOf.applyAsInt(item);
+        return item;
+    }
+}
@@ -1,18 +1,33 @@
 package src;
 
+import java.sql.SQLException;
+import java.time.Instant;
 import java.util.Scanner;
+import java.util.Iterator;
 import java.util.List;
+import java.util.ArrayList;
+import java.util.Map;
 import java.util.Date;
 
 public class LexoraApp {
     private static Scanner scanner = new Scanner(System.in);
+    private static final int LIST_PAGE_SIZE = 200;
 
     public static void main(String[] args) {
+        if (args.length > 0 && args[0].equals("--server")) {
+            startServer(args);
+            return;
+        }
 
         System.out.println(PasswordUtil.hashPassword("admin123"));
         // Test database data fetching
 
         System.out.println("Welcome to Lexora Library Management System");
+        WarmStartSnapshot.start();
+        DueDateScheduler.start();
+        HoldService.start();
+        CirculationJournal.start();
+        CacheBus.start();
         while (true) {
             System.out.println("\n1. Login\n2. Exit");
             System.out.print("Select an option: ");
@@ -28,12 +43,35 @@ public class LexoraApp {
         }
     }
 
+    // Server mode: java src.LexoraApp --server [port]
+    private static void startServer(String[] args) {
+        int port = args.length > 1 ? Integer.parseInt(args[1]) : 8080;
+        try {
+            WarmStartSnapshot.start();
+            DueDateScheduler.start();
+            HoldService.start();
+            CirculationJournal.start();
+            CacheBus.start();
+            LexoraServer server = new LexoraServer(port, Integer.getInteger("lexora.server.maxConcurrency", 256));
+            Runtime.getRuntime().addShutdownHook(new Thread(server::stop, "lexora-server-shutdown"));
+            server.start();
+        } catch (java.io.IOException e) {
+            System.err.println("Could not start server: " + e.getMessage());
+        }
+    }
+
     private static void loginFlow() {
         System.out.print("Username: ");
         String username = scanner.nextLine();
         System.out.print("Password: ");
         String password = scanner.nextLine();
-        AuthService.AuthResult auth = AuthService.authenticate(username, password);
+        AuthService.AuthResult auth;
+        try {
+            auth = AuthService.authenticate(username, password);
+        } catch (ServiceException e) {
+            System.out.println("Login is busy right now, please try again: " + e.getMessage());
+            return;
+        }
         if (auth == null) {
             System.out.println("Login failed. Please check your credentials.");
             return;
@@ -51,6 +89,7 @@ public class LexoraApp {
     private static void librarianMenu() {
         while (true) {
             System.out.println("\n--- Librarian Menu ---");
+            printOfflineNotice();
             System.out.println("1. Manage Books");
             System.out.println("2. Manage Members");
             System.out.println("3. Borrowing/Returning");
@@ -60,7 +99,8 @@ public class LexoraApp {
             System.out.println("7. Count Books by Author");
             System.out.println("8. View Member Borrowing Stats");
             System.out.println("9. View Currently Rented Books");
-            System.out.println("10. Logout");
+            System.out.println("10. System Health");
+            System.out.println("11. Logout");
             System.out.print("Select an option: ");
             String choice = scanner.nextLine();
             switch (choice) {
@@ -92,6 +132,9 @@ public class LexoraApp {
                     viewCurrentlyRentedBooks();
                     break;
                 case "10":
+                    showSystemHealth();
+                    break;
+                case "11":
                     return;
                 default:
                     System.out.println("Invalid option. Try again.");
@@ -102,9 +145,12 @@ public class LexoraApp {
     private static void memberMenu(Integer memberId) {
         while (true) {
             System.out.println("\n--- Member Menu ---");
+            printOfflineNotice();
             System.out.println("1. Search Books");
             System.out.println("2. View My Borrowings");
-            System.out.println("3. Logout");
+            System.out.println("3. Place Hold");
+            System.out.println("4. View My Holds");
+            System.out.println("5. Logout");
             System.out.print("Select an option: ");
             String choice = scanner.nextLine();
             switch (choice) {
@@ -115,6 +161,12 @@ public class LexoraApp {
                     viewMyBorrowings(memberId);
                     break;
                 case "3":
+                    placeHold(memberId);
+                    break;
+                case "4":
+                    viewHolds(memberId);
+                    break;
+                case "5":
                     return;
                 default:
                     System.out.println("Invalid option. Try again.");
@@ -130,7 +182,8 @@ public class LexoraApp {
             System.out.println("2. Update Book");
             System.out.println("3. Delete Book");
             System.out.println("4. Search Books");
-            System.out.println("5. Back");
+            System.out.println("5. Import Books from CSV");
+            System.out.println("6. Back");
             System.out.print("Select an option: ");
             String choice = scanner.nextLine();
             switch (choice) {
@@ -147,6 +200,9 @@ public class LexoraApp {
                     searchBooks();
                     break;
                 case "5":
+                    importBooks();
+                    break;
+                case "6":
                     return;
                 default:
                     System.out.println("Invalid option. Try again.");
@@ -200,17 +256,35 @@ public class LexoraApp {
     private static void searchBooks() {
         System.out.print("Enter keyword to search: ");
         String keyword = scanner.nextLine();
+        ServiceException.clear();
         List<BookService.Book> books = BookService.searchBooks(keyword);
         if (books.isEmpty()) {
-            System.out.println("No books found.");
+            printEmpty("No books found.");
         } else {
             System.out.println("\n--- Book List ---");
+            printOfflineNotice();
             for (BookService.Book b : books) {
                 System.out.println("ID: " + b.bookId + ", ISBN: " + b.isbn + ", Title: " + b.title + ", Author: " + b.author + ", Category: " + b.category + ", Year: " + b.publishedYear + ", Total Copies: " + b.totalCopies + ", Borrowed: " + b.borrowedCopies + ", Available: " + b.availableCopies + ", Status: " + b.status);
             }
         }
     }
 
+    private static void importBooks() {
+        System.out.print("CSV file path (isbn,title,author,category,published_year,total_copies): ");
+        String path = scanner.nextLine().trim();
+        CatalogImporter importer = new CatalogImporter(Runtime.getRuntime().availableProcessors(), 1000,
+                p -> System.out.print("\rRead: " + p.rowsRead + ", Imported: " + p.rowsImported + ", Rejected: " + p.rowsRejected));
+        try {
+            CatalogImporter.ImportReport report = importer.importCsv(java.nio.file.Paths.get(path));
+            System.out.println("\nImport finished in " + report.elapsedMillis + " ms.");
+            for (CatalogImporter.RowError e : report.errors) {
+                System.out.println("Line " + e.lineNumber + ": " + e.message);
+            }
+        } catch (Exception e) {
+            System.out.println("\nImport failed: " + e.getMessage());
+        }
+    }
+
     // --- Member Management ---
     private static void manageMembers() {
         while (true) {
@@ -278,7 +352,11 @@ public class LexoraApp {
             System.out.println("\n--- Borrowing/Returning ---");
             System.out.println("1. Issue Book");
             System.out.println("2. Return Book");
-            System.out.println("3. Back");
+            System.out.println("3. Issue Multiple Books");
+            System.out.println("4. Return Multiple Books");
+            System.out.println("5. Place Hold");
+            System.out.println("6. View/Cancel Member Holds");
+            System.out.println("7. Back");
             System.out.print("Select an option: ");
             String choice = scanner.nextLine();
             switch (choice) {
@@ -289,6 +367,18 @@ public class LexoraApp {
                     returnBook();
                     break;
                 case "3":
+                    issueBooks();
+                    break;
+                case "4":
+                    returnBooks();
+                    break;
+                case "5":
+                    placeHold(null);
+                    break;
+                case "6":
+                    viewHolds(null);
+                    break;
+                case "7":
                     return;
                 default:
                     System.out.println("Invalid option. Try again.");
@@ -315,37 +405,255 @@ public class LexoraApp {
     private static void returnBook() {
         System.out.print("Borrow ID: ");
         int borrowId = Integer.parseInt(scanner.nextLine());
-        System.out.print("Fine Amount (if any, else 0): ");
-        double fine = Double.parseDouble(scanner.nextLine());
+        BorrowingService.Borrowing loan = BorrowingService.getBorrowingById(borrowId);
+        double suggested = loan != null && loan.dueDate != null ? PenaltyEngine.DEFAULT.fineFor(loan.dueDate, new Date()) : 0.0;
+        System.out.print("Fine Amount (press Enter for calculated fine " + suggested + "): ");
+        String fineStr = scanner.nextLine().trim();
+        double fine = fineStr.isEmpty() ? suggested : Double.parseDouble(fineStr);
         boolean success = BorrowingService.returnBook(borrowId, fine);
         System.out.println(success ? "Book returned successfully." : "Failed to return book.");
     }
 
+    private static void issueBooks() {
+        System.out.print("Member ID: ");
+        int memberId = Integer.parseInt(scanner.nextLine());
+        System.out.print("Book IDs (comma separated): ");
+        String bookIdsStr = scanner.nextLine();
+        System.out.print("Due Date (yyyy-mm-dd): ");
+        String dueDateStr = scanner.nextLine();
+        try {
+            List<Integer> bookIds = parseIds(bookIdsStr);
+            Date dueDate = java.sql.Date.valueOf(dueDateStr);
+            for (BorrowingService.ItemResult r : BorrowingService.issueBooks(memberId, bookIds, dueDate)) {
+                System.out.println("Book ID " + r.id + ": " + r.status);
+            }
+        } catch (IllegalArgumentException e) {
+            System.out.println("Invalid input: " + e.getMessage());
+        }
+    }
+
+    private static void returnBooks() {
+        System.out.print("Borrow IDs (comma separated): ");
+        try {
+            List<Integer> borrowIds = parseIds(scanner.nextLine());
+            for (BorrowingService.ItemResult r : BorrowingService.returnBooks(borrowIds)) {
+                System.out.println("Borrow ID " + r.id + ": " + r.status);
+            }
+        } catch (IllegalArgumentException e) {
+            System.out.println("Invalid input: " + e.getMessage());
+        }
+    }
+
+    // memberId is null when a librarian acts for a member.
+    private static void placeHold(Integer memberId) {
+        try {
+            if (memberId == null) {
+                System.out.print("Member ID: ");
+                memberId = Integer.parseInt(scanner.nextLine());
+            }
+            System.out.print("Book ID: ");
+            int bookId = Integer.parseInt(scanner.nextLine());
+            HoldService.PlaceResult result = HoldService.placeHold(memberId, bookId);
+            switch (result) {
+                case PLACED:
+                    System.out.println("Hold placed. Position in queue: " + HoldService.getQueuePosition(bookId, memberId) + ".");
+                    break;
+                case COPIES_AVAILABLE:
+                    System.out.println("A copy is available now; borrow it instead.");
+                    break;
+                case ALREADY_HELD:
+                    System.out.println("There is already a hold on this book for the member.");
+                    break;
+                case NOT_FOUND:
+                    System.out.println("Book not found.");
+                    break;
+                default:
+                    System.out.println("Failed to place hold.");
+            }
+        } catch (NumberFormatException e) {
+            System.out.println("Invalid ID. Please enter a number.");
+        }
+    }
+
+    private static void viewHolds(Integer memberId) {
+        try {
+            if (memberId == null) {
+                System.out.print("Member ID: ");
+                memberId = Integer.parseInt(scanner.nextLine());
+            }
+            ServiceException.clear();
+            List<HoldService.Hold> holds = HoldService.getHoldsByMember(memberId);
+            if (holds.isEmpty()) {
+                printEmpty("No open holds.");
+                return;
+            }
+            for (HoldService.Hold h : holds) {
+                String state = h.status == HoldService.HoldStatus.READY
+                        ? "READY, pick up by " + h.pickupExpires
+                        : "WAITING, position " + HoldService.getQueuePosition(h.bookId, h.memberId);
+                System.out.println("Hold ID: " + h.holdId + ", Book ID: " + h.bookId + ", Placed: " + h.placedAt + ", " + state);
+            }
+            System.out.print("Hold ID to cancel (press Enter to keep all): ");
+            String input = scanner.nextLine().trim();
+            if (!input.isEmpty()) {
+                boolean success = HoldService.cancelHold(memberId, Integer.parseInt(input));
+                System.out.println(success ? "Hold cancelled." : "Failed to cancel hold.");
+            }
+        } catch (NumberFormatException e) {
+            System.out.println("Invalid ID. Please enter a number.");
+        }
+    }
+
+    private static List<Integer> parseIds(String input) {
+        List<Integer> ids = new java.util.ArrayList<>();
+        for (String part : input.split(",")) {
+            if (!part.trim().isEmpty()) {
+                ids.add(Integer.parseInt(part.trim()));
+            }
+        }
+        return ids;
+    }
+
     // --- Reports ---
     private static void showReports() {
         System.out.println("\n--- Reports ---");
         System.out.println("1. Overdue Borrowings");
-        System.out.println("2. Back");
+        System.out.println("2. Inventory Reconciliation");
+        System.out.println("3. Due Soon");
+        System.out.println("4. Run Fine Assessment");
+        System.out.println("5. InsightBoard");
+        System.out.println("6. Back");
         System.out.print("Select an option: ");
         String choice = scanner.nextLine();
         if (choice.equals("1")) {
+            ServiceException.clear();
             List<BorrowingService.Borrowing> overdue = BorrowingService.getOverdueBorrowings();
             if (overdue.isEmpty()) {
-                System.out.println("No overdue borrowings.");
+                printEmpty("No overdue borrowings.");
             } else {
                 System.out.println("\n--- Overdue Borrowings ---");
                 for (BorrowingService.Borrowing b : overdue) {
                     System.out.println("Borrow ID: " + b.borrowId + ", Member ID: " + b.memberId + ", Book ID: " + b.bookId + ", Due: " + b.dueDate + ", Fine: " + b.fineAmount + ", Status: " + b.status);
                 }
             }
+        } else if (choice.equals("2")) {
+            List<InventoryReconciler.Discrepancy> drift = InventoryReconciler.findDiscrepancies();
+            if (drift.isEmpty()) {
+                System.out.println("All inventory counters match the borrowing records.");
+                return;
+            }
+            System.out.println("\n--- Inventory Discrepancies ---");
+            for (InventoryReconciler.Discrepancy d : drift) {
+                System.out.println("Book ID: " + d.bookId + ", Borrowed: " + d.recordedBorrowed + " (actual " + d.actualBorrowed + "), Held: " + d.recordedHeld + " (actual " + d.actualHeld + "), Available: " + d.recordedAvailable + " (expected " + d.expectedAvailable() + ")");
+            }
+            System.out.print("Repair these counters? (y/n): ");
+            if (scanner.nextLine().trim().equalsIgnoreCase("y")) {
+                InventoryReconciler.reconcile(true);
+                System.out.println("Inventory counters repaired.");
+            }
+        } else if (choice.equals("3")) {
+            System.out.print("Due within how many days? ");
+            try {
+                int days = Integer.parseInt(scanner.nextLine().trim());
+                List<BorrowingService.Borrowing> dueSoon = BorrowingService.getBorrowingsDueWithin(days);
+                if (dueSoon.isEmpty()) {
+                    System.out.println("No borrowings due in the next " + days + " days.");
+                } else {
+                    System.out.println("\n--- Due Soon ---");
+                    for (BorrowingService.Borrowing b : dueSoon) {
+                        System.out.println("Borrow ID: " + b.borrowId + ", Member ID: " + b.memberId + ", Book ID: " + b.bookId + ", Due: " + b.dueDate);
+                    }
+                }
+            } catch (NumberFormatException e) {
+                System.out.println("Invalid number of days.");
+            }
+        } else if (choice.equals("4")) {
+            PenaltyEngine.RunReport report = PenaltyEngine.DEFAULT.runAssessment();
+            System.out.println("Assessed " + report.loansScanned + " overdue loans, updated " + report.finesUpdated + " fines, total outstanding " + report.totalAssessed + " (" + report.elapsedMillis + " ms).");
+        } else if (choice.equals("5")) {
+            showInsightBoard();
+        }
+    }
+
+    private static void showSystemHealth() {
+        System.out.println("\n--- System Health ---");
+        System.out.println("Connection pool: " + DbUtil.getPoolStats());
+        System.out.println("Database: " + DbUtil.getBreakerStats());
+        System.out.println("Book cache: " + BookService.getBookCacheStats());
+        System.out.println("Catalog snapshot: " + BookService.getCatalogSummary());
+        System.out.println("Circulation journal: " + CirculationJournal.getStats());
+        if (CacheBus.isStarted()) {
+            System.out.println("Cache bus: " + CacheBus.getStats());
+        }
+        List<BookContention.Counts> contended = BookContention.top(10);
+        if (!contended.isEmpty()) {
+            System.out.println("\n--- Most contended books ---");
+            for (BookContention.Counts c : contended) {
+                System.out.println(c);
+            }
+        }
+        System.out.println("\n--- Operations (since startup) ---");
+        for (OperationMetrics.Op op : OperationMetrics.snapshot()) {
+            if (op.getCalls() > 0) {
+                System.out.println(op);
+            }
+        }
+    }
+
+    private static void showInsightBoard() {
+        System.out.print("Report on the last how many days? [30] ");
+        String input = scanner.nextLine().trim();
+        int days;
+        try {
+            days = input.isEmpty() ? 30 : Integer.parseInt(input);
+        } catch (NumberFormatException e) {
+            System.out.println("Invalid number of days.");
+            return;
+        }
+        java.time.LocalDate to = java.time.LocalDate.now();
+        InsightBoard.Report r = InsightBoard.report(to.minusDays(Math.max(0, days - 1)), to, 10);
+        if (r == null) {
+            System.out.println("Circulation history is not available.");
+            return;
+        }
+        System.out.println("\n--- InsightBoard: " + r.from + " to " + r.to + " ---");
+        System.out.println("Loans issued: " + r.loansIssued + ", returned: " + r.loansReturned + ", average loan: " + r.averageLoanDays + " days");
+        System.out.println("Active members: " + r.activeMembers + ", titles borrowed: " + r.distinctTitles + String.format(", turnover per copy: %.2f", r.turnoverPerCopy));
+        System.out.println("\nTop borrowed titles:");
+        for (InsightBoard.TitleStat t : r.topTitles) {
+            System.out.println("  " + t.issues + "x  " + t.title + " by " + t.author + " (ID " + t.bookId + ")");
         }
+        System.out.println("\nCategory utilization:");
+        for (InsightBoard.CategoryStat c : r.categories) {
+            System.out.println(String.format("  %-20s titles=%d copies=%d on loan=%d (%.0f%%) issues=%d turnover=%.2f",
+                    c.category.isEmpty() ? "(none)" : c.category, c.titles, c.totalCopies, c.borrowedCopies, c.utilization() * 100, c.issues, c.turnoverPerCopy()));
+        }
+        System.out.println("\nMost active members:");
+        for (InsightBoard.MemberActivity a : r.topMembers) {
+            System.out.println("  Member ID " + a.memberId + ": " + a.issues + " loans");
+        }
+    }
+
+    // While the database is unreachable, lists come from memory and changes fail; say so.
+    private static void printOfflineNotice() {
+        if (DbUtil.isDegraded()) {
+            System.out.println("[Offline: database unreachable since " + Instant.ofEpochMilli(DbUtil.getBreakerStats().openedAt)
+                    + ". Showing the last known data; changes are disabled.]");
+        }
+    }
+
+    // An empty list may only mean the database could not be read; show the error instead of "nothing found".
+    private static void printEmpty(String message) {
+        SQLException error = ServiceException.takeLast();
+        System.out.println(error != null ? "Could not load data: " + error.getMessage() : message);
     }
 
     // --- Member Borrowings ---
     private static void viewMyBorrowings(Integer memberId) {
+        ServiceException.clear();
         List<BorrowingService.Borrowing> list = BorrowingService.getBorrowingsByMember(memberId);
         if (list.isEmpty()) {
-            System.out.println("You have no borrowings.");
+            printEmpty("You have no borrowings.");
         } else {
             System.out.println("\n--- My Borrowings ---");
             for (BorrowingService.Borrowing b : list) {
@@ -355,32 +663,46 @@ public class LexoraApp {
     }
 
     private static void viewAllBooks() {
-        List<BookService.Book> books = BookService.getAllBooks();
-        if (books.isEmpty()) {
-            System.out.println("No books found.");
-        } else {
-            System.out.println("\n--- All Books ---");
-            for (BookService.Book b : books) {
-                System.out.println("ID: " + b.bookId + ", ISBN: " + b.isbn + ", Title: " + b.title + ", Author: " + b.author + ", Category: " + b.category + ", Year: " + b.publishedYear + ", Total Copies: " + b.totalCopies + ", Borrowed: " + b.borrowedCopies + ", Available: " + b.availableCopies + ", Status: " + b.status);
+        // Rows are printed page by page as they arrive instead of after the whole table is read.
+        Iterator<BookService.Book> books = BookService.streamAllBooks(LIST_PAGE_SIZE).iterator();
+        try {
+            if (!books.hasNext()) {
+                System.out.println("No books found.");
+            } else {
+                System.out.println("\n--- All Books ---");
+                printOfflineNotice();
+                while (books.hasNext()) {
+                    BookService.Book b = books.next();
+                    System.out.println("ID: " + b.bookId + ", ISBN: " + b.isbn + ", Title: " + b.title + ", Author: " + b.author + ", Category: " + b.category + ", Year: " + b.publishedYear + ", Total Copies: " + b.totalCopies + ", Borrowed: " + b.borrowedCopies + ", Available: " + b.availableCopies + ", Status: " + b.status);
+                }
             }
+        } catch (ServiceException e) {
+            System.out.println("Could not load data: " + e.getMessage());
         }
     }
 
     private static void viewAllMembers() {
-        List<MemberService.Member> members = MemberService.getAllMembers();
-        if (members.isEmpty()) {
-            System.out.println("No members found.");
-        } else {
-            System.out.println("\n--- All Members ---");
-            for (MemberService.Member m : members) {
-                System.out.println("ID: " + m.memberId + ", Name: " + m.fullName + ", Email: " + m.email + ", Phone: " + m.phone + ", Status: " + m.status);
+        Iterator<MemberService.Member> members = MemberService.streamAllMembers(LIST_PAGE_SIZE).iterator();
+        try {
+            if (!members.hasNext()) {
+                System.out.println("No members found.");
+            } else {
+                System.out.println("\n--- All Members ---");
+                printOfflineNotice();
+                while (members.hasNext()) {
+                    MemberService.Member m = members.next();
+                    System.out.println("ID: " + m.memberId + ", Name: " + m.fullName + ", Email: " + m.email + ", Phone: " + m.phone + ", Status: " + m.status);
+                }
             }
+        } catch (ServiceException e) {
+            System.out.println("Could not load data: " + e.getMessage());
         }
     }
     private static void viewCurrentlyRentedBooks() {
+        ServiceException.clear();
         List<BorrowingService.Borrowing> borrowed = BorrowingService.getCurrentlyBorrowedBooks();
         if (borrowed.isEmpty()) {
-            System.out.println("No books are currently rented.");
+            printEmpty("No books are currently rented.");
         } else {
             System.out.println("\n--- Currently Rented Books ---");
             java.util.Date today = new java.util.Date();
@@ -393,19 +715,49 @@ public class LexoraApp {
     }
 
     private static void countBooksByAuthor() {
-        System.out.print("Enter author name: ");
-        String author = scanner.nextLine();
-        int count = BookService.countBooksByAuthor(author);
-        System.out.println("Total books by '" + author + "': " + count);
+        System.out.print("Enter author name (separate several with ';'): ");
+        String input = scanner.nextLine();
+        if (!input.contains(";")) {
+            int count = BookService.countBooksByAuthor(input);
+            System.out.println("Total books by '" + input + "': " + count);
+            return;
+        }
+        List<String> authors = new ArrayList<>();
+        for (String author : input.split(";")) {
+            if (!author.trim().isEmpty()) {
+                authors.add(author.trim());
+            }
+        }
+        Map<String, Integer> counts = BookService.countBooksByAuthors(authors);
+        for (String author : authors) {
+            System.out.println("Total books by '" + author + "': " + counts.getOrDefault(author, 0));
+        }
     }
 
     private static void viewMemberBorrowingStats() {
-        System.out.print("Enter member ID: ");
+        System.out.print("Enter member ID (separate several with ','): ");
         String input = scanner.nextLine();
         try {
-            int memberId = Integer.parseInt(input);
-            int totalBorrows = MemberService.getMemberTotalBorrows(memberId);
-            System.out.println("Member ID " + memberId + " has borrowed " + totalBorrows + " books in total.");
+            List<Integer> memberIds = new ArrayList<>();
+            for (String id : input.split(",")) {
+                if (!id.trim().isEmpty()) {
+                    memberIds.add(Integer.parseInt(id.trim()));
+                }
+            }
+            if (memberIds.isEmpty()) {
+                System.out.println("Invalid member ID. Please enter a number.");
+                return;
+            }
+            if (memberIds.size() == 1) {
+                int memberId = memberIds.get(0);
+                int totalBorrows = MemberService.getMemberTotalBorrows(memberId);
+                System.out.println("Member ID " + memberId + " has borrowed " + totalBorrows + " books in total.");
+                return;
+            }
+            Map<Integer, Integer> totals = MemberService.getMembersTotalBorrows(memberIds);
+            for (int memberId : memberIds) {
+                System.out.println("Member ID " + memberId + " has borrowed " + totals.getOrDefault(memberId, 0) + " books in total.");
+            }
         } catch (NumberFormatException e) {
             System.out.println("Invalid member ID. Please enter a number.");
         }
@@ -0,0 +1,445 @@
+package src;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicReference;
+
+// Throughput and latency benchmarks for the service hot paths, run against a scratch schema:
+//
+//   java -Dlexora.db.url=... -Dlexora.db.user=bench -cp lib/ojdbc8.jar;. src.LexoraBenchmark --seed --books 50000
+//
+// --seed fills the schema with tagged rows (isbn BM-*, email *@bench.lexora) at the given scale,
+// --cleanup removes them again. Each benchmark warms up, then runs for a fixed time on N threads and
+// reports ops/s and latency percentiles. Only rows created by --seed are read or written.
+public class LexoraBenchmark {
+    public static class Result {
+        public final String name;
+        public final int threads;
+        public final long ops;
+        public final long errors;
+        public final long elapsedMillis;
+        public final long p50Nanos;
+        public final long p99Nanos;
+        public final long p999Nanos;
+        public final long maxNanos;
+        public Result(String name, int threads, long ops, long errors, long elapsedMillis, long p50Nanos, long p99Nanos, long p999Nanos, long maxNanos) {
+            this.name = name;
+            this.threads = threads;
+            this.ops = ops;
+            this.errors = errors;
+            this.elapsedMillis = elapsedMillis;
+            this.p50Nanos = p50Nanos;
+            this.p99Nanos = p99Nanos;
+            this.p999Nanos = p999Nanos;
+            this.maxNanos = maxNanos;
+        }
+
+        public double throughput() {
+            return elapsedMillis == 0 ? 0.0 : ops * 1000.0 / elapsedMillis;
+        }
+    }
+
+    // One benchmarked operation. invoke() is timed; after() is untimed per-op cleanup.
+    private abstract static class Benchmark {
+        final String name;
+        Benchmark(String name) {
+            this.name = name;
+        }
+        abstract boolean invoke(int thread, Random rnd);
+        void after(int thread) {
+        }
+    }
+
+    // Per-thread latency samples: keeps everything up to the cap, then reservoir-samples.
+    private static class Samples {
+        final long[] data;
+        int count;
+        long seen;
+        Samples(int capacity) {
+            this.data = new long[capacity];
+        }
+        void add(long nanos, Random rnd) {
+            seen++;
+            if (count < data.length) {
+                data[count++] = nanos;
+            } else {
+                long slot = (long) (rnd.nextDouble() * seen);
+                if (slot < data.length) {
+                    data[(int) slot] = nanos;
+                }
+            }
+        }
+    }
+
+    static final String ISBN_PREFIX = "BM-";
+    static final String EMAIL_DOMAIN = "@bench.lexora";
+    private static final int SAMPLES_PER_THREAD = 1 << 18;
+    private static final int SEED_BATCH_SIZE = 1000;
+    private static final String[] WORDS = {
+        "river", "shadow", "garden", "empire", "silent", "winter", "glass", "ocean", "stone", "light",
+        "history", "modern", "secret", "north", "machine", "forest", "city", "letters", "fire", "journey"
+    };
+    private static final String[] CATEGORIES = {"Fiction", "Science", "History", "Poetry", "Technology", "Children", "Travel", "Biography"};
+    private static final String[] NAMES = {"Amina", "Rahim", "Sara", "Karim", "Nadia", "Tanvir", "Leila", "Omar", "Farah", "Imran"};
+
+    public static void main(String[] args) {
+        Map<String, String> opts = parseArgs(args);
+        int books = Integer.parseInt(opts.getOrDefault("books", "10000"));
+        int members = Integer.parseInt(opts.getOrDefault("members", "2000"));
+        int loans = Integer.parseInt(opts.getOrDefault("loans", "50000"));
+        int threads = Integer.parseInt(opts.getOrDefault("threads", "8"));
+        int warmupSeconds = Integer.parseInt(opts.getOrDefault("warmup", "5"));
+        int seconds = Integer.parseInt(opts.getOrDefault("seconds", "10"));
+        String only = opts.get("only");
+
+        if (opts.containsKey("cleanup")) {
+            cleanup();
+            return;
+        }
+        if (opts.containsKey("seed")) {
+            seed(books, members, loans);
+        }
+
+        int[] bookIds = loadIds("SELECT book_id FROM books WHERE isbn LIKE '" + ISBN_PREFIX + "%' ORDER BY book_id");
+        int[] memberIds = loadIds("SELECT member_id FROM members WHERE email LIKE '%" + EMAIL_DOMAIN + "' ORDER BY member_id");
+        List<Benchmark> benchmarks = benchmarks(bookIds, memberIds, threads);
+
+        System.out.printf("%-22s %8s %12s %10s %10s %10s %10s %10s %8s%n",
+                "benchmark", "threads", "ops", "ops/s", "p50(us)", "p99(us)", "p999(us)", "max(us)", "errors");
+        for (Benchmark b : benchmarks) {
+            if (only != null && !b.name.startsWith(only)) {
+                continue;
+            }
+            Result r = run(b, threads, warmupSeconds, seconds);
+            System.out.printf("%-22s %8d %12d %10.1f %10.1f %10.1f %10.1f %10.1f %8d%n",
+                    r.name, r.threads, r.ops, r.throughput(), r.p50Nanos / 1000.0, r.p99Nanos / 1000.0, r.p999Nanos / 1000.0, r.maxNanos / 1000.0, r.errors);
+        }
+    }
+
+    private static List<Benchmark> benchmarks(int[] bookIds, int[] memberIds, int threads) {
+        List<Benchmark> list = new ArrayList<>();
+        String storedHash = PasswordUtil.hashPassword("bench-password");
+        list.add(new Benchmark("password.hash") {
+            boolean invoke(int thread, Random rnd) {
+                return PasswordUtil.hashPassword("bench-password-" + rnd.nextInt(1000)) != null;
+            }
+        });
+        list.add(new Benchmark("password.verify") {
+            boolean invoke(int thread, Random rnd) {
+                return PasswordUtil.verifyOnWorkerPool("bench-password", storedHash);
+            }
+        });
+        if (bookIds.length == 0) {
+            System.out.println("No benchmark books found (run with --seed); skipping database benchmarks.");
+            return list;
+        }
+        list.add(new Benchmark("book.search") {
+            boolean invoke(int thread, Random rnd) {
+                String term = WORDS[rnd.nextInt(WORDS.length)] + " " + WORDS[rnd.nextInt(WORDS.length)].substring(0, 3);
+                BookService.searchBooks(term);
+                return true;
+            }
+        });
+        list.add(new Benchmark("book.getById") {
+            boolean invoke(int thread, Random rnd) {
+                return BookService.getBookById(bookIds[rnd.nextInt(bookIds.length)]) != null;
+            }
+        });
+        list.add(new Benchmark("book.getAll") {
+            boolean invoke(int thread, Random rnd) {
+                return !BookService.getAllBooks().isEmpty();
+            }
+        });
+        if (memberIds.length < threads) {
+            System.out.println("Fewer benchmark members than threads; skipping member and circulation benchmarks.");
+            return list;
+        }
+        list.add(new Benchmark("member.search") {
+            boolean invoke(int thread, Random rnd) {
+                MemberService.searchMembers(NAMES[rnd.nextInt(NAMES.length)].substring(1, 4));
+                return true;
+            }
+        });
+        // Each thread borrows as its own member; the loan is returned untimed so stock stays level.
+        list.add(new Benchmark("borrowing.issue") {
+            final java.util.Date due = new java.util.Date(System.currentTimeMillis() + 14L * 24 * 60 * 60 * 1000);
+            boolean invoke(int thread, Random rnd) {
+                return BorrowingService.issueBook(memberIds[thread], bookIds[rnd.nextInt(bookIds.length)], due);
+            }
+            void after(int thread) {
+                returnOpenLoans(memberIds[thread]);
+            }
+        });
+        return list;
+    }
+
+    private static Result run(Benchmark b, int threads, int warmupSeconds, int seconds) {
+        long start = System.nanoTime();
+        long measureFrom = start + warmupSeconds * 1_000_000_000L;
+        long measureUntil = measureFrom + seconds * 1_000_000_000L;
+        Samples[] samples = new Samples[threads];
+        long[] errors = new long[threads];
+        CountDownLatch done = new CountDownLatch(threads);
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        for (int t = 0; t < threads; t++) {
+            int thread = t;
+            samples[t] = new Samples(SAMPLES_PER_THREAD);
+            Thread worker = new Thread(() -> {
+                Random rnd = ThreadLocalRandom.current();
+                try {
+                    while (true) {
+                        long begin = System.nanoTime();
+                        if (begin >= measureUntil) {
+                            break;
+                        }
+                        boolean ok = b.invoke(thread, rnd);
+                        long elapsed = System.nanoTime() - begin;
+                        b.after(thread);
+                        if (begin >= measureFrom) {
+                            samples[thread].add(elapsed, rnd);
+                            if (!ok) {
+                                errors[thread]++;
+                            }
+                        }
+                    }
+                } catch (RuntimeException e) {
+                    failure.compareAndSet(null, e);
+                } finally {
+                    done.countDown();
+                }
+            }, "lexora-bench-" + b.name + "-" + t);
+            worker.start();
+        }
+        try {
+            done.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (failure.get() != null) {
+            System.err.println(b.name + " aborted: " + failure.get());
+        }
+
+        long ops = 0;
+        long errorCount = 0;
+        int kept = 0;
+        for (int t = 0; t < threads; t++) {
+            ops += samples[t].seen;
+            errorCount += errors[t];
+            kept += samples[t].count;
+        }
+        long[] all = new long[kept];
+        int pos = 0;
+        for (Samples s : samples) {
+            System.arraycopy(s.data, 0, all, pos, s.count);
+            pos += s.count;
+        }
+        Arrays.sort(all);
+        return new Result(b.name, threads, ops, errorCount, seconds * 1000L,
+                percentileNanos(all, 0.50), percentileNanos(all, 0.99), percentileNanos(all, 0.999),
+                all.length == 0 ? 0 : all[all.length - 1]);
+    }
+
+    private static long percentileNanos(long[] sorted, double p) {
+        if (sorted.length == 0) {
+            return 0;
+        }
+        int index = (int) Math.ceil(p * sorted.length) - 1;
+        return sorted[Math.max(0, Math.min(index, sorted.length - 1))];
+    }
+
+    // --- Data set ---
+    static void seed(int books, int members, int loans) {
+        long start = System.currentTimeMillis();
+        Random rnd = new Random(42);
+        String bookSql = "INSERT INTO books (isbn, title, author, category, published_year, total_copies, available_copies, borrowed_copies, status) " +
+                "VALUES (?, ?, ?, ?, ?, ?, ?, 0, 'AVAILABLE')";
+        String memberSql = "INSERT INTO members (full_name, email, phone) VALUES (?, ?, ?)";
+        try (Connection conn = DbUtil.getConnection()) {
+            conn.setAutoCommit(false);
+            try {
+                try (PreparedStatement ps = conn.prepareStatement(bookSql)) {
+                    for (int i = 0; i < books; i++) {
+                        int copies = 20 + rnd.nextInt(30);
+                        ps.setString(1, ISBN_PREFIX + i);
+                        ps.setString(2, capitalize(WORDS[rnd.nextInt(WORDS.length)]) + " " + WORDS[rnd.nextInt(WORDS.length)] + " " + WORDS[rnd.nextInt(WORDS.length)]);
+                        ps.setString(3, NAMES[rnd.nextInt(NAMES.length)] + " " + capitalize(WORDS[rnd.nextInt(WORDS.length)]));
+                        ps.setString(4, CATEGORIES[rnd.nextInt(CATEGORIES.length)]);
+                        ps.setInt(5, 1950 + rnd.nextInt(75));
+                        ps.setInt(6, copies);
+                        ps.setInt(7, copies);
+                        ps.addBatch();
+                        if ((i + 1) % SEED_BATCH_SIZE == 0) {
+                            ps.executeBatch();
+                            conn.commit();
+                        }
+                    }
+                    ps.executeBatch();
+                }
+                try (PreparedStatement ps = conn.prepareStatement(memberSql)) {
+                    for (int i = 0; i < members; i++) {
+                        ps.setString(1, NAMES[rnd.nextInt(NAMES.length)] + " " + NAMES[rnd.nextInt(NAMES.length)] + "son");
+                        ps.setString(2, "member" + i + EMAIL_DOMAIN);
+                        ps.setString(3, String.format("017%08d", i));
+                        ps.addBatch();
+                        if ((i + 1) % SEED_BATCH_SIZE == 0) {
+                            ps.executeBatch();
+                            conn.commit();
+                        }
+                    }
+                    ps.executeBatch();
+                }
+                conn.commit();
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            } finally {
+                conn.setAutoCommit(true);
+            }
+        } catch (SQLException e) {
+            System.err.println("Seed books/members error: " + e.getMessage());
+            return;
+        }
+
+        int[] bookIds = loadIds("SELECT book_id FROM books WHERE isbn LIKE '" + ISBN_PREFIX + "%' ORDER BY book_id");
+        int[] memberIds = loadIds("SELECT member_id FROM members WHERE email LIKE '%" + EMAIL_DOMAIN + "' ORDER BY member_id");
+        // Loan history is all RETURNED, so it adds volume without changing stock.
+        String loanSql = "INSERT INTO borrowings (member_id, book_id, issue_date, due_date, return_date, fine_amount, status) " +
+                "VALUES (?, ?, SYSDATE - ?, SYSDATE - ? + 14, SYSDATE - ? + ?, 0, 'RETURNED')";
+        int loansSeeded = 0;
+        if (bookIds.length > 0 && memberIds.length > 0) {
+            try (Connection conn = DbUtil.getConnection(); PreparedStatement ps = conn.prepareStatement(loanSql)) {
+                conn.setAutoCommit(false);
+                try {
+                    for (int i = 0; i < loans; i++) {
+                        int daysAgo = 15 + rnd.nextInt(700);
+                        ps.setInt(1, memberIds[rnd.nextInt(memberIds.length)]);
+                        ps.setInt(2, bookIds[rnd.nextInt(bookIds.length)]);
+                        ps.setInt(3, daysAgo);
+                        ps.setInt(4, daysAgo);
+                        ps.setInt(5, daysAgo);
+                        ps.setInt(6, 1 + rnd.nextInt(14));
+                        ps.addBatch();
+                        if ((i + 1) % SEED_BATCH_SIZE == 0) {
+                            ps.executeBatch();
+                            conn.commit();
+                        }
+                    }
+                    ps.executeBatch();
+                    conn.commit();
+                    loansSeeded = loans;
+                } catch (SQLException e) {
+                    conn.rollback();
+                    throw e;
+                } finally {
+                    conn.setAutoCommit(true);
+                }
+            } catch (SQLException e) {
+                System.err.println("Seed loan history error: " + e.getMessage());
+            }
+        }
+        BookService.catalogChanged();
+        MemberService.invalidateSearchIndex();
+        MemberService.invalidateBorrowStats();
+        System.out.println("Seeded " + bookIds.length + " books, " + memberIds.length + " members and " + loansSeeded +
+                " loans in " + (System.currentTimeMillis() - start) + " ms");
+    }
+
+    static void cleanup() {
+        String[] statements = {
+            "DELETE FROM borrowings WHERE book_id IN (SELECT book_id FROM books WHERE isbn LIKE '" + ISBN_PREFIX + "%') " +
+                    "OR member_id IN (SELECT member_id FROM members WHERE email LIKE '%" + EMAIL_DOMAIN + "')",
+            "DELETE FROM books WHERE isbn LIKE '" + ISBN_PREFIX + "%'",
+            "DELETE FROM members WHERE email LIKE '%" + EMAIL_DOMAIN + "'"
+        };
+        try (Connection conn = DbUtil.getConnection()) {
+            conn.setAutoCommit(false);
+            try {
+                for (String sql : statements) {
+                    try (PreparedStatement ps = conn.prepareStatement(sql)) {
+                        System.out.println(ps.executeUpdate() + " rows: " + sql.substring(0, sql.indexOf(" WHERE")));
+                    }
+                }
+                conn.commit();
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            } finally {
+                conn.setAutoCommit(true);
+            }
+        } catch (SQLException e) {
+            System.err.println("Benchmark cleanup error: " + e.getMessage());
+        }
+        BookService.catalogChanged();
+        MemberService.invalidateSearchIndex();
+        MemberService.invalidateBorrowStats();
+    }
+
+    private static void returnOpenLoans(int memberId) {
+        String sql = "SELECT borrow_id FROM borrowings WHERE member_id=? AND status='ISSUED'";
+        List<Integer> open = new ArrayList<>();
+        try (Connection conn = DbUtil.getConnection(); PreparedStatement ps = conn.prepareStatement(sql)) {
+            ps.setInt(1, memberId);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    open.add(rs.getInt(1));
+                }
+            }
+        } catch (SQLException e) {
+            System.err.println("Find open benchmark loans error: " + e.getMessage());
+            return;
+        }
+        for (int borrowId : open) {
+            BorrowingService.returnBook(borrowId, 0.0);
+        }
+    }
+
+    private static int[] loadIds(String sql) {
+        int[] ids = new int[1024];
+        int count = 0;
+        try (Connection conn = DbUtil.getConnection(); PreparedStatement ps = conn.prepareStatement(sql)) {
+            ps.setFetchSize(DbUtil.FETCH_SIZE);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    if (count == ids.length) {
+                        ids = Arrays.copyOf(ids, count * 2);
+                    }
+                    ids[count++] = rs.getInt(1);
+                }
+            }
+        } catch (SQLException e) {
+            System.err.println("Load benchmark ids error: " + e.getMessage());
+        }
+        return Arrays.copyOf(ids, count);
+    }
+
+    private static String capitalize(String word) {
+        return Character.toUpperCase(word.charAt(0)) + word.substring(1);
+    }
+
+    // --name value pairs; a flag with no value maps to "true".
+    private static Map<String, String> parseArgs(String[] args) {
+        Map<String, String> opts = new HashMap<>();
+        for (int i = 0; i < args.length; i++) {
+            if (!args[i].startsWith("--")) {
+                throw new IllegalArgumentException("Unexpected argument: " + args[i]);
+            }
+            String name = args[i].substring(2);
+            if (i + 1 < args.length && !args[i + 1].startsWith("--")) {
+                opts.put(name, args[++i]);
+            } else {
+                opts.put(name, "true");
+            }
+        }
+        return opts;
+    }
+}
\ No newline at end of file
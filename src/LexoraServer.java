@@ -0,0 +1,630 @@
+package src;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+// HTTP/JSON front end for desk terminals. One process serves every terminal and shares the
+// connection pool, caches and indexes. Requests are dispatched on virtual threads when available
+// and answered asynchronously from AsyncLibraryService futures.
+//
+// POST /api/login {username,password} returns a token; send it as "Authorization: Bearer <token>".
+public class LexoraServer {
+    private static final String LIBRARIAN = "LIBRARIAN";
+    private static final int DEFAULT_PAGE_SIZE = 100;
+
+    private static class HttpError extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+
+        final int status;
+        HttpError(int status, String message) {
+            super(message);
+            this.status = status;
+        }
+    }
+
+    private final HttpServer server;
+    private final ExecutorService dispatcher;
+    private final AsyncLibraryService services;
+    private final SessionManager sessions = new SessionManager(
+            Long.getLong("lexora.session.idleTtlMs", 30L * 60 * 1000),
+            Long.getLong("lexora.session.maxLifetimeMs", 12L * 60 * 60 * 1000));
+    private final AdmissionController admission;
+
+    public LexoraServer(int port, int maxConcurrency) throws IOException {
+        this.services = new AsyncLibraryService(maxConcurrency);
+        this.admission = AdmissionController.fromSystemProperties(maxConcurrency);
+        ExecutorService virtual = AsyncLibraryService.newVirtualThreadExecutor();
+        this.dispatcher = virtual != null ? virtual : Executors.newFixedThreadPool(Integer.getInteger("lexora.server.threads", 64));
+        this.server = HttpServer.create(new InetSocketAddress(port), Integer.getInteger("lexora.server.backlog", 256));
+        server.createContext("/api/", this::handle);
+        server.setExecutor(dispatcher);
+    }
+
+    public void start() {
+        server.start();
+        System.out.println("Lexora server listening on port " + server.getAddress().getPort());
+    }
+
+    public void stop() {
+        server.stop(1);
+        dispatcher.shutdown();
+        services.shutdown();
+        sessions.shutdown();
+        admission.shutdown();
+    }
+
+    private void handle(HttpExchange ex) {
+        CompletableFuture<?> result;
+        try {
+            result = route(ex);
+        } catch (RuntimeException e) {
+            result = failed(e);
+        }
+        result.whenComplete((body, error) -> {
+            if (error == null) {
+                if (DbUtil.isDegraded() && ex.getRequestMethod().equals("GET")) {
+                    // Reads were answered from memory; RFC 7234 warn-code 110 marks the response as stale.
+                    ex.getResponseHeaders().set("Warning", "110 lexora \"Database unreachable since "
+                            + Instant.ofEpochMilli(DbUtil.getBreakerStats().openedAt) + "; showing last known data\"");
+                }
+                send(ex, 200, body);
+            } else {
+                Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+                Map<String, Object> err = new LinkedHashMap<>();
+                err.put("error", cause.getMessage());
+                long retryAfter = cause instanceof ServiceException ? ((ServiceException) cause).getRetryAfterMillis() : 0L;
+                if (retryAfter > 0) {
+                    err.put("retryAfterMs", retryAfter);
+                    ex.getResponseHeaders().set("Retry-After", String.valueOf((retryAfter + 999) / 1000));
+                }
+                send(ex, statusFor(cause), err);
+            }
+        });
+    }
+
+    private CompletableFuture<?> route(HttpExchange ex) {
+        String method = ex.getRequestMethod();
+        String[] path = ex.getRequestURI().getPath().substring("/api/".length()).split("/");
+        Map<String, String> query = parseQuery(ex.getRequestURI().getRawQuery());
+        String resource = path[0];
+
+        if (resource.equals("login") && method.equals("POST")) {
+            Map<String, Object> body = body(ex);
+            return services.authenticate(str(body, "username"), str(body, "password")).thenApply(auth -> {
+                String token = sessions.create(auth);
+                Map<String, Object> out = new LinkedHashMap<>();
+                out.put("token", token);
+                out.put("username", auth.username);
+                out.put("role", auth.role);
+                out.put("memberId", auth.memberId);
+                return out;
+            });
+        }
+
+        AuthService.AuthResult auth = authenticate(ex);
+        if (resource.equals("logout") && method.equals("POST")) {
+            sessions.invalidate(bearerToken(ex));
+            return done(ok());
+        }
+        if (resource.equals("health") && method.equals("GET")) {
+            requireLibrarian(auth);
+            Map<String, Object> out = new LinkedHashMap<>();
+            out.put("pool", DbUtil.getPoolStats().toString());
+            out.put("database", DbUtil.getBreakerStats().toString());
+            out.put("bookCache", BookService.getBookCacheStats().toString());
+            out.put("sessions", sessions.size());
+            out.put("admission", admission.getStats().toString());
+            out.put("journal", CirculationJournal.getStats().toString());
+            if (CacheBus.isStarted()) {
+                out.put("cacheBus", CacheBus.getStats().toString());
+            }
+            List<String> operations = new ArrayList<>();
+            for (OperationMetrics.Op op : OperationMetrics.snapshot()) {
+                operations.add(op.toString());
+            }
+            out.put("operations", operations);
+            List<String> contention = new ArrayList<>();
+            for (BookContention.Counts c : BookContention.top(10)) {
+                contention.add(c.toString());
+            }
+            out.put("contention", contention);
+            return done(out);
+        }
+
+        // Everything past this point runs only once admitted; health stays outside so overload can be diagnosed.
+        return admission.admit(bearerToken(ex), auth, classify(method, path)).thenCompose(ticket -> {
+            CompletableFuture<?> result;
+            try {
+                result = dispatch(ex, method, path, query, auth);
+            } catch (RuntimeException e) {
+                result = failed(e);
+            }
+            return result.whenComplete((body, error) -> ticket.release());
+        });
+    }
+
+    private CompletableFuture<?> dispatch(HttpExchange ex, String method, String[] path, Map<String, String> query, AuthService.AuthResult auth) {
+        String resource = path[0];
+        if (resource.equals("books")) {
+            return routeBooks(ex, method, path, query, auth);
+        }
+        if (resource.equals("members")) {
+            return routeMembers(ex, method, path, query, auth);
+        }
+        if (resource.equals("borrowings")) {
+            requireLibrarian(auth);
+            return routeBorrowings(ex, method, path);
+        }
+        if (resource.equals("reports") && method.equals("GET") && path.length == 2) {
+            requireLibrarian(auth);
+            if (path[1].equals("overdue")) {
+                return services.getOverdueBorrowings().thenApply(LexoraServer::borrowingsJson);
+            }
+            if (path[1].equals("due-soon")) {
+                return services.getBorrowingsDueWithin(intParam(query, "days", 7)).thenApply(LexoraServer::borrowingsJson);
+            }
+            if (path[1].equals("insights")) {
+                LocalDate to = LocalDate.now();
+                LocalDate from = to.minusDays(Math.max(0, intParam(query, "days", 30) - 1));
+                return services.getInsights(from, to, Math.min(intParam(query, "top", 10), 100)).thenApply(LexoraServer::insightJson);
+            }
+        }
+        throw new HttpError(404, "No such endpoint: " + method + " " + ex.getRequestURI().getPath());
+    }
+
+    private CompletableFuture<?> routeBooks(HttpExchange ex, String method, String[] path, Map<String, String> query, AuthService.AuthResult auth) {
+        if (path.length == 1 && method.equals("GET")) {
+            int limit = Math.min(intParam(query, "limit", DEFAULT_PAGE_SIZE), 1000);
+            return services.getBooksPage(intParam(query, "after", 0), limit).thenApply(LexoraServer::booksJson);
+        }
+        if (path.length == 2 && path[1].equals("search") && method.equals("GET")) {
+            return services.searchBooks(query.getOrDefault("q", "")).thenApply(LexoraServer::booksJson);
+        }
+        if (path.length == 2 && path[1].equals("filter") && method.equals("GET")) {
+            CatalogSnapshot.Filter filter = new CatalogSnapshot.Filter(query.get("category"), query.get("author"), query.get("status"),
+                    intParam(query, "fromYear", 0), intParam(query, "toYear", 0), Boolean.parseBoolean(query.get("available")));
+            return services.filterBooks(filter).thenApply(LexoraServer::booksJson);
+        }
+        if (path.length == 1 && method.equals("POST")) {
+            requireLibrarian(auth);
+            Map<String, Object> b = body(ex);
+            return services.addBook(str(b, "isbn"), str(b, "title"), str(b, "author"), str(b, "category"),
+                    num(b, "publishedYear"), num(b, "totalCopies")).thenApply(v -> ok());
+        }
+        if (path.length == 2) {
+            int bookId = parseId(path[1]);
+            switch (method) {
+                case "GET":
+                    return services.getBook(bookId).thenApply(LexoraServer::bookJson);
+                case "PUT": {
+                    requireLibrarian(auth);
+                    Map<String, Object> b = body(ex);
+                    return services.updateBook(bookId, str(b, "title"), str(b, "author"), str(b, "category"),
+                            num(b, "publishedYear"), num(b, "totalCopies"), str(b, "status")).thenApply(v -> ok());
+                }
+                case "DELETE":
+                    requireLibrarian(auth);
+                    return services.deleteBook(bookId).thenApply(v -> ok());
+                default:
+                    break;
+            }
+        }
+        throw new HttpError(404, "No such endpoint: " + method + " " + ex.getRequestURI().getPath());
+    }
+
+    private CompletableFuture<?> routeMembers(HttpExchange ex, String method, String[] path, Map<String, String> query, AuthService.AuthResult auth) {
+        if (path.length == 2 && path[1].equals("search") && method.equals("GET")) {
+            requireLibrarian(auth);
+            return services.searchMembers(query.getOrDefault("q", "")).thenApply(LexoraServer::membersJson);
+        }
+        if (path.length == 1 && method.equals("POST")) {
+            requireLibrarian(auth);
+            Map<String, Object> b = body(ex);
+            return services.addMember(str(b, "fullName"), str(b, "email"), str(b, "phone")).thenApply(v -> ok());
+        }
+        if (path.length >= 2) {
+            int memberId = parseId(path[1]);
+            requireSelfOrLibrarian(auth, memberId);
+            if (path.length == 3 && path[2].equals("holds")) {
+                if (method.equals("GET")) {
+                    return services.getHoldsByMember(memberId).thenApply(LexoraServer::holdsJson);
+                }
+                if (method.equals("POST")) {
+                    return services.placeHold(memberId, num(body(ex), "bookId")).thenApply(result -> {
+                        Map<String, Object> out = new LinkedHashMap<>();
+                        out.put("result", result);
+                        return out;
+                    });
+                }
+            }
+            if (path.length == 4 && path[2].equals("holds") && method.equals("DELETE")) {
+                return services.cancelHold(memberId, parseId(path[3])).thenApply(v -> ok());
+            }
+            if (path.length == 3 && method.equals("GET") && path[2].equals("borrowings")) {
+                return services.getBorrowingsByMember(memberId).thenApply(LexoraServer::borrowingsJson);
+            }
+            if (path.length == 3 && method.equals("GET") && path[2].equals("profile")) {
+                return services.getPatronProfile(memberId).thenApply(p -> {
+                    Map<String, Object> out = new LinkedHashMap<>();
+                    out.put("member", memberJson(p.member));
+                    out.put("borrowings", borrowingsJson(p.borrowings));
+                    out.put("totalBorrows", p.totalBorrows);
+                    return out;
+                });
+            }
+            if (path.length == 2) {
+                switch (method) {
+                    case "GET":
+                        return services.getMember(memberId).thenApply(LexoraServer::memberJson);
+                    case "PUT": {
+                        requireLibrarian(auth);
+                        Map<String, Object> b = body(ex);
+                        return services.updateMember(memberId, str(b, "fullName"), str(b, "email"), str(b, "phone"), str(b, "status")).thenApply(v -> ok());
+                    }
+                    case "DELETE":
+                        requireLibrarian(auth);
+                        return services.deleteMember(memberId).thenApply(v -> ok());
+                    default:
+                        break;
+                }
+            }
+        }
+        throw new HttpError(404, "No such endpoint: " + method + " " + ex.getRequestURI().getPath());
+    }
+
+    private CompletableFuture<?> routeBorrowings(HttpExchange ex, String method, String[] path) {
+        if (!method.equals("POST")) {
+            throw new HttpError(405, "Only POST is supported on borrowings");
+        }
+        Map<String, Object> b = body(ex);
+        if (path.length == 1) {
+            return services.issueBook(num(b, "memberId"), num(b, "bookId"), date(b, "dueDate")).thenApply(v -> ok());
+        }
+        if (path.length == 2 && path[1].equals("batch")) {
+            return services.issueBooks(num(b, "memberId"), ids(b, "bookIds"), date(b, "dueDate")).thenApply(LexoraServer::itemResultsJson);
+        }
+        if (path.length == 2 && path[1].equals("return-batch")) {
+            return services.returnBooks(ids(b, "borrowIds")).thenApply(LexoraServer::itemResultsJson);
+        }
+        if (path.length == 3 && path[2].equals("return")) {
+            Object fine = b.get("fineAmount");
+            return services.returnBook(parseId(path[1]), fine instanceof Number ? ((Number) fine).doubleValue() : 0.0).thenApply(v -> ok());
+        }
+        throw new HttpError(404, "No such endpoint: " + method + " " + ex.getRequestURI().getPath());
+    }
+
+    // Which admission bucket a request draws from; unknown paths count as reads and still reach the 404.
+    private static AdmissionController.OpClass classify(String method, String[] path) {
+        String resource = path[0];
+        boolean read = method.equals("GET");
+        if (resource.equals("books")) {
+            if (read) {
+                return path.length == 1 || path[1].equals("search") || path[1].equals("filter")
+                        ? AdmissionController.OpClass.SEARCH : AdmissionController.OpClass.READ;
+            }
+            return AdmissionController.OpClass.ADMIN;
+        }
+        if (resource.equals("members")) {
+            if (path.length >= 3 && path[2].equals("holds")) {
+                return read ? AdmissionController.OpClass.READ : AdmissionController.OpClass.CIRCULATION;
+            }
+            if (read) {
+                return path.length == 2 && path[1].equals("search") ? AdmissionController.OpClass.SEARCH : AdmissionController.OpClass.READ;
+            }
+            return AdmissionController.OpClass.ADMIN;
+        }
+        if (resource.equals("borrowings")) {
+            return AdmissionController.OpClass.CIRCULATION;
+        }
+        if (resource.equals("reports")) {
+            return AdmissionController.OpClass.ADMIN;
+        }
+        return AdmissionController.OpClass.READ;
+    }
+
+    // --- Sessions ---
+    private AuthService.AuthResult authenticate(HttpExchange ex) {
+        AuthService.AuthResult auth = sessions.validate(bearerToken(ex));
+        if (auth == null) {
+            throw new HttpError(401, "Login required");
+        }
+        return auth;
+    }
+
+    private static String bearerToken(HttpExchange ex) {
+        String header = ex.getRequestHeaders().getFirst("Authorization");
+        return header != null && header.startsWith("Bearer ") ? header.substring(7).trim() : null;
+    }
+
+    private static void requireLibrarian(AuthService.AuthResult auth) {
+        if (!LIBRARIAN.equalsIgnoreCase(auth.role)) {
+            throw new HttpError(403, "Librarian role required");
+        }
+    }
+
+    private static void requireSelfOrLibrarian(AuthService.AuthResult auth, int memberId) {
+        if (!LIBRARIAN.equalsIgnoreCase(auth.role) && (auth.memberId == null || auth.memberId != memberId)) {
+            throw new HttpError(403, "Not allowed to access another member's records");
+        }
+    }
+
+    // --- Request parsing ---
+    private static Map<String, Object> body(HttpExchange ex) {
+        try {
+            return Json.parseObject(new String(ex.getRequestBody().readAllBytes(), StandardCharsets.UTF_8));
+        } catch (IOException e) {
+            throw new HttpError(400, "Could not read request body");
+        }
+    }
+
+    private static Map<String, String> parseQuery(String raw) {
+        Map<String, String> params = new HashMap<>();
+        if (raw == null) {
+            return params;
+        }
+        for (String pair : raw.split("&")) {
+            int eq = pair.indexOf('=');
+            String key = eq < 0 ? pair : pair.substring(0, eq);
+            String value = eq < 0 ? "" : pair.substring(eq + 1);
+            params.put(URLDecoder.decode(key, StandardCharsets.UTF_8), URLDecoder.decode(value, StandardCharsets.UTF_8));
+        }
+        return params;
+    }
+
+    private static int intParam(Map<String, String> query, String name, int defaultValue) {
+        String value = query.get(name);
+        if (value == null || value.isEmpty()) {
+            return defaultValue;
+        }
+        try {
+            return Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            throw new HttpError(400, "Invalid " + name + ": " + value);
+        }
+    }
+
+    private static int parseId(String segment) {
+        try {
+            return Integer.parseInt(segment);
+        } catch (NumberFormatException e) {
+            throw new HttpError(400, "Invalid id: " + segment);
+        }
+    }
+
+    private static String str(Map<String, Object> body, String name) {
+        Object value = body.get(name);
+        if (value == null) {
+            throw new HttpError(400, "Missing field: " + name);
+        }
+        return value.toString();
+    }
+
+    private static int num(Map<String, Object> body, String name) {
+        Object value = body.get(name);
+        if (!(value instanceof Number)) {
+            throw new HttpError(400, "Missing or non-numeric field: " + name);
+        }
+        return ((Number) value).intValue();
+    }
+
+    private static Date date(Map<String, Object> body, String name) {
+        try {
+            return java.sql.Date.valueOf(str(body, name));
+        } catch (IllegalArgumentException e) {
+            throw new HttpError(400, "Invalid date for " + name + ", expected yyyy-mm-dd");
+        }
+    }
+
+    private static List<Integer> ids(Map<String, Object> body, String name) {
+        Object value = body.get(name);
+        if (!(value instanceof List)) {
+            throw new HttpError(400, "Missing array field: " + name);
+        }
+        List<Integer> ids = new ArrayList<>();
+        for (Object item : (List<?>) value) {
+            if (!(item instanceof Number)) {
+                throw new HttpError(400, "Non-numeric id in " + name);
+            }
+            ids.add(((Number) item).intValue());
+        }
+        return ids;
+    }
+
+    // --- Responses ---
+    private static int statusFor(Throwable error) {
+        if (error instanceof HttpError) {
+            return ((HttpError) error).status;
+        }
+        if (error instanceof ServiceException) {
+            switch (((ServiceException) error).getKind()) {
+                case NOT_FOUND: return 404;
+                case REJECTED: return 409;
+                case AUTHENTICATION_FAILED: return 401;
+                case RATE_LIMITED: return 429;
+                default: return 503;
+            }
+        }
+        if (error instanceof IllegalArgumentException) {
+            return 400;
+        }
+        return 500;
+    }
+
+    private static void send(HttpExchange ex, int status, Object body) {
+        byte[] bytes = Json.write(body).getBytes(StandardCharsets.UTF_8);
+        try {
+            ex.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+            ex.sendResponseHeaders(status, bytes.length);
+            try (OutputStream out = ex.getResponseBody()) {
+                out.write(bytes);
+            }
+        } catch (IOException e) {
+            System.err.println("Send response error: " + e.getMessage());
+        } finally {
+            ex.close();
+        }
+    }
+
+    private static <T> CompletableFuture<T> done(T value) {
+        return CompletableFuture.completedFuture(value);
+    }
+
+    private static CompletableFuture<Object> failed(Throwable error) {
+        CompletableFuture<Object> f = new CompletableFuture<>();
+        f.completeExceptionally(error);
+        return f;
+    }
+
+    private static Map<String, Object> ok() {
+        Map<String, Object> out = new LinkedHashMap<>();
+        out.put("ok", true);
+        return out;
+    }
+
+    static Map<String, Object> bookJson(BookService.Book b) {
+        Map<String, Object> m = new LinkedHashMap<>();
+        m.put("bookId", b.bookId);
+        m.put("isbn", b.isbn);
+        m.put("title", b.title);
+        m.put("author", b.author);
+        m.put("category", b.category);
+        m.put("publishedYear", b.publishedYear);
+        m.put("totalCopies", b.totalCopies);
+        m.put("availableCopies", b.availableCopies);
+        m.put("borrowedCopies", b.borrowedCopies);
+        m.put("status", b.status);
+        return m;
+    }
+
+    static List<Object> booksJson(List<BookService.Book> books) {
+        List<Object> out = new ArrayList<>(books.size());
+        for (BookService.Book b : books) {
+            out.add(bookJson(b));
+        }
+        return out;
+    }
+
+    static Map<String, Object> memberJson(MemberService.Member m) {
+        Map<String, Object> out = new LinkedHashMap<>();
+        out.put("memberId", m.memberId);
+        out.put("fullName", m.fullName);
+        out.put("email", m.email);
+        out.put("phone", m.phone);
+        out.put("joinDate", m.joinDate);
+        out.put("status", m.status);
+        return out;
+    }
+
+    static List<Object> membersJson(List<MemberService.Member> members) {
+        List<Object> out = new ArrayList<>(members.size());
+        for (MemberService.Member m : members) {
+            out.add(memberJson(m));
+        }
+        return out;
+    }
+
+    static List<Object> borrowingsJson(List<BorrowingService.Borrowing> borrowings) {
+        List<Object> out = new ArrayList<>(borrowings.size());
+        for (BorrowingService.Borrowing b : borrowings) {
+            Map<String, Object> m = new LinkedHashMap<>();
+            m.put("borrowId", b.borrowId);
+            m.put("memberId", b.memberId);
+            m.put("bookId", b.bookId);
+            m.put("issueDate", b.issueDate);
+            m.put("dueDate", b.dueDate);
+            m.put("returnDate", b.returnDate);
+            m.put("fineAmount", b.fineAmount);
+            m.put("status", b.status);
+            out.add(m);
+        }
+        return out;
+    }
+
+    static List<Object> holdsJson(List<HoldService.Hold> holds) {
+        List<Object> out = new ArrayList<>(holds.size());
+        for (HoldService.Hold h : holds) {
+            Map<String, Object> m = new LinkedHashMap<>();
+            m.put("holdId", h.holdId);
+            m.put("bookId", h.bookId);
+            m.put("placedAt", h.placedAt);
+            m.put("status", h.status);
+            m.put("queuePosition", h.status == HoldService.HoldStatus.WAITING ? HoldService.getQueuePosition(h.bookId, h.memberId) : 0);
+            m.put("pickupExpires", h.pickupExpires);
+            out.add(m);
+        }
+        return out;
+    }
+
+    static List<Object> itemResultsJson(List<BorrowingService.ItemResult> results) {
+        List<Object> out = new ArrayList<>(results.size());
+        for (BorrowingService.ItemResult r : results) {
+            Map<String, Object> m = new LinkedHashMap<>();
+            m.put("id", r.id);
+            m.put("status", r.status);
+            out.add(m);
+        }
+        return out;
+    }
+
+    static Map<String, Object> insightJson(InsightBoard.Report r) {
+        Map<String, Object> out = new LinkedHashMap<>();
+        out.put("from", r.from.toString());
+        out.put("to", r.to.toString());
+        out.put("loansIssued", r.loansIssued);
+        out.put("loansReturned", r.loansReturned);
+        out.put("averageLoanDays", r.averageLoanDays);
+        out.put("activeMembers", r.activeMembers);
+        out.put("distinctTitles", r.distinctTitles);
+        out.put("turnoverPerCopy", r.turnoverPerCopy);
+        List<Object> titles = new ArrayList<>();
+        for (InsightBoard.TitleStat t : r.topTitles) {
+            Map<String, Object> m = new LinkedHashMap<>();
+            m.put("bookId", t.bookId);
+            m.put("title", t.title);
+            m.put("author", t.author);
+            m.put("issues", t.issues);
+            titles.add(m);
+        }
+        out.put("topTitles", titles);
+        List<Object> categories = new ArrayList<>();
+        for (InsightBoard.CategoryStat c : r.categories) {
+            Map<String, Object> m = new LinkedHashMap<>();
+            m.put("category", c.category);
+            m.put("titles", c.titles);
+            m.put("totalCopies", c.totalCopies);
+            m.put("borrowedCopies", c.borrowedCopies);
+            m.put("issues", c.issues);
+            m.put("utilization", c.utilization());
+            m.put("turnoverPerCopy", c.turnoverPerCopy());
+            categories.add(m);
+        }
+        out.put("categories", categories);
+        List<Object> members = new ArrayList<>();
+        for (InsightBoard.MemberActivity a : r.topMembers) {
+            Map<String, Object> m = new LinkedHashMap<>();
+            m.put("memberId", a.memberId);
+            m.put("issues", a.issues);
+            members.add(m);
+        }
+        out.put("topMembers", members);
+        return out;
+    }
+}
\ No newline at end of file
@@ -2,7 +2,14 @@ package src;
 
 import java.sql.*;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Stream;
 
 public class MemberService {
     public static class Member {
@@ -22,68 +29,172 @@ public class MemberService {
         }
     }
 
+    private static final MemberTrigramIndex SEARCH_INDEX = new MemberTrigramIndex();
+    private static volatile boolean searchIndexLoaded = false;
+    // The index holds a complete earlier load, possibly outdated; served while the database is unreachable.
+    private static volatile boolean searchIndexFilled = false;
+    // Members written while a load runs; the load may have read them before the write, so it re-reads
+    // them before it marks the index loaded. Changed only while holding INDEX_DIRTY.
+    private static final Set<Integer> INDEX_DIRTY = new HashSet<>();
+    private static volatile boolean searchIndexLoading = false;
+    // Lifetime borrow count per member; only new loans change it. maxSize 0 disables caching.
+    private static final ReadThroughCache<Integer, Integer> BORROW_COUNT_CACHE = new ReadThroughCache<>(
+            Integer.getInteger("lexora.statsCache.maxSize", 10000),
+            Long.getLong("lexora.statsCache.ttlMs", 300000L),
+            ReadThroughCache.Policy.LRU,
+            MemberService::loadBorrowCount);
+
+    private static final OperationMetrics.Op ADD_MEMBER = OperationMetrics.register("MemberService.addMember");
+    private static final OperationMetrics.Op UPDATE_MEMBER = OperationMetrics.register("MemberService.updateMember");
+    private static final OperationMetrics.Op DELETE_MEMBER = OperationMetrics.register("MemberService.deleteMember");
+    private static final OperationMetrics.Op GET_MEMBER_BY_ID = OperationMetrics.register("MemberService.getMemberById");
+    private static final OperationMetrics.Op SEARCH_MEMBERS = OperationMetrics.register("MemberService.searchMembers");
+    private static final OperationMetrics.Op GET_MEMBER_TOTAL_BORROWS = OperationMetrics.register("MemberService.getMemberTotalBorrows");
+    private static final OperationMetrics.Op GET_MEMBERS_TOTAL_BORROWS = OperationMetrics.register("MemberService.getMembersTotalBorrows");
+    private static final OperationMetrics.Op GET_ALL_MEMBERS = OperationMetrics.register("MemberService.getAllMembers");
+    private static final OperationMetrics.Op GET_MEMBERS_PAGE = OperationMetrics.register("MemberService.getMembersPage");
+
+    static {
+        // Changes made by other nodes during an outage were missed.
+        DbUtil.afterReconnect(() -> {
+            searchIndexLoaded = false;
+            BORROW_COUNT_CACHE.invalidateAll();
+        });
+    }
+
     public static boolean addMember(String fullName, String email, String phone) {
-        String sql = "INSERT INTO members (full_name, email, phone) VALUES (?, ?, ?)";
-        try (Connection conn = DbUtil.getConnection(); PreparedStatement ps = conn.prepareStatement(sql)) {
-            ps.setString(1, fullName);
-            ps.setString(2, email);
-            ps.setString(3, phone);
-            return ps.executeUpdate() > 0;
-        } catch (SQLException e) {
-            System.err.println("Add member error: " + e.getMessage());
-            return false;
+        long started = ADD_MEMBER.begin();
+        try {
+            String sql = "INSERT INTO members (full_name, email, phone) VALUES (?, ?, ?)";
+            Integer memberId = null;
+            try (Connection conn = DbUtil.getConnection(); PreparedStatement ps = conn.prepareStatement(sql, new String[] {"member_id"})) {
+                ps.setString(1, fullName);
+                ps.setString(2, email);
+                ps.setString(3, phone);
+                if (ps.executeUpdate() == 0) {
+                    return false;
+                }
+                try (ResultSet keys = ps.getGeneratedKeys()) {
+                    if (keys.next()) {
+                        memberId = keys.getInt(1);
+                    }
+                }
+            } catch (SQLException e) {
+                ServiceException.record(e);
+                System.err.println("Add member error: " + e.getMessage());
+                return false;
+            }
+            if (memberId != null) {
+                memberChanged(memberId);
+            } else {
+                invalidateSearchIndex();
+            }
+            return true;
+        } finally {
+            ADD_MEMBER.end(started);
         }
     }
 
     public static boolean updateMember(int memberId, String fullName, String email, String phone, String status) {
-        String sql = "UPDATE members SET full_name=?, email=?, phone=?, status=? WHERE member_id=?";
-        try (Connection conn = DbUtil.getConnection(); PreparedStatement ps = conn.prepareStatement(sql)) {
-            ps.setString(1, fullName);
-            ps.setString(2, email);
-            ps.setString(3, phone);
-            ps.setString(4, status);
-            ps.setInt(5, memberId);
-            return ps.executeUpdate() > 0;
-        } catch (SQLException e) {
-            System.err.println("Update member error: " + e.getMessage());
-            return false;
+        long started = UPDATE_MEMBER.begin();
+        try {
+            String sql = "UPDATE members SET full_name=?, email=?, phone=?, status=? WHERE member_id=?";
+            boolean updated;
+            try (Connection conn = DbUtil.getConnection(); PreparedStatement ps = conn.prepareStatement(sql)) {
+                ps.setString(1, fullName);
+                ps.setString(2, email);
+                ps.setString(3, phone);
+                ps.setString(4, status);
+                ps.setInt(5, memberId);
+                updated = ps.executeUpdate() > 0;
+            } catch (SQLException e) {
+                ServiceException.record(e);
+                System.err.println("Update member error: " + e.getMessage());
+                return false;
+            }
+            if (updated) {
+                memberChanged(memberId);
+            }
+            return updated;
+        } finally {
+            UPDATE_MEMBER.end(started);
         }
     }
 
     public static boolean deleteMember(int memberId) {
-        String sql = "DELETE FROM members WHERE member_id=?";
-        try (Connection conn = DbUtil.getConnection(); PreparedStatement ps = conn.prepareStatement(sql)) {
-            ps.setInt(1, memberId);
-            return ps.executeUpdate() > 0;
-        } catch (SQLException e) {
-            System.err.println("Delete member error: " + e.getMessage());
-            return false;
+        long started = DELETE_MEMBER.begin();
+        try {
+            String sql = "DELETE FROM members WHERE member_id=?";
+            try (Connection conn = DbUtil.getConnection(); PreparedStatement ps = conn.prepareStatement(sql)) {
+                ps.setInt(1, memberId);
+                boolean deleted = ps.executeUpdate() > 0;
+                if (deleted) {
+                    SEARCH_INDEX.remove(memberId);
+                    synchronized (INDEX_DIRTY) {
+                        if (searchIndexLoading) {
+                            INDEX_DIRTY.add(memberId);
+                        }
+                    }
+                    BORROW_COUNT_CACHE.invalidate(memberId);
+                    CacheBus.publish(CacheBus.Entity.MEMBER, memberId);
+                    CacheBus.publish(CacheBus.Entity.BORROWS, memberId);
+                }
+                return deleted;
+            } catch (SQLException e) {
+                ServiceException.record(e);
+                System.err.println("Delete member error: " + e.getMessage());
+                return false;
+            }
+        } finally {
+            DELETE_MEMBER.end(started);
         }
     }
 
     public static Member getMemberById(int memberId) {
-        String sql = "SELECT * FROM members WHERE member_id=?";
-        try (Connection conn = DbUtil.getConnection(); PreparedStatement ps = conn.prepareStatement(sql)) {
-            ps.setInt(1, memberId);
-            try (ResultSet rs = ps.executeQuery()) {
-                if (rs.next()) {
-                    return new Member(
-                        rs.getInt("member_id"),
-                        rs.getString("full_name"),
-                        rs.getString("email"),
-                        rs.getString("phone"),
-                        rs.getDate("join_date"),
-                        rs.getString("status")
-                    );
+        long started = GET_MEMBER_BY_ID.begin();
+        try {
+            String sql = "SELECT * FROM members WHERE member_id=?";
+            try (Connection conn = DbUtil.getConnection(); PreparedStatement ps = conn.prepareStatement(sql)) {
+                ps.setInt(1, memberId);
+                try (ResultSet rs = ps.executeQuery()) {
+                    if (rs.next()) {
+                        return GET_MEMBER_BY_ID.rows(new Member(
+                            rs.getInt("member_id"),
+                            rs.getString("full_name"),
+                            rs.getString("email"),
+                            rs.getString("phone"),
+                            rs.getDate("join_date"),
+                            rs.getString("status")
+                        ));
+                    }
                 }
+            } catch (SQLException e) {
+                if (searchIndexFilled && DbUtil.isDegraded()) {
+                    return GET_MEMBER_BY_ID.rows(SEARCH_INDEX.get(memberId));
+                }
+                ServiceException.record(e);
+                System.err.println("Get member error: " + e.getMessage());
             }
-        } catch (SQLException e) {
-            System.err.println("Get member error: " + e.getMessage());
+            return null;
+        } finally {
+            GET_MEMBER_BY_ID.end(started);
         }
-        return null;
     }
 
+    // Substring search served from the trigram index; falls back to a LIKE scan if the index cannot be loaded.
     public static List<Member> searchMembers(String keyword) {
+        long started = SEARCH_MEMBERS.begin();
+        try {
+            if (ensureSearchIndex()) {
+                return SEARCH_MEMBERS.rows(SEARCH_INDEX.search(keyword));
+            }
+            return SEARCH_MEMBERS.rows(searchMembersInDatabase(keyword));
+        } finally {
+            SEARCH_MEMBERS.end(started);
+        }
+    }
+
+    private static List<Member> searchMembersInDatabase(String keyword) {
         List<Member> members = new ArrayList<>();
         String sql = "SELECT * FROM members WHERE LOWER(full_name) LIKE ? OR LOWER(email) LIKE ? OR LOWER(phone) LIKE ? ORDER BY full_name";
         try (Connection conn = DbUtil.getConnection(); PreparedStatement ps = conn.prepareStatement(sql)) {
@@ -104,46 +215,352 @@ public class MemberService {
                 }
             }
         } catch (SQLException e) {
+            ServiceException.record(e);
             System.err.println("Search members error: " + e.getMessage());
         }
         return members;
     }
 
-    // Get member's total borrowed books count using PL/SQL function
+    // Get member's total borrowed books count using PL/SQL function; repeated lookups are served from the stats cache.
     public static int getMemberTotalBorrows(int memberId) {
-        String sql = "SELECT fn_member_total_borrows(?) FROM dual";
-        try (Connection conn = DbUtil.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(sql)) {
-            stmt.setString(1, String.valueOf(memberId));
-            ResultSet rs = stmt.executeQuery();
-            if (rs.next()) {
-                return rs.getInt(1);
-            }
+        long started = GET_MEMBER_TOTAL_BORROWS.begin();
+        try {
+            Integer total = BORROW_COUNT_CACHE.get(memberId);
+            return total != null ? total : 0;
         } catch (SQLException e) {
+            ServiceException.record(e);
             System.err.println("Error getting member total borrows: " + e.getMessage());
+            return 0;
+        } finally {
+            GET_MEMBER_TOTAL_BORROWS.end(started);
+        }
+    }
+
+    // Total borrows for many members with one grouped query per BookService.STATS_CHUNK_SIZE cache misses.
+    // Every requested id is in the result (0 if it has no borrowings); the result is empty if the database call failed.
+    public static Map<Integer, Integer> getMembersTotalBorrows(Collection<Integer> memberIds) {
+        long started = GET_MEMBERS_TOTAL_BORROWS.begin();
+        try {
+            Map<Integer, Integer> totals = BORROW_COUNT_CACHE.getAll(new LinkedHashSet<>(memberIds), MemberService::loadBorrowCounts);
+            GET_MEMBERS_TOTAL_BORROWS.rows(totals.keySet());
+            return totals;
+        } catch (SQLException e) {
+            ServiceException.record(e);
+            System.err.println("Error getting members total borrows: " + e.getMessage());
+            return new HashMap<>();
+        } finally {
+            GET_MEMBERS_TOTAL_BORROWS.end(started);
+        }
+    }
+
+    private static Integer loadBorrowCount(int memberId) throws SQLException {
+        String sql = "SELECT fn_member_total_borrows(?) FROM dual";
+        try (Connection conn = DbUtil.getConnection(); PreparedStatement stmt = conn.prepareStatement(sql)) {
+            stmt.setInt(1, memberId);
+            try (ResultSet rs = stmt.executeQuery()) {
+                return rs.next() ? rs.getInt(1) : 0;
+            }
         }
-        return 0;
+    }
+
+    private static Map<Integer, Integer> loadBorrowCounts(Collection<Integer> memberIds) throws SQLException {
+        Map<Integer, Integer> totals = new HashMap<>();
+        List<Integer> pending = new ArrayList<>(memberIds);
+        try (Connection conn = DbUtil.getConnection()) {
+            for (int from = 0; from < pending.size(); from += BookService.STATS_CHUNK_SIZE) {
+                List<Integer> chunk = pending.subList(from, Math.min(pending.size(), from + BookService.STATS_CHUNK_SIZE));
+                StringBuilder sql = new StringBuilder("SELECT member_id, COUNT(*) FROM borrowings WHERE member_id IN (");
+                for (int i = 0; i < chunk.size(); i++) {
+                    sql.append(i == 0 ? "?" : ", ?");
+                }
+                sql.append(") GROUP BY member_id");
+                try (PreparedStatement ps = conn.prepareStatement(sql.toString())) {
+                    for (int i = 0; i < chunk.size(); i++) {
+                        ps.setInt(i + 1, chunk.get(i));
+                    }
+                    try (ResultSet rs = ps.executeQuery()) {
+                        while (rs.next()) {
+                            totals.put(rs.getInt(1), rs.getInt(2));
+                        }
+                    }
+                }
+                for (Integer memberId : chunk) {
+                    totals.putIfAbsent(memberId, 0);
+                }
+            }
+        }
+        return totals;
+    }
+
+    public static ReadThroughCache.CacheStats getBorrowCountCacheStats() {
+        return BORROW_COUNT_CACHE.getStats();
+    }
+
+    // Called after a member borrows a book.
+    static void borrowsChanged(int memberId) {
+        BORROW_COUNT_CACHE.invalidate(memberId);
+        CacheBus.publish(CacheBus.Entity.BORROWS, memberId);
+    }
+
+    // Called after bulk writes to borrowings.
+    static void invalidateBorrowStats() {
+        BORROW_COUNT_CACHE.invalidateAll();
+        CacheBus.publish(CacheBus.Entity.BORROWS, 0);
     }
 
     public static List<Member> getAllMembers() {
-        List<Member> members = new ArrayList<>();
-        String sql = "SELECT member_id, full_name, email, phone, join_date, status FROM members";
-        try (Connection conn = DbUtil.getConnection();
-             PreparedStatement ps = conn.prepareStatement(sql);
-             ResultSet rs = ps.executeQuery()) {
-            while (rs.next()) {
-                members.add(new Member(
-                    rs.getInt("member_id"),
-                    rs.getString("full_name"),
-                    rs.getString("email"),
-                    rs.getString("phone"),
-                    rs.getDate("join_date"),
-                    rs.getString("status")
-                ));
+        long started = GET_ALL_MEMBERS.begin();
+        try {
+            List<Member> members = new ArrayList<>();
+            String sql = "SELECT member_id, full_name, email, phone, join_date, status FROM members";
+            try (Connection conn = DbUtil.getConnection();
+                 PreparedStatement ps = conn.prepareStatement(sql);
+                 ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    members.add(new Member(
+                        rs.getInt("member_id"),
+                        rs.getString("full_name"),
+                        rs.getString("email"),
+                        rs.getString("phone"),
+                        rs.getDate("join_date"),
+                        rs.getString("status")
+                    ));
+                }
+            } catch (SQLException e) {
+                if (searchIndexFilled && DbUtil.isDegraded()) {
+                    return GET_ALL_MEMBERS.rows(SEARCH_INDEX.page(0, Integer.MAX_VALUE));
+                }
+                ServiceException.record(e);
+                System.err.println("Fetch all members error: " + e.getMessage());
             }
-        } catch (SQLException e) {
-            System.err.println("Fetch all members error: " + e.getMessage());
+            return GET_ALL_MEMBERS.rows(members);
+        } finally {
+            GET_ALL_MEMBERS.end(started);
         }
-        return members;
+    }
+
+    // Reloads one member row into the search index after it changed in the database, and tells the other nodes.
+    static void memberChanged(int memberId) {
+        refreshMember(memberId);
+        CacheBus.publish(CacheBus.Entity.MEMBER, memberId);
+    }
+
+    private static void refreshMember(int memberId) {
+        if (DbUtil.isDegraded()) {
+            return;
+        }
+        if (!searchIndexLoaded) {
+            synchronized (INDEX_DIRTY) {
+                if (searchIndexLoading) {
+                    INDEX_DIRTY.add(memberId);
+                    return;
+                }
+            }
+            // A load that finished meanwhile no longer re-reads the member, so it is applied here.
+            if (!searchIndexLoaded) {
+                return;
+            }
+        }
+        Member member = getMemberById(memberId);
+        if (member != null) {
+            SEARCH_INDEX.put(member);
+        } else {
+            SEARCH_INDEX.remove(memberId);
+        }
+    }
+
+    // Called after bulk writes to members: the search index reloads on next search.
+    static void invalidateSearchIndex() {
+        searchIndexLoaded = false;
+        CacheBus.publish(CacheBus.Entity.MEMBER, 0);
+    }
+
+    // Applies a change another node announced on the cache bus.
+    static void onRemoteChange(CacheBus.Entity entity, int id) {
+        if (entity == CacheBus.Entity.MEMBER) {
+            if (id == 0) {
+                searchIndexLoaded = false;
+            } else {
+                refreshMember(id);
+            }
+        } else if (entity == CacheBus.Entity.BORROWS) {
+            if (id == 0) {
+                BORROW_COUNT_CACHE.invalidateAll();
+            } else {
+                BORROW_COUNT_CACHE.invalidate(id);
+            }
+        }
+    }
+
+    // One keyset page of members with member_id > afterMemberId, in member_id order.
+    public static List<Member> getMembersPage(int afterMemberId, int pageSize) {
+        long started = GET_MEMBERS_PAGE.begin();
+        try {
+            List<Member> members = new ArrayList<>();
+            String sql = "SELECT member_id, full_name, email, phone, join_date, status FROM members WHERE member_id > ? ORDER BY member_id FETCH FIRST ? ROWS ONLY";
+            try (Connection conn = DbUtil.getConnection(); PreparedStatement ps = conn.prepareStatement(sql)) {
+                ps.setInt(1, afterMemberId);
+                ps.setInt(2, pageSize);
+                ps.setFetchSize(Math.min(pageSize, DbUtil.FETCH_SIZE));
+                try (ResultSet rs = ps.executeQuery()) {
+                    while (rs.next()) {
+                        members.add(readMember(rs));
+                    }
+                }
+            } catch (SQLException e) {
+                if (searchIndexFilled && DbUtil.isDegraded()) {
+                    return GET_MEMBERS_PAGE.rows(SEARCH_INDEX.page(afterMemberId, pageSize));
+                }
+                ServiceException.record(e);
+                System.err.println("Fetch members page error: " + e.getMessage());
+            }
+            return GET_MEMBERS_PAGE.rows(members);
+        } finally {
+            GET_MEMBERS_PAGE.end(started);
+        }
+    }
+
+    // Lazily streams all members page by page; memory stays bounded by the page size.
+    // A page that cannot be read throws ServiceException (DATABASE_ERROR) from the stream.
+    public static Stream<Member> streamAllMembers(int pageSize) {
+        return KeysetCursor.stream(MemberService::getMembersPage, m -> m.memberId, pageSize);
+    }
+
+    // True if the index can be used: freshly loaded, or the last copy while the database is unreachable.
+    private static boolean ensureSearchIndex() {
+        if (searchIndexLoaded || (searchIndexFilled && DbUtil.isDegraded())) {
+            return true;
+        }
+        synchronized (SEARCH_INDEX) {
+            if (searchIndexLoaded) {
+                return true;
+            }
+            String sql = "SELECT member_id, full_name, email, phone, join_date, status FROM members";
+            startIndexLoad();
+            try (Connection conn = DbUtil.getConnection();
+                 PreparedStatement ps = conn.prepareStatement(sql)) {
+                ps.setFetchSize(DbUtil.FETCH_SIZE);
+                try (ResultSet rs = ps.executeQuery()) {
+                    // Cleared only once the query runs, so a reload that cannot reach the database keeps the last copy.
+                    searchIndexFilled = false;
+                    SEARCH_INDEX.clear();
+                    while (rs.next()) {
+                        SEARCH_INDEX.put(readMember(rs));
+                    }
+                }
+                finishIndexLoad(conn);
+            } catch (SQLException e) {
+                DbUtil.noteError(e);
+                System.err.println("Load member index error: " + e.getMessage());
+            } finally {
+                endIndexLoad();
+            }
+            return searchIndexLoaded || (searchIndexFilled && DbUtil.isDegraded());
+        }
+    }
+
+    // Warm start: fills the search index from saved rows, drops members deleted since and re-reads the
+    // rows changed since (ORA_ROWSCN past sinceScn). Returns how many rows were re-read, or -1 if the
+    // database could not be reached; the index then loads cold on first search.
+    static int loadSearchIndex(List<Member> saved, long sinceScn) {
+        synchronized (SEARCH_INDEX) {
+            String idsSql = "SELECT member_id FROM members";
+            String changedSql = "SELECT member_id, full_name, email, phone, join_date, status FROM members WHERE ORA_ROWSCN > ?";
+            startIndexLoad();
+            searchIndexFilled = false;
+            SEARCH_INDEX.clear();
+            for (Member member : saved) {
+                SEARCH_INDEX.put(member);
+            }
+            int changed = 0;
+            try (Connection conn = DbUtil.getConnection();
+                 PreparedStatement ids = conn.prepareStatement(idsSql);
+                 PreparedStatement ps = conn.prepareStatement(changedSql)) {
+                Set<Integer> live = new HashSet<>();
+                ids.setFetchSize(DbUtil.FETCH_SIZE);
+                try (ResultSet rs = ids.executeQuery()) {
+                    while (rs.next()) {
+                        live.add(rs.getInt(1));
+                    }
+                }
+                for (Member member : saved) {
+                    if (!live.contains(member.memberId)) {
+                        SEARCH_INDEX.remove(member.memberId);
+                    }
+                }
+                ps.setFetchSize(DbUtil.FETCH_SIZE);
+                ps.setLong(1, sinceScn);
+                try (ResultSet rs = ps.executeQuery()) {
+                    while (rs.next()) {
+                        SEARCH_INDEX.put(readMember(rs));
+                        changed++;
+                    }
+                }
+                finishIndexLoad(conn);
+            } catch (SQLException e) {
+                System.err.println("Catch up member index error: " + e.getMessage());
+                SEARCH_INDEX.clear();
+                searchIndexLoaded = false;
+                return -1;
+            } finally {
+                endIndexLoad();
+            }
+            return changed;
+        }
+    }
+
+    private static void startIndexLoad() {
+        synchronized (INDEX_DIRTY) {
+            INDEX_DIRTY.clear();
+            searchIndexLoading = true;
+        }
+    }
+
+    // Re-reads the members written during the load, then marks the index loaded. A write that comes in
+    // while the last ones are re-read is caught by the next round.
+    private static void finishIndexLoad(Connection conn) throws SQLException {
+        String sql = "SELECT member_id, full_name, email, phone, join_date, status FROM members WHERE member_id = ?";
+        try (PreparedStatement ps = conn.prepareStatement(sql)) {
+            while (true) {
+                List<Integer> dirty;
+                synchronized (INDEX_DIRTY) {
+                    if (INDEX_DIRTY.isEmpty()) {
+                        searchIndexLoaded = true;
+                        searchIndexFilled = true;
+                        searchIndexLoading = false;
+                        return;
+                    }
+                    dirty = new ArrayList<>(INDEX_DIRTY);
+                    INDEX_DIRTY.clear();
+                }
+                for (int memberId : dirty) {
+                    ps.setInt(1, memberId);
+                    try (ResultSet rs = ps.executeQuery()) {
+                        if (rs.next()) {
+                            SEARCH_INDEX.put(readMember(rs));
+                        } else {
+                            SEARCH_INDEX.remove(memberId);
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    private static void endIndexLoad() {
+        synchronized (INDEX_DIRTY) {
+            searchIndexLoading = false;
+        }
+    }
+
+    static Member readMember(ResultSet rs) throws SQLException {
+        return new Member(
+            rs.getInt("member_id"),
+            rs.getString("full_name"),
+            rs.getString("email"),
+            rs.getString("phone"),
+            rs.getDate("join_date"),
+            rs.getString("status")
+        );
     }
 }
\ No newline at end of file
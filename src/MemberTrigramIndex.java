@@ -0,0 +1,227 @@
+package src;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+// Trigram index over member full_name, email and phone for substring search.
+// Each trigram maps to a sorted int[] of member ids; candidates from the rarest
+// trigrams are intersected and then verified against the actual field text.
+public class MemberTrigramIndex {
+    private static final Comparator<MemberService.Member> BY_NAME = (a, b) -> {
+        int c = String.CASE_INSENSITIVE_ORDER.compare(nullToEmpty(a.fullName), nullToEmpty(b.fullName));
+        return c != 0 ? c : Integer.compare(a.memberId, b.memberId);
+    };
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<Long, PostingList> postings = new HashMap<>();
+    private final Map<Integer, MemberService.Member> members = new HashMap<>();
+
+    public void put(MemberService.Member member) {
+        lock.writeLock().lock();
+        try {
+            MemberService.Member previous = members.put(member.memberId, member);
+            if (previous != null) {
+                unindex(previous);
+            }
+            for (long gram : trigrams(member)) {
+                postings.computeIfAbsent(gram, k -> new PostingList()).add(member.memberId);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(int memberId) {
+        lock.writeLock().lock();
+        try {
+            MemberService.Member previous = members.remove(memberId);
+            if (previous != null) {
+                unindex(previous);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void clear() {
+        lock.writeLock().lock();
+        try {
+            postings.clear();
+            members.clear();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public MemberService.Member get(int memberId) {
+        lock.readLock().lock();
+        try {
+            return members.get(memberId);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return members.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Up to limit members with member_id > afterMemberId, in member_id order.
+    public List<MemberService.Member> page(int afterMemberId, int limit) {
+        List<MemberService.Member> result = new ArrayList<>();
+        lock.readLock().lock();
+        try {
+            for (MemberService.Member m : members.values()) {
+                if (m.memberId > afterMemberId) {
+                    result.add(m);
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        result.sort(Comparator.comparingInt(m -> m.memberId));
+        return result.size() > limit ? new ArrayList<>(result.subList(0, limit)) : result;
+    }
+
+    // Case-insensitive substring match on any of the three fields, ordered by full name.
+    public List<MemberService.Member> search(String keyword) {
+        String needle = normalize(keyword);
+        List<MemberService.Member> result = new ArrayList<>();
+        lock.readLock().lock();
+        try {
+            if (needle.length() < 3) {
+                // Too short to form a trigram; a scan of the in-memory rows is still cheap.
+                for (MemberService.Member m : members.values()) {
+                    if (matches(m, needle)) {
+                        result.add(m);
+                    }
+                }
+            } else {
+                List<PostingList> lists = new ArrayList<>();
+                for (long gram : trigrams(needle, new HashSet<>())) {
+                    PostingList list = postings.get(gram);
+                    if (list == null) {
+                        return result;
+                    }
+                    lists.add(list);
+                }
+                lists.sort(Comparator.comparingInt(l -> l.size));
+                int[] candidates = Arrays.copyOf(lists.get(0).ids, lists.get(0).size);
+                int count = candidates.length;
+                for (int i = 1; i < lists.size() && count > 0; i++) {
+                    count = lists.get(i).retainIn(candidates, count);
+                }
+                for (int i = 0; i < count; i++) {
+                    MemberService.Member m = members.get(candidates[i]);
+                    if (m != null && matches(m, needle)) {
+                        result.add(m);
+                    }
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        result.sort(BY_NAME);
+        return result;
+    }
+
+    private void unindex(MemberService.Member member) {
+        for (long gram : trigrams(member)) {
+            PostingList list = postings.get(gram);
+            if (list != null && list.remove(member.memberId) && list.size == 0) {
+                postings.remove(gram);
+            }
+        }
+    }
+
+    private static boolean matches(MemberService.Member m, String needle) {
+        return normalize(m.fullName).contains(needle)
+                || normalize(m.email).contains(needle)
+                || normalize(m.phone).contains(needle);
+    }
+
+    private static Set<Long> trigrams(MemberService.Member m) {
+        Set<Long> grams = new HashSet<>();
+        trigrams(normalize(m.fullName), grams);
+        trigrams(normalize(m.email), grams);
+        trigrams(normalize(m.phone), grams);
+        return grams;
+    }
+
+    private static Set<Long> trigrams(String text, Set<Long> into) {
+        for (int i = 0; i + 3 <= text.length(); i++) {
+            into.add(((long) text.charAt(i) << 32) | ((long) text.charAt(i + 1) << 16) | text.charAt(i + 2));
+        }
+        return into;
+    }
+
+    private static String normalize(String s) {
+        return s == null ? "" : s.toLowerCase(Locale.ROOT);
+    }
+
+    private static String nullToEmpty(String s) {
+        return s == null ? "" : s;
+    }
+
+    // Sorted, growable array of member ids. Ids are mostly assigned in increasing order, so adds are usually appends.
+    private static class PostingList {
+        int[] ids = new int[4];
+        int size;
+
+        void add(int id) {
+            int pos = Arrays.binarySearch(ids, 0, size, id);
+            if (pos >= 0) {
+                return;
+            }
+            pos = -pos - 1;
+            if (size == ids.length) {
+                ids = Arrays.copyOf(ids, size + (size >> 1) + 1);
+            }
+            System.arraycopy(ids, pos, ids, pos + 1, size - pos);
+            ids[pos] = id;
+            size++;
+        }
+
+        boolean remove(int id) {
+            int pos = Arrays.binarySearch(ids, 0, size, id);
+            if (pos < 0) {
+                return false;
+            }
+            System.arraycopy(ids, pos + 1, ids, pos, size - pos - 1);
+            size--;
+            if (size > 16 && size < ids.length / 4) {
+                ids = Arrays.copyOf(ids, size * 2);
+            }
+            return true;
+        }
+
+        // Keeps in candidates[0..count) only ids also present here; both sides are sorted.
+        int retainIn(int[] candidates, int count) {
+            int kept = 0;
+            int j = 0;
+            for (int i = 0; i < count && j < size; i++) {
+                int id = candidates[i];
+                while (j < size && ids[j] < id) {
+                    j++;
+                }
+                if (j < size && ids[j] == id) {
+                    candidates[kept++] = id;
+                }
+            }
+            return kept;
+        }
+    }
+}
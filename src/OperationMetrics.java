@@ -0,0 +1,136 @@
+package src;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+// Per-operation call counts, error counts, rows returned and latency histograms for the service
+// layer. Each instrumented method does:
+//
+//   long started = OP.begin();
+//   try { ... return OP.rows(result); } finally { OP.end(started); }
+//
+// begin/end keep a small per-thread stack of running operations, so ServiceException.record()
+// charges a database error to the innermost one. Nothing on this path locks or allocates.
+// Every operation is also published over JMX as src.lexora:type=Operation,name=<name>.
+public class OperationMetrics {
+    public interface OperationMXBean {
+        String getName();
+        long getCalls();
+        long getErrors();
+        long getRows();
+        double getMeanMicros();
+        double getP50Micros();
+        double getP99Micros();
+        double getP999Micros();
+        double getMaxMicros();
+    }
+
+    public static class Op implements OperationMXBean {
+        private final String name;
+        private final LatencyHistogram latency = new LatencyHistogram();
+        private final LongAdder errors = new LongAdder();
+        private final LongAdder rows = new LongAdder();
+
+        Op(String name) {
+            this.name = name;
+        }
+
+        public long begin() {
+            Frame f = FRAMES.get();
+            if (f.depth < f.stack.length) {
+                f.stack[f.depth] = this;
+            }
+            f.depth++;
+            return System.nanoTime();
+        }
+
+        public void end(long started) {
+            latency.record(System.nanoTime() - started);
+            Frame f = FRAMES.get();
+            f.depth--;
+            if (f.depth < f.stack.length) {
+                f.stack[f.depth] = null;
+            }
+        }
+
+        // Counts the rows in a returned list, or one row for a non-null single result.
+        public <T> T rows(T result) {
+            if (result instanceof Collection) {
+                rows.add(((Collection<?>) result).size());
+            } else if (result != null) {
+                rows.increment();
+            }
+            return result;
+        }
+
+        public void error() {
+            errors.increment();
+        }
+
+        @Override public String getName() { return name; }
+        @Override public long getCalls() { return latency.count(); }
+        @Override public long getErrors() { return errors.sum(); }
+        @Override public long getRows() { return rows.sum(); }
+        @Override public double getMeanMicros() { return latency.meanNanos() / 1000.0; }
+        @Override public double getP50Micros() { return latency.percentileNanos(0.50) / 1000.0; }
+        @Override public double getP99Micros() { return latency.percentileNanos(0.99) / 1000.0; }
+        @Override public double getP999Micros() { return latency.percentileNanos(0.999) / 1000.0; }
+        @Override public double getMaxMicros() { return latency.maxNanos() / 1000.0; }
+
+        @Override
+        public String toString() {
+            return String.format("%-38s calls=%d errors=%d rows=%d p50=%.1fus p99=%.1fus p999=%.1fus max=%.1fus",
+                    name, getCalls(), getErrors(), getRows(), getP50Micros(), getP99Micros(), getP999Micros(), getMaxMicros());
+        }
+    }
+
+    private static class Frame {
+        final Op[] stack = new Op[16];
+        int depth;
+    }
+
+    private static final ThreadLocal<Frame> FRAMES = ThreadLocal.withInitial(Frame::new);
+    private static final Map<String, Op> OPS = new ConcurrentHashMap<>();
+
+    public static Op register(String name) {
+        return OPS.computeIfAbsent(name, n -> {
+            Op op = new Op(n);
+            registerMBean(op);
+            return op;
+        });
+    }
+
+    public static List<Op> snapshot() {
+        List<Op> ops = new ArrayList<>(OPS.values());
+        ops.sort((a, b) -> a.name.compareTo(b.name));
+        return ops;
+    }
+
+    // Charges an error to the innermost operation running on this thread, if any.
+    static void errorInCurrent() {
+        Frame f = FRAMES.get();
+        if (f.depth > 0 && f.depth <= f.stack.length) {
+            f.stack[f.depth - 1].error();
+        }
+    }
+
+    private static void registerMBean(Op op) {
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName name = new ObjectName("src.lexora:type=Operation,name=" + op.name);
+            if (!server.isRegistered(name)) {
+                server.registerMBean(op, name);
+            }
+        } catch (JMException | RuntimeException e) {
+            System.err.println("JMX registration error for " + op.name + ": " + e.getMessage());
+        }
+    }
+}
\ No newline at end of file
@@ -1,22 +1,81 @@
 package src;
 
+import java.nio.charset.StandardCharsets;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
 import java.util.Base64;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
 public class PasswordUtil {
-    // Simple SHA-256 hash for demonstration. In production, use PBKDF2, bcrypt, or scrypt.
-    public static String hashPassword(String password) {
+    // One digest per thread instead of a MessageDigest.getInstance lookup per call.
+    private static final ThreadLocal<MessageDigest> SHA256 = ThreadLocal.withInitial(() -> {
         try {
-            MessageDigest md = MessageDigest.getInstance("SHA-256");
-            byte[] hash = md.digest(password.getBytes());
-            return Base64.getEncoder().encodeToString(hash);
+            return MessageDigest.getInstance("SHA-256");
         } catch (NoSuchAlgorithmException e) {
             throw new RuntimeException("SHA-256 algorithm not found", e);
         }
+    });
+
+    // Bounded pool for login verification: a login storm queues here (and is refused once the
+    // queue is full) instead of taking every CPU away from the rest of the application.
+    private static final int VERIFY_THREADS = Integer.getInteger("lexora.auth.verifyThreads", Math.max(1, Runtime.getRuntime().availableProcessors() / 2));
+    private static final int VERIFY_QUEUE = Integer.getInteger("lexora.auth.verifyQueue", 256);
+    private static final long VERIFY_TIMEOUT_MS = Long.getLong("lexora.auth.verifyTimeoutMs", 2000L);
+    private static final ThreadPoolExecutor VERIFIERS = new ThreadPoolExecutor(VERIFY_THREADS, VERIFY_THREADS, 0L, TimeUnit.MILLISECONDS,
+            new ArrayBlockingQueue<>(VERIFY_QUEUE), r -> {
+                Thread t = new Thread(r, "lexora-password-verifier");
+                t.setDaemon(true);
+                return t;
+            });
+
+    // Simple SHA-256 hash for demonstration. In production, use PBKDF2, bcrypt, or scrypt.
+    public static String hashPassword(String password) {
+        return digest(password.getBytes(StandardCharsets.UTF_8));
     }
 
     public static boolean verifyPassword(String password, String hash) {
-        return hashPassword(password).equals(hash);
+        if (hash == null) {
+            return false;
+        }
+        byte[] expected = hash.getBytes(StandardCharsets.UTF_8);
+        byte[] utf8 = password.getBytes(StandardCharsets.UTF_8);
+        // Constant-time comparison so response time does not leak how much of the hash matched.
+        if (MessageDigest.isEqual(digest(utf8).getBytes(StandardCharsets.UTF_8), expected)) {
+            return true;
+        }
+        // Hashes stored before the switch to UTF-8 were taken over the platform default encoding;
+        // they only differ for non-ASCII passwords, so only those pay for the second digest.
+        byte[] legacy = password.getBytes();
+        return !Arrays.equals(legacy, utf8) && MessageDigest.isEqual(digest(legacy).getBytes(StandardCharsets.UTF_8), expected);
+    }
+
+    private static String digest(byte[] password) {
+        MessageDigest md = SHA256.get();
+        md.reset();
+        return Base64.getEncoder().encodeToString(md.digest(password));
+    }
+
+    // Verifies on the bounded worker pool. Throws RejectedExecutionException when the pool is saturated.
+    public static boolean verifyOnWorkerPool(String password, String hash) {
+        Future<Boolean> result = VERIFIERS.submit(() -> verifyPassword(password, hash));
+        try {
+            return result.get(VERIFY_TIMEOUT_MS, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            result.cancel(true);
+            throw new RejectedExecutionException("Interrupted while verifying password", e);
+        } catch (TimeoutException e) {
+            result.cancel(true);
+            throw new RejectedExecutionException("Password verification timed out", e);
+        } catch (ExecutionException e) {
+            throw new RuntimeException("Password verification failed", e.getCause());
+        }
     }
 }
\ No newline at end of file
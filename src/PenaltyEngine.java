@@ -0,0 +1,211 @@
+package src;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+// Fine accrual for overdue loans. Fines are computed on epoch days with a grace period,
+// tiered daily rates and a cap. runAssessment() computes every open overdue loan in one
+// parallel pass and writes back only the fines that changed, in short batched transactions.
+public class PenaltyEngine {
+    public static class RunReport {
+        public final int loansScanned;
+        public final int finesUpdated;
+        public final double totalAssessed;
+        public final long elapsedMillis;
+        public RunReport(int loansScanned, int finesUpdated, double totalAssessed, long elapsedMillis) {
+            this.loansScanned = loansScanned;
+            this.finesUpdated = finesUpdated;
+            this.totalAssessed = totalAssessed;
+            this.elapsedMillis = elapsedMillis;
+        }
+    }
+
+    // Library default: 2 grace days, 0.50/day for the first week, then 1.00/day, capped at 20.00.
+    public static final PenaltyEngine DEFAULT = new PenaltyEngine(2, new int[] {1, 8}, new double[] {0.50, 1.00}, 20.00);
+
+    private static final int PARALLEL_THRESHOLD = 4096;
+    private static final int WRITE_BATCH_SIZE = 1000;
+
+    private final int graceDays;
+    private final int[] tierStartDays;
+    private final double[] tierDailyRates;
+    private final double cap;
+
+    // tierStartDays[i] is the first chargeable day (1-based, counted after the grace period)
+    // billed at tierDailyRates[i]; cap <= 0 means uncapped.
+    public PenaltyEngine(int graceDays, int[] tierStartDays, double[] tierDailyRates, double cap) {
+        if (tierStartDays.length == 0 || tierStartDays.length != tierDailyRates.length || tierStartDays[0] != 1) {
+            throw new IllegalArgumentException("Tiers must be non-empty, matched and start at day 1");
+        }
+        for (int i = 1; i < tierStartDays.length; i++) {
+            if (tierStartDays[i] <= tierStartDays[i - 1]) {
+                throw new IllegalArgumentException("Tier start days must be increasing");
+            }
+        }
+        this.graceDays = graceDays;
+        this.tierStartDays = tierStartDays.clone();
+        this.tierDailyRates = tierDailyRates.clone();
+        this.cap = cap;
+    }
+
+    public double fineFor(long dueEpochDay, long asOfEpochDay) {
+        long chargeable = asOfEpochDay - dueEpochDay - graceDays;
+        if (chargeable <= 0) {
+            return 0.0;
+        }
+        double fine = 0.0;
+        for (int i = 0; i < tierStartDays.length; i++) {
+            long from = tierStartDays[i];
+            long to = i + 1 < tierStartDays.length ? tierStartDays[i + 1] - 1 : Long.MAX_VALUE;
+            if (chargeable < from) {
+                break;
+            }
+            fine += (Math.min(chargeable, to) - from + 1) * tierDailyRates[i];
+        }
+        if (cap > 0 && fine > cap) {
+            fine = cap;
+        }
+        return Math.round(fine * 100.0) / 100.0;
+    }
+
+    public double fineFor(Date dueDate, Date asOf) {
+        return fineFor(DueDateScheduler.epochDay(dueDate), DueDateScheduler.epochDay(asOf));
+    }
+
+    // Recomputes the fine of every ISSUED loan past its due date as of today.
+    public RunReport runAssessment() {
+        long start = System.currentTimeMillis();
+        long today = LocalDate.now().toEpochDay();
+        int count = 0;
+        int[] borrowIds = new int[1024];
+        long[] dueDays = new long[1024];
+        double[] recorded = new double[1024];
+        String sql = "SELECT borrow_id, due_date, fine_amount FROM borrowings WHERE status='ISSUED' AND due_date < TRUNC(SYSDATE)";
+        try (Connection conn = DbUtil.getConnection(); PreparedStatement ps = conn.prepareStatement(sql)) {
+            ps.setFetchSize(DbUtil.FETCH_SIZE);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    if (count == borrowIds.length) {
+                        int grown = count + (count >> 1);
+                        borrowIds = Arrays.copyOf(borrowIds, grown);
+                        dueDays = Arrays.copyOf(dueDays, grown);
+                        recorded = Arrays.copyOf(recorded, grown);
+                    }
+                    borrowIds[count] = rs.getInt("borrow_id");
+                    dueDays[count] = rs.getDate("due_date").toLocalDate().toEpochDay();
+                    recorded[count] = rs.getDouble("fine_amount");
+                    count++;
+                }
+            }
+        } catch (SQLException e) {
+            ServiceException.record(e);
+            System.err.println("Load overdue loans error: " + e.getMessage());
+            return new RunReport(0, 0, 0.0, System.currentTimeMillis() - start);
+        }
+
+        double[] fines = new double[count];
+        ForkJoinPool.commonPool().invoke(new ComputeFines(dueDays, fines, today, 0, count));
+
+        double total = 0.0;
+        int updated = 0;
+        // loans whose new fine was committed; only these are journaled
+        boolean[] written = new boolean[count];
+        // indexes of the loans in the batch being built, in statement order
+        int[] batch = new int[WRITE_BATCH_SIZE];
+        try (Connection conn = DbUtil.getConnection();
+             PreparedStatement ps = conn.prepareStatement("UPDATE borrowings SET fine_amount=? WHERE borrow_id=? AND status='ISSUED'")) {
+            conn.setAutoCommit(false);
+            try {
+                int pending = 0;
+                for (int i = 0; i < count; i++) {
+                    total += fines[i];
+                    if (fines[i] == recorded[i]) {
+                        continue;
+                    }
+                    ps.setDouble(1, fines[i]);
+                    ps.setInt(2, borrowIds[i]);
+                    ps.addBatch();
+                    batch[pending] = i;
+                    // Commit every batch so no transaction holds row locks for long.
+                    if (++pending == WRITE_BATCH_SIZE) {
+                        int[] counts = ps.executeBatch();
+                        conn.commit();
+                        updated += markWritten(counts, batch, written);
+                        pending = 0;
+                    }
+                }
+                if (pending > 0) {
+                    int[] counts = ps.executeBatch();
+                    conn.commit();
+                    updated += markWritten(counts, batch, written);
+                }
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            } finally {
+                conn.setAutoCommit(true);
+            }
+        } catch (SQLException e) {
+            ServiceException.record(e);
+            System.err.println("Write fines error: " + e.getMessage());
+        }
+        for (int i = 0; i < count; i++) {
+            if (written[i]) {
+                CirculationJournal.fined(borrowIds[i], fines[i]);
+            }
+        }
+        return new RunReport(count, updated, Math.round(total * 100.0) / 100.0, System.currentTimeMillis() - start);
+    }
+
+    // Marks the loans of a committed batch whose statement changed a row and returns how many did. A loan
+    // returned since it was read matches no row. Each statement targets one loan, so SUCCESS_NO_INFO
+    // (ran, count unknown) is taken as one row.
+    private static int markWritten(int[] counts, int[] batch, boolean[] written) {
+        int rows = 0;
+        for (int k = 0; k < counts.length; k++) {
+            if (counts[k] == Statement.SUCCESS_NO_INFO || counts[k] > 0) {
+                written[batch[k]] = true;
+                rows++;
+            }
+        }
+        return rows;
+    }
+
+    private class ComputeFines extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final long[] dueDays;
+        private final double[] fines;
+        private final long today;
+        private final int from;
+        private final int to;
+
+        ComputeFines(long[] dueDays, double[] fines, long today, int from, int to) {
+            this.dueDays = dueDays;
+            this.fines = fines;
+            this.today = today;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= PARALLEL_THRESHOLD) {
+                for (int i = from; i < to; i++) {
+                    fines[i] = fineFor(dueDays[i], today);
+                }
+                return;
+            }
+            int mid = (from + to) >>> 1;
+            invokeAll(new ComputeFines(dueDays, fines, today, from, mid), new ComputeFines(dueDays, fines, today, mid, to));
+        }
+    }
+}
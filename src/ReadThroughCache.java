@@ -0,0 +1,210 @@
+package src;
+
+import java.sql.SQLException;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+
+// Size-bounded read-through cache with TTL. LRU evicts the least recently used entry;
+// LFU evicts the least frequently used among the few least recently used entries.
+public class ReadThroughCache<K, V> {
+    public enum Policy { LRU, LFU }
+
+    public interface Loader<K, V> {
+        V load(K key) throws SQLException;
+    }
+
+    // Loads many keys at once; keys missing from the returned map are treated as null.
+    public interface BulkLoader<K, V> {
+        Map<K, V> loadAll(Collection<K> keys) throws SQLException;
+    }
+
+    public static class CacheStats {
+        public final int size;
+        public final long hits;
+        public final long misses;
+        public final long evictions;
+        public final long expirations;
+        public final long invalidations;
+        public CacheStats(int size, long hits, long misses, long evictions, long expirations, long invalidations) {
+            this.size = size;
+            this.hits = hits;
+            this.misses = misses;
+            this.evictions = evictions;
+            this.expirations = expirations;
+            this.invalidations = invalidations;
+        }
+
+        public double hitRatio() {
+            long lookups = hits + misses;
+            return lookups == 0 ? 0.0 : (double) hits / lookups;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("size=%d, hits=%d, misses=%d, hitRatio=%.2f, evictions=%d, expirations=%d, invalidations=%d",
+                    size, hits, misses, hitRatio(), evictions, expirations, invalidations);
+        }
+    }
+
+    private static final int LFU_SAMPLE_SIZE = 8;
+
+    private static class Entry<V> {
+        final V value;
+        final long expiresAt;
+        int frequency = 1;
+        Entry(V value, long expiresAt) {
+            this.value = value;
+            this.expiresAt = expiresAt;
+        }
+    }
+
+    private final int maxSize;
+    private final long ttlMillis;
+    private final Policy policy;
+    private final Loader<K, V> loader;
+    private final LinkedHashMap<K, Entry<V>> entries = new LinkedHashMap<>(16, 0.75f, true);
+    // Bumped on every invalidation so a load that raced with a write is not cached.
+    private long generation;
+    private long hits;
+    private long misses;
+    private long evictions;
+    private long expirations;
+    private long invalidations;
+
+    public ReadThroughCache(int maxSize, long ttlMillis, Policy policy, Loader<K, V> loader) {
+        this.maxSize = maxSize;
+        this.ttlMillis = ttlMillis;
+        this.policy = policy;
+        this.loader = loader;
+    }
+
+    // Returns the cached value, loading it on a miss. Null results are not cached.
+    public V get(K key) throws SQLException {
+        long loadGeneration;
+        synchronized (this) {
+            Entry<V> entry = entries.get(key);
+            if (entry != null) {
+                if (System.currentTimeMillis() < entry.expiresAt) {
+                    entry.frequency++;
+                    hits++;
+                    return entry.value;
+                }
+                entries.remove(key);
+                expirations++;
+            }
+            misses++;
+            loadGeneration = generation;
+        }
+        V value = loader.load(key);
+        if (value != null && maxSize > 0) {
+            synchronized (this) {
+                if (loadGeneration == generation) {
+                    entries.put(key, new Entry<>(value, System.currentTimeMillis() + ttlMillis));
+                    while (entries.size() > maxSize) {
+                        evictOne();
+                    }
+                }
+            }
+        }
+        return value;
+    }
+
+    // Returns the cached values for keys, loading all misses with one bulk call.
+    public Map<K, V> getAll(Collection<K> keys, BulkLoader<K, V> bulkLoader) throws SQLException {
+        Map<K, V> result = new HashMap<>();
+        Set<K> missing = new LinkedHashSet<>();
+        long loadGeneration;
+        synchronized (this) {
+            long now = System.currentTimeMillis();
+            for (K key : keys) {
+                if (result.containsKey(key) || missing.contains(key)) {
+                    continue;
+                }
+                Entry<V> entry = entries.get(key);
+                if (entry != null && now < entry.expiresAt) {
+                    entry.frequency++;
+                    hits++;
+                    result.put(key, entry.value);
+                    continue;
+                }
+                if (entry != null) {
+                    entries.remove(key);
+                    expirations++;
+                }
+                misses++;
+                missing.add(key);
+            }
+            loadGeneration = generation;
+        }
+        if (missing.isEmpty()) {
+            return result;
+        }
+        Map<K, V> loaded = bulkLoader.loadAll(missing);
+        result.putAll(loaded);
+        if (maxSize > 0) {
+            synchronized (this) {
+                if (loadGeneration == generation) {
+                    long expiresAt = System.currentTimeMillis() + ttlMillis;
+                    for (Map.Entry<K, V> e : loaded.entrySet()) {
+                        if (e.getValue() != null) {
+                            entries.put(e.getKey(), new Entry<>(e.getValue(), expiresAt));
+                        }
+                    }
+                    while (entries.size() > maxSize) {
+                        evictOne();
+                    }
+                }
+            }
+        }
+        return result;
+    }
+
+    // Returns the cached value without loading, or null if absent or expired.
+    public synchronized V peek(K key) {
+        Entry<V> entry = entries.get(key);
+        return entry != null && System.currentTimeMillis() < entry.expiresAt ? entry.value : null;
+    }
+
+    public synchronized void invalidate(K key) {
+        generation++;
+        if (entries.remove(key) != null) {
+            invalidations++;
+        }
+    }
+
+    public synchronized void invalidateAll() {
+        generation++;
+        invalidations += entries.size();
+        entries.clear();
+    }
+
+    public synchronized CacheStats getStats() {
+        return new CacheStats(entries.size(), hits, misses, evictions, expirations, invalidations);
+    }
+
+    private void evictOne() {
+        Iterator<Map.Entry<K, Entry<V>>> it = entries.entrySet().iterator();
+        K victim = null;
+        if (policy == Policy.LFU) {
+            int lowest = Integer.MAX_VALUE;
+            for (int i = 0; i < LFU_SAMPLE_SIZE && it.hasNext(); i++) {
+                Map.Entry<K, Entry<V>> e = it.next();
+                if (e.getValue().frequency < lowest) {
+                    lowest = e.getValue().frequency;
+                    victim = e.getKey();
+                }
+            }
+        } else if (it.hasNext()) {
+            victim = it.next().getKey();
+        }
+        if (victim != null) {
+            entries.remove(victim);
+            evictions++;
+        }
+    }
+}
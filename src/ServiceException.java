@@ -0,0 +1,59 @@
+package src;
+
+import java.sql.SQLException;
+
+// Typed failure for callers that need to tell "not found" or "refused" apart from a database error.
+// The blocking services keep their boolean/null contract and record the last SQLException per
+// thread, which the async facade turns into one of these.
+public class ServiceException extends RuntimeException {
+    private static final long serialVersionUID = 1L;
+
+    public enum Kind { NOT_FOUND, REJECTED, AUTHENTICATION_FAILED, DATABASE_ERROR, OVERLOADED, RATE_LIMITED }
+
+    private static final ThreadLocal<SQLException> LAST_ERROR = new ThreadLocal<>();
+
+    private final Kind kind;
+    private final long retryAfterMillis;
+
+    public ServiceException(Kind kind, String message) {
+        this(kind, message, 0L);
+    }
+
+    // For OVERLOADED, RATE_LIMITED and an unreachable database: how long the caller should wait before trying again.
+    public ServiceException(Kind kind, String message, long retryAfterMillis) {
+        super(message);
+        this.kind = kind;
+        this.retryAfterMillis = retryAfterMillis;
+    }
+
+    public ServiceException(Kind kind, String message, Throwable cause) {
+        super(message, cause);
+        this.kind = kind;
+        this.retryAfterMillis = 0L;
+    }
+
+    public Kind getKind() {
+        return kind;
+    }
+
+    public long getRetryAfterMillis() {
+        return retryAfterMillis;
+    }
+
+    static void record(SQLException e) {
+        LAST_ERROR.set(e);
+        OperationMetrics.errorInCurrent();
+        DbUtil.noteError(e);
+    }
+
+    static void clear() {
+        LAST_ERROR.remove();
+    }
+
+    // Returns and clears the SQLException recorded on this thread, if any.
+    static SQLException takeLast() {
+        SQLException e = LAST_ERROR.get();
+        LAST_ERROR.remove();
+        return e;
+    }
+}
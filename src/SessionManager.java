@@ -0,0 +1,104 @@
+package src;
+
+import java.security.SecureRandom;
+import java.util.Base64;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+// Login sessions keyed by an opaque random token. A session stays valid while it is used at least
+// once per idle TTL (sliding expiry), but never longer than the absolute lifetime. Validation is a
+// single map lookup, so requests after login never go back to the database or the password hash.
+public class SessionManager {
+    private static class Session {
+        final AuthService.AuthResult auth;
+        final long createdAt;
+        volatile long expiresAt;
+        Session(AuthService.AuthResult auth, long createdAt, long expiresAt) {
+            this.auth = auth;
+            this.createdAt = createdAt;
+            this.expiresAt = expiresAt;
+        }
+    }
+
+    private final Map<String, Session> sessions = new ConcurrentHashMap<>();
+    private final SecureRandom random = new SecureRandom();
+    private final long idleTtlMillis;
+    private final long maxLifetimeMillis;
+    private final ScheduledExecutorService sweeper;
+
+    public SessionManager(long idleTtlMillis, long maxLifetimeMillis) {
+        if (idleTtlMillis <= 0 || maxLifetimeMillis < idleTtlMillis) {
+            throw new IllegalArgumentException("Invalid session timeouts: idle=" + idleTtlMillis + " max=" + maxLifetimeMillis);
+        }
+        this.idleTtlMillis = idleTtlMillis;
+        this.maxLifetimeMillis = maxLifetimeMillis;
+        this.sweeper = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "lexora-session-sweeper");
+            t.setDaemon(true);
+            return t;
+        });
+        long period = Math.max(1000L, Math.min(idleTtlMillis / 2, 60000L));
+        sweeper.scheduleWithFixedDelay(this::removeExpired, period, period, TimeUnit.MILLISECONDS);
+    }
+
+    public String create(AuthService.AuthResult auth) {
+        byte[] bytes = new byte[24];
+        random.nextBytes(bytes);
+        String token = Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+        long now = System.currentTimeMillis();
+        sessions.put(token, new Session(auth, now, now + idleTtlMillis));
+        return token;
+    }
+
+    // Returns the session's user and extends its idle expiry, or null if the token is unknown or expired.
+    public AuthService.AuthResult validate(String token) {
+        if (token == null) {
+            return null;
+        }
+        Session s = sessions.get(token);
+        if (s == null) {
+            return null;
+        }
+        long now = System.currentTimeMillis();
+        if (now >= s.expiresAt) {
+            sessions.remove(token, s);
+            return null;
+        }
+        s.expiresAt = Math.min(now + idleTtlMillis, s.createdAt + maxLifetimeMillis);
+        return s.auth;
+    }
+
+    public void invalidate(String token) {
+        if (token != null) {
+            sessions.remove(token);
+        }
+    }
+
+    // Ends every session of a user, e.g. after a password change or deactivation.
+    public void invalidateUser(int userId) {
+        sessions.values().removeIf(s -> s.auth.userId == userId);
+    }
+
+    public int size() {
+        return sessions.size();
+    }
+
+    public void shutdown() {
+        sweeper.shutdownNow();
+        sessions.clear();
+    }
+
+    private void removeExpired() {
+        long now = System.currentTimeMillis();
+        Iterator<Session> it = sessions.values().iterator();
+        while (it.hasNext()) {
+            if (now >= it.next().expiresAt) {
+                it.remove();
+            }
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,277 @@
+package src;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedOutputStream;
+
+// Binary copy of the books, members and open loans, so a restarted node serves warm reads straight
+// away instead of rebuilding its catalog, member index and due-date queue from cold queries
+// (-Dlexora.snapshot.enabled=true). The file is written on shutdown and every
+// lexora.snapshot.intervalMinutes, from one read-only transaction, together with each table's
+// high-water mark (the largest ORA_ROWSCN read). At startup it is memory-mapped and decoded, and the
+// database is asked only for rows whose ORA_ROWSCN is past the mark, plus the ids of live books and
+// members so deletions are noticed. Without ROWDEPENDENCIES, ORA_ROWSCN is tracked per block, so the
+// catch-up may re-read a few unchanged neighbours but never misses a change.
+public class WarmStartSnapshot {
+    private static final boolean ENABLED = Boolean.getBoolean("lexora.snapshot.enabled");
+    private static final Path FILE = Paths.get(System.getProperty("lexora.snapshot.file", "lexora.snapshot"));
+    private static final long INTERVAL_MINUTES = Long.getLong("lexora.snapshot.intervalMinutes", 0L);
+
+    private static final int MAGIC = 0x4C585731; // "LXW1"
+    // Bump when the record layout changes; files with another version are ignored.
+    private static final int FORMAT_VERSION = 1;
+    private static final long NO_DATE = Long.MIN_VALUE;
+
+    private static ScheduledExecutorService scheduler;
+
+    // Loads the snapshot if there is a usable one, then arranges for it to be rewritten on shutdown and on
+    // schedule. Returns true if the caches were filled from it.
+    public static synchronized boolean start() {
+        if (!ENABLED) {
+            return false;
+        }
+        boolean warm = load();
+        if (scheduler == null) {
+            DbUtil.beforeShutdown(WarmStartSnapshot::write);
+            if (INTERVAL_MINUTES > 0) {
+                scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+                    Thread t = new Thread(r, "lexora-snapshot-writer");
+                    t.setDaemon(true);
+                    return t;
+                });
+                scheduler.scheduleWithFixedDelay(WarmStartSnapshot::write, INTERVAL_MINUTES, INTERVAL_MINUTES, TimeUnit.MINUTES);
+            }
+        }
+        return warm;
+    }
+
+    // Reads all three tables in one read-only transaction and replaces the snapshot file.
+    public static synchronized boolean write() {
+        long start = System.currentTimeMillis();
+        String booksSql = "SELECT book_id, isbn, title, author, category, published_year, total_copies, available_copies, borrowed_copies, status, ORA_ROWSCN AS row_scn FROM books ORDER BY book_id";
+        String membersSql = "SELECT member_id, full_name, email, phone, join_date, status, ORA_ROWSCN AS row_scn FROM members";
+        String loansSql = "SELECT * FROM borrowings WHERE status='ISSUED'";
+        // Returned loans count too: a return after the mark must be caught up.
+        String loansScnSql = "SELECT NVL(MAX(ORA_ROWSCN), 0) FROM borrowings";
+        Path tmp = FILE.resolveSibling(FILE.getFileName() + ".tmp");
+        int books = 0;
+        int members = 0;
+        int loans = 0;
+        try (Connection conn = DbUtil.getConnection()) {
+            conn.setAutoCommit(false);
+            CRC32 crc = new CRC32();
+            try (Statement st = conn.createStatement();
+                 DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new CheckedOutputStream(new FileOutputStream(tmp.toFile()), crc), 1 << 16))) {
+                st.execute("SET TRANSACTION READ ONLY");
+                long loanScn;
+                try (ResultSet rs = st.executeQuery(loansScnSql)) {
+                    rs.next();
+                    loanScn = rs.getLong(1);
+                }
+                out.writeInt(MAGIC);
+                out.writeInt(FORMAT_VERSION);
+                out.writeLong(System.currentTimeMillis());
+                out.writeLong(loanScn);
+
+                // Each row is preceded by true; a section ends with false and then its high-water mark, known only once it is read.
+                long bookScn = 0;
+                try (PreparedStatement ps = conn.prepareStatement(booksSql)) {
+                    ps.setFetchSize(DbUtil.FETCH_SIZE);
+                    try (ResultSet rs = ps.executeQuery()) {
+                        while (rs.next()) {
+                            BookService.Book b = BookService.readBook(rs);
+                            out.writeBoolean(true);
+                            out.writeInt(b.bookId);
+                            writeString(out, b.isbn);
+                            writeString(out, b.title);
+                            writeString(out, b.author);
+                            writeString(out, b.category);
+                            out.writeInt(b.publishedYear);
+                            out.writeInt(b.totalCopies);
+                            out.writeInt(b.availableCopies);
+                            out.writeInt(b.borrowedCopies);
+                            writeString(out, b.status);
+                            bookScn = Math.max(bookScn, rs.getLong("row_scn"));
+                            books++;
+                        }
+                    }
+                }
+                out.writeBoolean(false);
+                out.writeLong(bookScn);
+
+                long memberScn = 0;
+                try (PreparedStatement ps = conn.prepareStatement(membersSql)) {
+                    ps.setFetchSize(DbUtil.FETCH_SIZE);
+                    try (ResultSet rs = ps.executeQuery()) {
+                        while (rs.next()) {
+                            MemberService.Member m = MemberService.readMember(rs);
+                            out.writeBoolean(true);
+                            out.writeInt(m.memberId);
+                            writeString(out, m.fullName);
+                            writeString(out, m.email);
+                            writeString(out, m.phone);
+                            out.writeLong(day(m.joinDate));
+                            writeString(out, m.status);
+                            memberScn = Math.max(memberScn, rs.getLong("row_scn"));
+                            members++;
+                        }
+                    }
+                }
+                out.writeBoolean(false);
+                out.writeLong(memberScn);
+
+                try (PreparedStatement ps = conn.prepareStatement(loansSql)) {
+                    ps.setFetchSize(DbUtil.FETCH_SIZE);
+                    try (ResultSet rs = ps.executeQuery()) {
+                        while (rs.next()) {
+                            BorrowingService.Borrowing b = BorrowingService.readBorrowing(rs);
+                            out.writeBoolean(true);
+                            out.writeInt(b.borrowId);
+                            out.writeInt(b.memberId);
+                            out.writeInt(b.bookId);
+                            out.writeLong(day(b.issueDate));
+                            out.writeLong(day(b.dueDate));
+                            out.writeDouble(b.fineAmount);
+                            loans++;
+                        }
+                    }
+                }
+                out.writeBoolean(false);
+                conn.commit();
+                out.flush();
+                out.writeInt((int) crc.getValue());
+            } finally {
+                conn.rollback();
+                conn.setAutoCommit(true);
+            }
+            Files.move(tmp, FILE, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (SQLException | IOException e) {
+            System.err.println("Write snapshot error: " + e.getMessage());
+            try { Files.deleteIfExists(tmp); } catch (IOException ex) {}
+            return false;
+        }
+        System.err.println("Snapshot written: " + books + " books, " + members + " members, " + loans + " open loans in "
+                + (System.currentTimeMillis() - start) + " ms");
+        return true;
+    }
+
+    // Maps and decodes the snapshot file and hands its rows to the services to catch up from. False if
+    // there is no usable snapshot or the database could not be reached; everything then loads cold.
+    private static boolean load() {
+        if (!Files.exists(FILE)) {
+            return false;
+        }
+        long start = System.currentTimeMillis();
+        MappedByteBuffer buf;
+        try (FileChannel ch = FileChannel.open(FILE, StandardOpenOption.READ)) {
+            buf = ch.map(FileChannel.MapMode.READ_ONLY, 0, ch.size());
+        } catch (IOException e) {
+            System.err.println("Read snapshot error: " + e.getMessage());
+            return false;
+        }
+        List<BookService.Book> books = new ArrayList<>();
+        List<MemberService.Member> members = new ArrayList<>();
+        List<BorrowingService.Borrowing> loans = new ArrayList<>();
+        long bookScn;
+        long memberScn;
+        long loanScn;
+        long savedAt;
+        try {
+            if (buf.capacity() < 28 || buf.getInt(0) != MAGIC || buf.getInt(4) != FORMAT_VERSION) {
+                System.err.println("Snapshot " + FILE + " has an unknown format; starting cold.");
+                return false;
+            }
+            ByteBuffer body = buf.duplicate();
+            body.limit(buf.capacity() - 4);
+            CRC32 crc = new CRC32();
+            crc.update(body);
+            if ((int) crc.getValue() != buf.getInt(buf.capacity() - 4)) {
+                System.err.println("Snapshot " + FILE + " is damaged; starting cold.");
+                return false;
+            }
+            savedAt = buf.getLong(8);
+            buf.position(16);
+            loanScn = buf.getLong();
+            while (buf.get() != 0) {
+                books.add(new BookService.Book(buf.getInt(), readString(buf), readString(buf), readString(buf), readString(buf),
+                        buf.getInt(), buf.getInt(), buf.getInt(), buf.getInt(), readString(buf)));
+            }
+            bookScn = buf.getLong();
+            while (buf.get() != 0) {
+                members.add(new MemberService.Member(buf.getInt(), readString(buf), readString(buf), readString(buf),
+                        date(buf.getLong()), readString(buf)));
+            }
+            memberScn = buf.getLong();
+            while (buf.get() != 0) {
+                loans.add(new BorrowingService.Borrowing(buf.getInt(), buf.getInt(), buf.getInt(), date(buf.getLong()),
+                        date(buf.getLong()), null, buf.getDouble(), "ISSUED"));
+            }
+        } catch (RuntimeException e) {
+            System.err.println("Decode snapshot error: " + e.getMessage());
+            return false;
+        }
+        long decoded = System.currentTimeMillis();
+        int bookChanges = BookService.loadCatalog(books, bookScn);
+        int memberChanges = MemberService.loadSearchIndex(members, memberScn);
+        int loanChanges = DueDateScheduler.start(loans, loanScn, savedAt);
+        if (bookChanges < 0 || memberChanges < 0 || loanChanges < 0) {
+            return false;
+        }
+        System.err.println("Warm start: " + books.size() + " books, " + members.size() + " members, " + loans.size()
+                + " open loans decoded in " + (decoded - start) + " ms; caught up on " + (bookChanges + memberChanges + loanChanges)
+                + " changed rows in " + (System.currentTimeMillis() - decoded) + " ms");
+        return true;
+    }
+
+    private static void writeString(DataOutputStream out, String s) throws IOException {
+        if (s == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(ByteBuffer buf) {
+        int length = buf.getInt();
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        buf.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static long day(Date date) {
+        return date == null ? NO_DATE : DueDateScheduler.epochDay(date);
+    }
+
+    private static java.sql.Date date(long day) {
+        return day == NO_DATE ? null : java.sql.Date.valueOf(LocalDate.ofEpochDay(day));
+    }
+}
\ No newline at end of file